@@ -0,0 +1,52 @@
+package io.github.sashirestela.openai.playground.benchmarks;
+
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.playground.sink.PrintStreamTokenSink;
+import io.github.sashirestela.openai.playground.stream.ChatChunkPrinter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of handling the recorded vision answer chunk by chunk, as DemoVision does, with the output
+ * discarded so that only the chunk handling itself is measured.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChatChunkPrinterBenchmark {
+
+    @Param({ "chat-content" })
+    private String fixture;
+
+    private List<Chat> chunks;
+    private ChatChunkPrinter printer;
+
+    @Setup
+    public void setup() {
+        chunks = ChatStreamFixtures.recordedChunks(fixture);
+        printer = new ChatChunkPrinter(new PrintStreamTokenSink(new PrintStream(OutputStream.nullOutputStream())));
+    }
+
+    @Benchmark
+    public void printStream() {
+        chunks.forEach(printer);
+    }
+
+}
@@ -0,0 +1,64 @@
+package io.github.sashirestela.openai.playground.benchmarks;
+
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.playground.stream.ChatStreamAccumulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-chunk cost of ChatStreamAccumulator against the former getResponse() stitching.
+ * Run with {@code -prof gc} to read the allocations per chunk (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChatStreamAccumulatorBenchmark {
+
+    private static final int CHUNKS = 256;
+
+    @Param({ "content", "toolCalls" })
+    private String scenario;
+
+    private List<Chat> chunks;
+    private ChatStreamAccumulator accumulator;
+    private LegacyStreamStitcher legacyStitcher;
+
+    @Setup
+    public void setup() {
+        chunks = "content".equals(scenario)
+                ? ChatStreamFixtures.contentChunks(CHUNKS)
+                : ChatStreamFixtures.toolCallChunks(4, CHUNKS, false);
+        accumulator = new ChatStreamAccumulator();
+        legacyStitcher = new LegacyStreamStitcher();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS)
+    public void accumulator(Blackhole blackhole) {
+        blackhole.consume(accumulator.accumulate(chunks.stream()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS)
+    public void legacyGetResponse(Blackhole blackhole) {
+        blackhole.consume(legacyStitcher.getResponse(chunks.stream()));
+    }
+
+}
@@ -0,0 +1,110 @@
+package io.github.sashirestela.openai.playground.benchmarks;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.domain.chat.Chat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chat completion chunks shaped like the ones the chat completions endpoint streams, either
+ * synthetic or read from the recorded server-sent events under {@code fixtures/}.
+ */
+public class ChatStreamFixtures {
+
+    private static final String CHUNK_TEMPLATE = "{\"id\":\"chatcmpl-bench\",\"object\":\"chat.completion.chunk\","
+            + "\"created\":1700000000,\"model\":\"gpt-4o-mini\",\"choices\":[{\"index\":0,\"delta\":%s,"
+            + "\"finish_reason\":%s}]}";
+
+    private ChatStreamFixtures() {
+    }
+
+    public static List<Chat> contentChunks(int count) {
+        List<Chat> chunks = new ArrayList<>(count);
+        chunks.add(chunk("{\"role\":\"assistant\",\"content\":\"\"}", null));
+        for (int i = 1; i < count - 1; i++) {
+            chunks.add(chunk("{\"content\":\"token" + i + " \"}", null));
+        }
+        chunks.add(chunk("{}", "stop"));
+        return chunks;
+    }
+
+    public static List<Chat> toolCallChunks(int toolCalls, int count, boolean interleaved) {
+        var argChunksPerCall = Math.max(1, (count - 2 - toolCalls) / toolCalls);
+        List<Chat> chunks = new ArrayList<>(count);
+        chunks.add(chunk("{\"role\":\"assistant\",\"content\":null}", null));
+        if (interleaved) {
+            for (int t = 0; t < toolCalls; t++) {
+                chunks.add(chunk(toolCallHead(t), null));
+            }
+            for (int a = 0; a < argChunksPerCall; a++) {
+                for (int t = 0; t < toolCalls; t++) {
+                    chunks.add(chunk(toolCallArgs(t, a, argChunksPerCall), null));
+                }
+            }
+        } else {
+            for (int t = 0; t < toolCalls; t++) {
+                chunks.add(chunk(toolCallHead(t), null));
+                for (int a = 0; a < argChunksPerCall; a++) {
+                    chunks.add(chunk(toolCallArgs(t, a, argChunksPerCall), null));
+                }
+            }
+        }
+        while (chunks.size() < count - 1) {
+            chunks.add(chunk("{}", null));
+        }
+        chunks.add(chunk("{}", "tool_calls"));
+        return chunks;
+    }
+
+    /**
+     * @return the raw server-sent events body of a recorded fixture, e.g. {@code chat-content}.
+     */
+    public static String recorded(String name) {
+        var resource = "/fixtures/" + name + ".sse";
+        try (var input = ChatStreamFixtures.class.getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new IllegalArgumentException("No recorded fixture " + resource);
+            }
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static List<Chat> recordedChunks(String name) {
+        List<Chat> chunks = new ArrayList<>();
+        for (var line : recorded(name).split("\n")) {
+            if (line.startsWith("data: {")) {
+                chunks.add(JsonUtil.jsonToObject(line.substring("data: ".length()), Chat.class));
+            }
+        }
+        return chunks;
+    }
+
+    private static String toolCallHead(int toolIndex) {
+        return "{\"tool_calls\":[{\"index\":" + toolIndex + ",\"id\":\"call_" + toolIndex
+                + "\",\"type\":\"function\",\"function\":{\"name\":\"getCurrentTemperature\",\"arguments\":\"\"}}]}";
+    }
+
+    private static String toolCallArgs(int toolIndex, int argIndex, int argChunks) {
+        String fragment;
+        if (argIndex == 0) {
+            fragment = "{\\\"location\\\":\\\"City " + toolIndex;
+        } else if (argIndex == argChunks - 1) {
+            fragment = "\\\",\\\"unit\\\":\\\"celsius\\\"}";
+        } else {
+            fragment = " part" + argIndex;
+        }
+        return "{\"tool_calls\":[{\"index\":" + toolIndex + ",\"function\":{\"arguments\":\"" + fragment + "\"}}]}";
+    }
+
+    private static Chat chunk(String delta, String finishReason) {
+        var json = String.format(CHUNK_TEMPLATE, delta, finishReason == null ? "null" : "\"" + finishReason + "\"");
+        return JsonUtil.jsonToObject(json, Chat.class);
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.sashirestela.openai.playground.benchmarks;
+
+import io.github.sashirestela.openai.playground.image.ImagePayloadCache;
+import io.github.sashirestela.openai.support.Base64Util;
+import io.github.sashirestela.openai.support.Base64Util.MediaType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes the demo image as a data URL with Base64Util and with ImagePayloadCache, cold (a new
+ * cache per call, so the file is read and encoded) and warm (served from the cache).
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageEncodingBenchmark {
+
+    private Path image;
+    private ImagePayloadCache warmCache;
+
+    @Setup
+    public void setup() throws IOException {
+        image = Files.createTempFile("machupicchu", ".jpg");
+        try (var input = ImageEncodingBenchmark.class.getResourceAsStream("/machupicchu.jpg")) {
+            Files.copy(input, image, StandardCopyOption.REPLACE_EXISTING);
+        }
+        warmCache = ImagePayloadCache.builder().build();
+        warmCache.dataUrl(image);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(image);
+    }
+
+    @Benchmark
+    public String base64Util() {
+        return Base64Util.encode(image.toString(), MediaType.IMAGE);
+    }
+
+    @Benchmark
+    public String payloadCacheCold() {
+        return ImagePayloadCache.builder().build().dataUrl(image);
+    }
+
+    @Benchmark
+    public String payloadCacheWarm() {
+        return warmCache.dataUrl(image);
+    }
+
+}
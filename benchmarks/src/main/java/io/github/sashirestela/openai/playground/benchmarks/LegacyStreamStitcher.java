@@ -0,0 +1,72 @@
+package io.github.sashirestela.openai.playground.benchmarks;
+
+import io.github.sashirestela.openai.common.tool.ToolCall;
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.domain.chat.Chat.Choice;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.ResponseMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Copy of the delta stitching that DemoConversationWithChatCompletion used before
+ * ChatStreamAccumulator, kept as the baseline to compare against. Console printing is left out.
+ */
+public class LegacyStreamStitcher {
+
+    private int indexTool;
+    private StringBuilder content;
+    private StringBuilder functionArgs;
+
+    public Choice getResponse(Stream<Chat> chatStream) {
+        indexTool = -1;
+        content = new StringBuilder();
+        functionArgs = new StringBuilder();
+
+        var choice = new Choice();
+        choice.setIndex(0);
+        var chatMsgResponse = new ResponseMessage();
+        List<ToolCall> toolCalls = new ArrayList<>();
+
+        chatStream.forEach(responseChunk -> {
+            var choices = responseChunk.getChoices();
+            if (!choices.isEmpty()) {
+                var innerChoice = choices.get(0);
+                var delta = innerChoice.getMessage();
+                if (delta.getRole() != null) {
+                    chatMsgResponse.setRole(delta.getRole());
+                }
+                if (delta.getContent() != null && !delta.getContent().isEmpty()) {
+                    content.append(delta.getContent());
+                }
+                if (delta.getToolCalls() != null) {
+                    var toolCall = delta.getToolCalls().get(0);
+                    if (toolCall.getIndex() != indexTool) {
+                        if (!toolCalls.isEmpty()) {
+                            toolCalls.get(toolCalls.size() - 1).getFunction().setArguments(functionArgs.toString());
+                            functionArgs = new StringBuilder();
+                        }
+                        toolCalls.add(toolCall);
+                        indexTool++;
+                    } else {
+                        functionArgs.append(toolCall.getFunction().getArguments());
+                    }
+                }
+                if (innerChoice.getFinishReason() != null) {
+                    if (content.length() > 0) {
+                        chatMsgResponse.setContent(content.toString());
+                    }
+                    if (!toolCalls.isEmpty()) {
+                        toolCalls.get(toolCalls.size() - 1).getFunction().setArguments(functionArgs.toString());
+                        chatMsgResponse.setToolCalls(toolCalls);
+                    }
+                    choice.setMessage(chatMsgResponse);
+                    choice.setFinishReason(innerChoice.getFinishReason());
+                }
+            }
+        });
+        return choice;
+    }
+
+}
@@ -0,0 +1,75 @@
+package io.github.sashirestela.openai.playground.benchmarks;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.domain.chat.Chat.Choice;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.stream.ChatStreamAccumulator;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import io.github.sashirestela.openai.playground.stub.StubRecordings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end streamed chat completion: the recorded fixtures are replayed by a local
+ * StubOpenAIServer, without delays, and read back through SimpleOpenAI into a ChatStreamAccumulator.
+ * This covers HTTP, server-sent events parsing, chunk deserialization and accumulation.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dsun.net.httpserver.nodelay=true",
+        "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn" })
+@State(Scope.Thread)
+public class StubStreamBenchmark {
+
+    @Param({ "chat-content", "chat-tool-calls" })
+    private String fixture;
+
+    private StubOpenAIServer stub;
+    private SimpleOpenAI openAI;
+    private ChatRequest chatRequest;
+    private ChatStreamAccumulator accumulator;
+
+    @Setup
+    public void setup() {
+        stub = StubOpenAIServer.builder()
+                .recordings(StubRecordings.of(StubRecordings.CHAT, ChatStreamFixtures.recorded(fixture)))
+                .build();
+        openAI = SimpleOpenAI.builder()
+                .apiKey("stub")
+                .baseUrl(stub.getBaseUrl())
+                .build();
+        chatRequest = ChatRequest.builder()
+                .model("gpt-4o-mini")
+                .messages(List.of(UserMessage.of("What's the weather like in Cusco and Lima?")))
+                .build();
+        accumulator = new ChatStreamAccumulator();
+    }
+
+    @TearDown
+    public void tearDown() {
+        openAI.shutDown();
+        stub.close();
+    }
+
+    @Benchmark
+    public Choice streamAndAccumulate() {
+        return accumulator.accumulate(openAI.chatCompletions().createStream(chatRequest).join());
+    }
+
+}
@@ -0,0 +1,82 @@
+package io.github.sashirestela.openai.playground.benchmarks;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartTextAnnotation;
+import io.github.sashirestela.openai.domain.assistant.ThreadMessageDelta;
+import io.github.sashirestela.openai.playground.assistant.RunDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text extraction from assistant thread.message.delta events: the extraction alone, the former
+ * demo extraction, and deserialization plus extraction as the run stream does it per event.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ThreadMessageDeltaBenchmark {
+
+    private static final int DELTAS = 64;
+    private static final String DELTA_TEMPLATE = "{\"id\":\"msg_5Rb2Lk9Qv1Xc7Tn4Wm8Jd3Hs\","
+            + "\"object\":\"thread.message.delta\",\"delta\":{\"content\":[{\"index\":0,\"type\":\"text\","
+            + "\"text\":{\"value\":\"%s\",\"annotations\":[]}}]}}";
+
+    private List<String> json;
+    private List<ThreadMessageDelta> deltas;
+
+    @Setup
+    public void setup() {
+        json = new ArrayList<>(DELTAS);
+        deltas = new ArrayList<>(DELTAS);
+        for (int i = 0; i < DELTAS; i++) {
+            var event = String.format(DELTA_TEMPLATE, "token" + i + " ");
+            json.add(event);
+            deltas.add(JsonUtil.jsonToObject(event, ThreadMessageDelta.class));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DELTAS)
+    public void deltaText(Blackhole blackhole) {
+        for (var delta : deltas) {
+            blackhole.consume(RunDriver.deltaText(delta));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DELTAS)
+    public void legacyDemoExtraction(Blackhole blackhole) {
+        for (var delta : deltas) {
+            var content = delta.getDelta().getContent().get(0);
+            if (content instanceof ContentPartTextAnnotation) {
+                blackhole.consume(((ContentPartTextAnnotation) content).getText().getValue());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DELTAS)
+    public void parseAndDeltaText(Blackhole blackhole) {
+        for (var event : json) {
+            blackhole.consume(RunDriver.deltaText(JsonUtil.jsonToObject(event, ThreadMessageDelta.class)));
+        }
+    }
+
+}
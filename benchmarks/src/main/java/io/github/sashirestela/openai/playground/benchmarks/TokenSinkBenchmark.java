@@ -0,0 +1,100 @@
+package io.github.sashirestela.openai.playground.benchmarks;
+
+import io.github.sashirestela.openai.playground.sink.PrintStreamTokenSink;
+import io.github.sashirestela.openai.playground.sink.RingBufferTokenSink;
+import io.github.sashirestela.openai.playground.sink.TokenSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Producer-side cost of emitting a token, i.e. what the thread draining the response stream pays,
+ * when printing straight to a slow unbuffered stream and when going through RingBufferTokenSink.
+ * The downstream stream parks for {@code writeMicros} on every write to stand in for a terminal.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(2)
+@State(Scope.Benchmark)
+public class TokenSinkBenchmark {
+
+    private static final int TOKENS = 64;
+
+    @Param({ "0", "20" })
+    private long writeMicros;
+
+    private TokenSink direct;
+    private RingBufferTokenSink ring;
+
+    @Setup
+    public void setup() {
+        direct = new PrintStreamTokenSink(new PrintStream(slowStream(), false));
+        ring = RingBufferTokenSink.builder()
+                .downstream(new PrintStreamTokenSink(new PrintStream(slowStream(), false)))
+                .capacity(1 << 16)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ring.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOKENS)
+    public void printStream() {
+        for (int i = 0; i < TOKENS; i++) {
+            direct.emit("token ");
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOKENS)
+    public void ringBuffer() {
+        for (int i = 0; i < TOKENS; i++) {
+            ring.emit("token ");
+        }
+    }
+
+    private OutputStream slowStream() {
+        return new OutputStream() {
+
+            @Override
+            public void write(int b) {
+                pause();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                pause();
+            }
+
+            private void pause() {
+                if (writeMicros > 0) {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(writeMicros));
+                }
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,74 @@
+package io.github.sashirestela.openai.playground.benchmarks;
+
+import io.github.sashirestela.openai.common.function.FunctionDef;
+import io.github.sashirestela.openai.common.function.FunctionExecutor;
+import io.github.sashirestela.openai.common.tool.ToolCall;
+import io.github.sashirestela.openai.playground.DemoConversationWithAssistant.CurrentTemperature;
+import io.github.sashirestela.openai.playground.DemoConversationWithAssistant.RainProbability;
+import io.github.sashirestela.openai.playground.stream.ChatStreamAccumulator;
+import io.github.sashirestela.openai.playground.tool.ParallelToolDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the tool calls of the recorded tool-call answer with FunctionExecutor.executeAll and
+ * with ParallelToolDispatcher. The functionals are the demo's CurrentTemperature and
+ * RainProbability, so this mostly measures argument parsing and dispatch overhead.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToolDispatchBenchmark {
+
+    @Param({ "1", "4" })
+    private int toolCalls;
+
+    private List<ToolCall> calls;
+    private FunctionExecutor functionExecutor;
+    private ParallelToolDispatcher toolDispatcher;
+
+    @Setup
+    public void setup() {
+        functionExecutor = new FunctionExecutor(List.of(
+                FunctionDef.builder()
+                        .name("getCurrentTemperature")
+                        .description("Get the current temperature for a specific location")
+                        .functionalClass(CurrentTemperature.class)
+                        .build(),
+                FunctionDef.builder()
+                        .name("getRainProbability")
+                        .description("Get the probability of rain for a specific location")
+                        .functionalClass(RainProbability.class)
+                        .build()));
+        toolDispatcher = ParallelToolDispatcher.builder().functionExecutor(functionExecutor).build();
+        var accumulator = new ChatStreamAccumulator();
+        accumulator.accumulate(ChatStreamFixtures.recordedChunks("chat-tool-calls").stream());
+        calls = accumulator.getChoice().getMessage().getToolCalls().subList(0, toolCalls);
+    }
+
+    @Benchmark
+    public List<String> functionExecutorExecuteAll() {
+        return functionExecutor.executeAll(calls, (toolCallId, result) -> result);
+    }
+
+    @Benchmark
+    public List<String> parallelToolDispatcher() {
+        return toolDispatcher.executeAll(calls, (toolCallId, result) -> result);
+    }
+
+}
@@ -0,0 +1,71 @@
+package io.github.sashirestela.openai.playground;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.playground.image.BatchVisionJob;
+import io.github.sashirestela.openai.playground.image.ImagePayloadCache;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.ratelimit.RateLimitScheduler;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+public class DemoBatchVision {
+
+    private StubOpenAIServer stubServer;
+    private SimpleOpenAI openAI;
+    private MetricsRegistry metrics;
+    private RateLimitScheduler rateLimits;
+    private BatchVisionJob job;
+
+    public DemoBatchVision(boolean useStub) {
+        metrics = new MetricsRegistry();
+        rateLimits = RateLimitScheduler.builder().metrics(metrics).build();
+        if (useStub) {
+            stubServer = StubOpenAIServer.builder()
+                    .answer("A citadel of stone terraces on a green mountain ridge.")
+                    .chunkDelay(Duration.ofMillis(20))
+                    .build();
+            openAI = SimpleOpenAI.builder()
+                    .apiKey("stub")
+                    .baseUrl(stubServer.getBaseUrl())
+                    .httpClient(rateLimits.getHttpClient())
+                    .build();
+        } else {
+            openAI = SimpleOpenAI.builder()
+                    .apiKey(System.getenv("OPENAI_API_KEY"))
+                    .httpClient(rateLimits.getHttpClient())
+                    .build();
+        }
+        job = BatchVisionJob.builder()
+                .chatService(openAI.chatCompletions())
+                .rateLimits(rateLimits)
+                .imagePayloads(ImagePayloadCache.builder().maxDimension(2048).build())
+                .maxConcurrency(4)
+                .maxCompletionTokens(500)
+                .output(Paths.get("target", "vision-batch.jsonl"))
+                .build();
+    }
+
+    public void describeImages(String directoryOrManifest) {
+        var report = job.run(Paths.get(directoryOrManifest));
+        System.out.println(report);
+        System.out.println(metrics);
+    }
+
+    public void close() {
+        openAI.shutDown();
+        rateLimits.close();
+        if (stubServer != null) {
+            stubServer.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        var useStub = args.length > 1 && args[1].equals("--stub");
+        var demo = new DemoBatchVision(useStub);
+        demo.describeImages(args.length > 0 ? args[0] : "src/main/resources");
+        demo.close();
+    }
+
+}
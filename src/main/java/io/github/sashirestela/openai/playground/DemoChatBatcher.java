@@ -0,0 +1,80 @@
+package io.github.sashirestela.openai.playground;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.batch.ChatBatcher;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DemoChatBatcher {
+
+    private static final List<String> PLACES = List.of("Machu Picchu", "Lake Titicaca", "the Nazca Lines",
+            "Cusco", "Arequipa", "the Colca Canyon", "Kuelap", "Chan Chan", "the Amazon basin", "Huascaran",
+            "the Uros islands", "Paracas", "Caral", "Vinicunca", "the Sacred Valley", "Lima");
+
+    private StubOpenAIServer stubServer;
+    private SimpleOpenAI openAI;
+    private MetricsRegistry metrics;
+    private ChatBatcher batcher;
+
+    public DemoChatBatcher(boolean useStub) {
+        var builder = ChatBatcher.builder();
+        if (useStub) {
+            stubServer = StubOpenAIServer.builder()
+                    .answer("A landmark of Peru, known for its history and landscapes.")
+                    .chunkDelay(Duration.ofMillis(20))
+                    .batchDuration(Duration.ofSeconds(3))
+                    .build();
+            openAI = SimpleOpenAI.builder().apiKey("stub").baseUrl(stubServer.getBaseUrl()).build();
+            builder.minBatchSize(20)
+                    .initialPollInterval(Duration.ofMillis(250))
+                    .maxPollInterval(Duration.ofSeconds(2));
+        } else {
+            openAI = SimpleOpenAI.builder().apiKey(System.getenv("OPENAI_API_KEY")).build();
+        }
+        metrics = new MetricsRegistry();
+        batcher = builder.openAI(openAI).metrics(metrics).build();
+    }
+
+    public void describePlaces(int count) {
+        List<ChatRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(ChatRequest.builder()
+                    .model("gpt-4o-mini")
+                    .messages(List.of(UserMessage.of("Describe " + PLACES.get(i % PLACES.size())
+                            + " in one sentence.")))
+                    .maxCompletionTokens(60)
+                    .build());
+        }
+        var start = System.nanoTime();
+        var answers = batcher.submitAll(requests).join();
+        System.out.println(count + " answers in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        for (int i = 0; i < Math.min(3, answers.size()); i++) {
+            System.out.println("- " + answers.get(i).firstContent());
+        }
+        System.out.println();
+    }
+
+    public void close() {
+        batcher.close();
+        System.out.println(metrics);
+        openAI.shutDown();
+        if (stubServer != null) {
+            stubServer.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        var useStub = args.length > 0 && args[0].equals("--stub");
+        var demo = new DemoChatBatcher(useStub);
+        demo.describePlaces(5);
+        demo.describePlaces(useStub ? 200 : 500);
+        demo.close();
+    }
+
+}
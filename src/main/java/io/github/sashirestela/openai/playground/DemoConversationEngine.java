@@ -0,0 +1,79 @@
+package io.github.sashirestela.openai.playground;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.common.function.FunctionDef;
+import io.github.sashirestela.openai.common.function.FunctionExecutor;
+import io.github.sashirestela.openai.playground.DemoConversationWithChatCompletion.CurrentTemperature;
+import io.github.sashirestela.openai.playground.DemoConversationWithChatCompletion.RainProbability;
+import io.github.sashirestela.openai.playground.conversation.ChatConversationHandler;
+import io.github.sashirestela.openai.playground.conversation.ConversationEngine;
+import io.github.sashirestela.openai.playground.conversation.QueueInputSource;
+import io.github.sashirestela.openai.playground.tool.ToolSchemas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DemoConversationEngine {
+
+    private static final List<String> CITIES = List.of("Lima, Peru", "Madrid, Spain", "Tokyo, Japan",
+            "Toronto, Canada", "Nairobi, Kenya");
+
+    private SimpleOpenAI openAI;
+    private FunctionExecutor functionExecutor;
+    private Map<String, StringBuilder> outputs;
+
+    public DemoConversationEngine() {
+        openAI = SimpleOpenAI.builder().apiKey(System.getenv("OPENAI_API_KEY")).build();
+        outputs = new ConcurrentHashMap<>();
+    }
+
+    public void prepareConversations() {
+        List<FunctionDef> functionList = new ArrayList<>();
+        functionList.add(FunctionDef.builder()
+                .name("getCurrentTemperature")
+                .description("Get the current temperature for a specific location")
+                .functionalClass(CurrentTemperature.class)
+                .schemaConverter(ToolSchemas.precomputed())
+                .build());
+        functionList.add(FunctionDef.builder()
+                .name("getRainProbability")
+                .description("Get the probability of rain for a specific location")
+                .functionalClass(RainProbability.class)
+                .schemaConverter(ToolSchemas.precomputed())
+                .build());
+        functionExecutor = new FunctionExecutor(functionList);
+    }
+
+    public void runConversations(int sessions) {
+        try (var engine = ConversationEngine.builder().openAI(openAI).maxInFlightRequests(4).build()) {
+            for (int i = 0; i < sessions; i++) {
+                var sessionId = "session-" + i;
+                var city = CITIES.get(i % CITIES.size());
+                var output = new StringBuilder();
+                outputs.put(sessionId, output);
+                var input = new QueueInputSource(2);
+                input.offer("What's the weather like in " + city + "?");
+                input.offer("Should I take an umbrella?");
+                input.close();
+                engine.startSession(sessionId, input, ChatConversationHandler.builder()
+                        .engine(engine)
+                        .functionExecutor(functionExecutor)
+                        .temperature(0.2)
+                        .output(output::append)
+                        .build());
+            }
+            engine.awaitAll().join();
+        }
+        outputs.forEach((sessionId, output) -> System.out.println("=====>> " + sessionId + "\n" + output + "\n"));
+        openAI.shutDown();
+    }
+
+    public static void main(String[] args) {
+        var demo = new DemoConversationEngine();
+        demo.prepareConversations();
+        demo.runConversations(args.length > 0 ? Integer.parseInt(args[0]) : 5);
+    }
+
+}
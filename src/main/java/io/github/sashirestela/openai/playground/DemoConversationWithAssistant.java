@@ -2,46 +2,67 @@ package io.github.sashirestela.openai.playground;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
-import io.github.sashirestela.cleverclient.Event;
 import io.github.sashirestela.openai.SimpleOpenAI;
-import io.github.sashirestela.openai.common.content.ContentPart.ContentPartTextAnnotation;
 import io.github.sashirestela.openai.common.function.FunctionDef;
 import io.github.sashirestela.openai.common.function.FunctionExecutor;
 import io.github.sashirestela.openai.common.function.Functional;
 import io.github.sashirestela.openai.domain.assistant.AssistantRequest;
 import io.github.sashirestela.openai.domain.assistant.AssistantTool;
-import io.github.sashirestela.openai.domain.assistant.ThreadMessageDelta;
 import io.github.sashirestela.openai.domain.assistant.ThreadMessageRequest;
 import io.github.sashirestela.openai.domain.assistant.ThreadMessageRole;
-import io.github.sashirestela.openai.domain.assistant.ThreadRequest;
-import io.github.sashirestela.openai.domain.assistant.ThreadRun;
-import io.github.sashirestela.openai.domain.assistant.ThreadRun.RunStatus;
 import io.github.sashirestela.openai.domain.assistant.ThreadRunRequest;
-import io.github.sashirestela.openai.domain.assistant.ThreadRunSubmitOutputRequest;
-import io.github.sashirestela.openai.domain.assistant.ThreadRunSubmitOutputRequest.ToolOutput;
 import io.github.sashirestela.openai.domain.assistant.ToolResourceFull;
 import io.github.sashirestela.openai.domain.assistant.ToolResourceFull.FileSearch;
-import io.github.sashirestela.openai.domain.assistant.VectorStoreRequest;
-import io.github.sashirestela.openai.domain.assistant.events.EventName;
-import io.github.sashirestela.openai.domain.file.FileRequest;
-import io.github.sashirestela.openai.domain.file.FileRequest.PurposeType;
+import io.github.sashirestela.openai.playground.assistant.AssistantResourceManager;
+import io.github.sashirestela.openai.playground.assistant.RunDriver;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.sink.MeteredTokenSink;
+import io.github.sashirestela.openai.playground.sink.PrintStreamTokenSink;
+import io.github.sashirestela.openai.playground.sink.RingBufferTokenSink;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import io.github.sashirestela.openai.playground.stub.StubToolCall;
+import io.github.sashirestela.openai.playground.tool.CacheableTool;
+import io.github.sashirestela.openai.playground.tool.ParallelToolDispatcher;
+import io.github.sashirestela.openai.playground.tool.ToolResultCache;
+import io.github.sashirestela.openai.playground.tool.ToolSchemas;
 
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
 
 public class DemoConversationWithAssistant {
 
+    private StubOpenAIServer stubServer;
     private SimpleOpenAI openAI;
+    private AssistantResourceManager resourceManager;
     private String fileId;
     private String vectorStoreId;
     private FunctionExecutor functionExecutor;
+    private ParallelToolDispatcher toolDispatcher;
+    private RunDriver runDriver;
+    private RingBufferTokenSink console;
+    private MeteredTokenSink tokens;
+    private MetricsRegistry metrics;
     private String assistantId;
     private String threadId;
 
-    public DemoConversationWithAssistant() {
-        openAI = SimpleOpenAI.builder().apiKey(System.getenv("OPENAI_API_KEY")).build();
+    public DemoConversationWithAssistant(boolean useStub) {
+        if (useStub) {
+            stubServer = StubOpenAIServer.builder()
+                    .answer("It is 18 degrees Celsius in Lima, with a 20% chance of rain.")
+                    .toolCalls(List.of(
+                            StubToolCall.of("getCurrentTemperature",
+                                    "{\"location\":\"Lima, Peru\",\"unit\":\"celsius\"}"),
+                            StubToolCall.of("getRainProbability", "{\"location\":\"Lima, Peru\"}")))
+                    .firstChunkDelay(Duration.ofMillis(300))
+                    .chunkDelay(Duration.ofMillis(30))
+                    .build();
+            openAI = SimpleOpenAI.builder().apiKey("stub").baseUrl(stubServer.getBaseUrl()).build();
+        } else {
+            openAI = SimpleOpenAI.builder().apiKey(System.getenv("OPENAI_API_KEY")).build();
+        }
+        metrics = new MetricsRegistry();
     }
 
     public void prepareConversation() {
@@ -50,51 +71,64 @@ public class DemoConversationWithAssistant {
                 .name("getCurrentTemperature")
                 .description("Get the current temperature for a specific location")
                 .functionalClass(CurrentTemperature.class)
+                .schemaConverter(ToolSchemas.precomputed())
                 .build());
         functionList.add(FunctionDef.builder()
                 .name("getRainProbability")
                 .description("Get the probability of rain for a specific location")
                 .functionalClass(RainProbability.class)
+                .schemaConverter(ToolSchemas.precomputed())
                 .build());
         functionExecutor = new FunctionExecutor(functionList);
-
-        var file = openAI.files()
-                .create(FileRequest.builder()
-                        .file(Paths.get("src/demo/resources/mistral-ai.txt"))
-                        .purpose(PurposeType.ASSISTANTS)
+        toolDispatcher = ParallelToolDispatcher.builder()
+                .functionExecutor(functionExecutor)
+                .invoker(ToolResultCache.builder()
+                        .functionExecutor(functionExecutor)
+                        .functions(functionList)
+                        .metrics(metrics)
                         .build())
-                .join();
-        fileId = file.getId();
-        System.out.println("File was created with id: " + fileId);
-
-        var vectorStore = openAI.vectorStores()
-                .createAndPoll(VectorStoreRequest.builder()
-                        .fileId(fileId)
-                        .build());
-        vectorStoreId = vectorStore.getId();
-        System.out.println("Vector Store was created with id: " + vectorStoreId);
-
-        var assistant = openAI.assistants()
-                .create(AssistantRequest.builder()
-                        .name("World Assistant")
-                        .model("gpt-4o-mini")
-                        .instructions("You are a skilled tutor on geo-politic topics.")
-                        .tools(functionExecutor.getToolFunctions())
-                        .tool(AssistantTool.fileSearch())
-                        .toolResources(ToolResourceFull.builder()
-                                .fileSearch(FileSearch.builder()
-                                        .vectorStoreId(vectorStoreId)
-                                        .build())
+                .metrics(metrics)
+                .build();
+        runDriver = RunDriver.builder()
+                .openAI(openAI)
+                .toolDispatcher(toolDispatcher)
+                .metrics(metrics)
+                .build();
+        console = RingBufferTokenSink.builder().downstream(new PrintStreamTokenSink(System.out)).build();
+        tokens = new MeteredTokenSink(console);
+
+        resourceManager = AssistantResourceManager.builder()
+                .openAI(openAI)
+                .registryFile(Paths.get("target", stubServer != null ? "assistant-registry-stub.json"
+                        : "assistant-registry.json"))
+                .threadPoolSize(1)
+                .staleAfter(Duration.ofDays(7))
+                .metrics(metrics)
+                .build();
+
+        fileId = resourceManager.fileId(Paths.get("src/demo/resources/mistral-ai.txt"));
+        System.out.println("File is ready with id: " + fileId);
+
+        vectorStoreId = resourceManager.vectorStoreId(List.of(fileId));
+        System.out.println("Vector Store is ready with id: " + vectorStoreId);
+
+        assistantId = resourceManager.assistantId(AssistantRequest.builder()
+                .name("World Assistant")
+                .model("gpt-4o-mini")
+                .instructions("You are a skilled tutor on geo-politic topics.")
+                .tools(functionExecutor.getToolFunctions())
+                .tool(AssistantTool.fileSearch())
+                .toolResources(ToolResourceFull.builder()
+                        .fileSearch(FileSearch.builder()
+                                .vectorStoreId(vectorStoreId)
                                 .build())
-                        .temperature(0.2)
                         .build())
-                .join();
-        assistantId = assistant.getId();
-        System.out.println("Assistant was created with id: " + assistantId);
+                .temperature(0.2)
+                .build());
+        System.out.println("Assistant is ready with id: " + assistantId);
 
-        var thread = openAI.threads().create(ThreadRequest.builder().build()).join();
-        threadId = thread.getId();
-        System.out.println("Thread was created with id: " + threadId);
+        threadId = resourceManager.checkoutThread();
+        System.out.println("Thread was checked out with id: " + threadId);
         System.out.println();
     }
 
@@ -107,79 +141,49 @@ public class DemoConversationWithAssistant {
                             .content(myMessage)
                             .build())
                     .join();
-            var runStream = openAI.threadRuns()
-                    .createStream(threadId, ThreadRunRequest.builder()
-                            .assistantId(assistantId)
-                            .parallelToolCalls(Boolean.FALSE)
-                            .build())
-                    .join();
-            handleRunEvents(runStream);
+            var run = runDriver.newRun(threadId, ThreadRunRequest.builder()
+                    .assistantId(assistantId)
+                    .parallelToolCalls(Boolean.TRUE)
+                    .build())
+                    .onStatus(status -> console.emit(
+                            "=====>> Thread Run: id=" + status.getId() + ", status=" + status.getStatus() + "\n"));
+            var printed = run.consumeText(tokens::emit);
+            tokens.startStream();
+            run.start().join();
+            printed.join();
+            console.emit("\n");
+            console.flush();
             myMessage = System.console().readLine("\nWrite any message (or write 'exit' to finish): ");
         }
     }
 
-    private void handleRunEvents(Stream<Event> runStream) {
-        runStream.forEach(event -> {
-            switch (event.getName()) {
-                case EventName.THREAD_RUN_CREATED:
-                case EventName.THREAD_RUN_COMPLETED:
-                case EventName.THREAD_RUN_REQUIRES_ACTION:
-                    var run = (ThreadRun) event.getData();
-                    System.out.println("=====>> Thread Run: id=" + run.getId() + ", status=" + run.getStatus());
-                    if (run.getStatus().equals(RunStatus.REQUIRES_ACTION)) {
-                        var toolCalls = run.getRequiredAction().getSubmitToolOutputs().getToolCalls();
-                        var toolOutputs = functionExecutor.executeAll(toolCalls,
-                                (toolCallId, result) -> ToolOutput.builder()
-                                        .toolCallId(toolCallId)
-                                        .output(result)
-                                        .build());
-                        var runSubmitToolStream = openAI.threadRuns()
-                                .submitToolOutputStream(threadId, run.getId(), ThreadRunSubmitOutputRequest.builder()
-                                        .toolOutputs(toolOutputs)
-                                        .stream(true)
-                                        .build())
-                                .join();
-                        handleRunEvents(runSubmitToolStream);
-                    }
-                    break;
-                case EventName.THREAD_MESSAGE_DELTA:
-                    var msgDelta = (ThreadMessageDelta) event.getData();
-                    var content = msgDelta.getDelta().getContent().get(0);
-                    if (content instanceof ContentPartTextAnnotation) {
-                        var textContent = (ContentPartTextAnnotation) content;
-                        System.out.print(textContent.getText().getValue());
-                    }
-                    break;
-                case EventName.THREAD_MESSAGE_COMPLETED:
-                    System.out.println();
-                    break;
-                default:
-                    break;
-            }
-        });
-    }
-
     public void cleanConversation() {
-        var deletedFile = openAI.files().delete(fileId).join();
-        var deletedVectorStore = openAI.vectorStores().delete(vectorStoreId).join();
-        var deletedAssistant = openAI.assistants().delete(assistantId).join();
-        var deletedThread = openAI.threads().delete(threadId).join();
+        tokens.close();
+        System.out.println(tokens.getTimeToFirstToken());
+        System.out.println(tokens.getInterTokenLatency());
+        System.out.println(metrics);
 
-        System.out.println("File was deleted: " + deletedFile.getDeleted());
-        System.out.println("Vector Store was deleted: " + deletedVectorStore.getDeleted());
-        System.out.println("Assistant was deleted: " + deletedAssistant.getDeleted());
-        System.out.println("Thread was deleted: " + deletedThread.getDeleted());
+        resourceManager.releaseThread(threadId).join();
+        System.out.println("Thread was released: " + threadId);
 
+        resourceManager.collectGarbage();
+        resourceManager.close();
+        toolDispatcher.close();
         openAI.shutDown();
+        if (stubServer != null) {
+            stubServer.close();
+        }
     }
 
     public static void main(String[] args) {
-        var demo = new DemoConversationWithAssistant();
+        var useStub = args.length > 0 && args[0].equals("--stub");
+        var demo = new DemoConversationWithAssistant(useStub);
         demo.prepareConversation();
         demo.runConversation();
         demo.cleanConversation();
     }
 
+    @CacheableTool(ttlSeconds = 600)
     public static class CurrentTemperature implements Functional {
 
         @JsonPropertyDescription("The city and state, e.g., San Francisco, CA")
@@ -200,6 +204,7 @@ public class DemoConversationWithAssistant {
 
     }
 
+    @CacheableTool(ttlSeconds = 600)
     public static class RainProbability implements Functional {
 
         @JsonPropertyDescription("The city and state, e.g., San Francisco, CA")
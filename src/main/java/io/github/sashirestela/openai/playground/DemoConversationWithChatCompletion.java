@@ -2,35 +2,83 @@ package io.github.sashirestela.openai.playground;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import io.github.sashirestela.openai.OpenAI;
 import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.common.StreamOptions;
 import io.github.sashirestela.openai.common.function.FunctionDef;
 import io.github.sashirestela.openai.common.function.FunctionExecutor;
 import io.github.sashirestela.openai.common.function.Functional;
-import io.github.sashirestela.openai.common.tool.ToolCall;
-import io.github.sashirestela.openai.domain.chat.Chat;
-import io.github.sashirestela.openai.domain.chat.Chat.Choice;
-import io.github.sashirestela.openai.domain.chat.ChatMessage;
 import io.github.sashirestela.openai.domain.chat.ChatMessage.AssistantMessage;
-import io.github.sashirestela.openai.domain.chat.ChatMessage.ResponseMessage;
 import io.github.sashirestela.openai.domain.chat.ChatMessage.ToolMessage;
 import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
 import io.github.sashirestela.openai.domain.chat.ChatRequest;
-
+import io.github.sashirestela.openai.playground.conversation.ConversationMemory;
+import io.github.sashirestela.openai.playground.metrics.MeteredChatCompletions;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.ratelimit.RateLimitScheduler;
+import io.github.sashirestela.openai.playground.ratelimit.RateLimitScheduler.Lane;
+import io.github.sashirestela.openai.playground.sink.MeteredTokenSink;
+import io.github.sashirestela.openai.playground.sink.PrintStreamTokenSink;
+import io.github.sashirestela.openai.playground.sink.RingBufferTokenSink;
+import io.github.sashirestela.openai.playground.store.ConversationStore;
+import io.github.sashirestela.openai.playground.stream.ChatStreamAccumulator;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import io.github.sashirestela.openai.playground.stub.StubToolCall;
+import io.github.sashirestela.openai.playground.tool.CacheableTool;
+import io.github.sashirestela.openai.playground.tool.ParallelToolDispatcher;
+import io.github.sashirestela.openai.playground.tool.SpeculativeToolCalls;
+import io.github.sashirestela.openai.playground.tool.ToolResultCache;
+import io.github.sashirestela.openai.playground.tool.ToolSchemas;
+
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
 
 public class DemoConversationWithChatCompletion {
 
+    private StubOpenAIServer stubServer;
     private SimpleOpenAI openAI;
     private FunctionExecutor functionExecutor;
-
-    private int indexTool;
-    private StringBuilder content;
-    private StringBuilder functionArgs;
-
-    public DemoConversationWithChatCompletion() {
-        openAI = SimpleOpenAI.builder().apiKey(System.getenv("OPENAI_API_KEY")).build();
+    private ParallelToolDispatcher toolDispatcher;
+    private MetricsRegistry metrics;
+    private RateLimitScheduler rateLimits;
+    private OpenAI.ChatCompletions chatService;
+    private ConversationStore conversationStore;
+    private String sessionId;
+
+    public DemoConversationWithChatCompletion(boolean useStub, String sessionId) {
+        if (sessionId != null) {
+            this.conversationStore = ConversationStore.builder()
+                    .directory(Paths.get("target", "conversations"))
+                    .build();
+            this.sessionId = sessionId;
+        }
+        metrics = new MetricsRegistry();
+        rateLimits = RateLimitScheduler.builder().metrics(metrics).build();
+        if (useStub) {
+            stubServer = StubOpenAIServer.builder()
+                    .answer("It is 18 degrees Celsius in Lima, with a 20% chance of rain.")
+                    .toolCalls(List.of(
+                            StubToolCall.of("getCurrentTemperature",
+                                    "{\"location\":\"Lima, Peru\",\"unit\":\"celsius\"}"),
+                            StubToolCall.of("getRainProbability", "{\"location\":\"Lima, Peru\"}")))
+                    .firstChunkDelay(Duration.ofMillis(300))
+                    .chunkDelay(Duration.ofMillis(30))
+                    .build();
+            openAI = SimpleOpenAI.builder()
+                    .apiKey("stub")
+                    .baseUrl(stubServer.getBaseUrl())
+                    .httpClient(rateLimits.getHttpClient())
+                    .build();
+        } else {
+            openAI = SimpleOpenAI.builder()
+                    .apiKey(System.getenv("OPENAI_API_KEY"))
+                    .httpClient(rateLimits.getHttpClient())
+                    .build();
+        }
+        chatService = new MeteredChatCompletions(rateLimits.chatCompletions(openAI.chatCompletions(),
+                Lane.INTERACTIVE), metrics);
     }
 
     public void prepareConversation() {
@@ -39,35 +87,58 @@ public class DemoConversationWithChatCompletion {
                 .name("getCurrentTemperature")
                 .description("Get the current temperature for a specific location")
                 .functionalClass(CurrentTemperature.class)
+                .schemaConverter(ToolSchemas.precomputed())
                 .build());
         functionList.add(FunctionDef.builder()
                 .name("getRainProbability")
                 .description("Get the probability of rain for a specific location")
                 .functionalClass(RainProbability.class)
+                .schemaConverter(ToolSchemas.precomputed())
                 .build());
         functionExecutor = new FunctionExecutor(functionList);
+        toolDispatcher = ParallelToolDispatcher.builder()
+                .functionExecutor(functionExecutor)
+                .invoker(ToolResultCache.builder()
+                        .functionExecutor(functionExecutor)
+                        .functions(functionList)
+                        .metrics(metrics)
+                        .build())
+                .metrics(metrics)
+                .build();
     }
 
     public void runConversation() {
-        List<ChatMessage> messages = new ArrayList<>();
+        var messages = ConversationMemory.builder()
+                .maxTokens(4_000)
+                .store(conversationStore)
+                .sessionId(sessionId)
+                .build();
+        if (messages.size() > 0) {
+            System.out.println("Resumed session " + sessionId + " with " + messages.size() + " messages.");
+        }
+        var tokens = new MeteredTokenSink(RingBufferTokenSink.builder()
+                .downstream(new PrintStreamTokenSink(System.out))
+                .build());
+        var speculativeTools = new SpeculativeToolCalls(toolDispatcher);
+        var accumulator = new ChatStreamAccumulator(tokens::emit, speculativeTools);
         var myMessage = System.console().readLine("\nWelcome! Write any message: ");
-        messages.add(UserMessage.of(myMessage));
+        if (!myMessage.equalsIgnoreCase("exit")) {
+            messages.add(UserMessage.of(myMessage));
+        }
         while (!myMessage.equalsIgnoreCase("exit")) {
-            var chatStream = openAI.chatCompletions()
+            tokens.startStream();
+            var chatStream = chatService
                     .createStream(ChatRequest.builder()
                             .model("gpt-4o-mini")
-                            .messages(messages)
+                            .messages(messages.getMessages())
                             .tools(functionExecutor.getToolFunctions())
                             .temperature(0.2)
                             .stream(true)
+                            .streamOptions(StreamOptions.of(Boolean.TRUE))
                             .build())
                     .join();
 
-            indexTool = -1;
-            content = new StringBuilder();
-            functionArgs = new StringBuilder();
-
-            var response = getResponse(chatStream);
+            var response = accumulator.accumulate(chatStream);
 
             if (response.getMessage().getContent() != null) {
                 messages.add(AssistantMessage.of(response.getMessage().getContent()));
@@ -75,70 +146,44 @@ public class DemoConversationWithChatCompletion {
             if (response.getFinishReason().equals("tool_calls")) {
                 messages.add(response.getMessage());
                 var toolCalls = response.getMessage().getToolCalls();
-                var toolMessages = functionExecutor.executeAll(toolCalls,
+                var toolMessages = speculativeTools.collectAll(toolCalls,
                         (toolCallId, result) -> ToolMessage.of(result, toolCallId));
                 messages.addAll(toolMessages);
             } else {
+                speculativeTools.reset();
+                tokens.flush();
                 myMessage = System.console().readLine("\n\nWrite any message (or write 'exit' to finish): ");
-                messages.add(UserMessage.of(myMessage));
+                if (!myMessage.equalsIgnoreCase("exit")) {
+                    messages.add(UserMessage.of(myMessage));
+                }
             }
         }
+        tokens.close();
+        System.out.println(tokens.getTimeToFirstToken());
+        System.out.println(tokens.getInterTokenLatency());
+        System.out.println(metrics);
+        toolDispatcher.close();
         openAI.shutDown();
-    }
-
-    private Choice getResponse(Stream<Chat> chatStream) {
-        var choice = new Choice();
-        choice.setIndex(0);
-        var chatMsgResponse = new ResponseMessage();
-        List<ToolCall> toolCalls = new ArrayList<>();
-
-        chatStream.forEach(responseChunk -> {
-            var choices = responseChunk.getChoices();
-            if (!choices.isEmpty()) {
-                var innerChoice = choices.get(0);
-                var delta = innerChoice.getMessage();
-                if (delta.getRole() != null) {
-                    chatMsgResponse.setRole(delta.getRole());
-                }
-                if (delta.getContent() != null && !delta.getContent().isEmpty()) {
-                    content.append(delta.getContent());
-                    System.out.print(delta.getContent());
-                }
-                if (delta.getToolCalls() != null) {
-                    var toolCall = delta.getToolCalls().get(0);
-                    if (toolCall.getIndex() != indexTool) {
-                        if (!toolCalls.isEmpty()) {
-                            toolCalls.get(toolCalls.size() - 1).getFunction().setArguments(functionArgs.toString());
-                            functionArgs = new StringBuilder();
-                        }
-                        toolCalls.add(toolCall);
-                        indexTool++;
-                    } else {
-                        functionArgs.append(toolCall.getFunction().getArguments());
-                    }
-                }
-                if (innerChoice.getFinishReason() != null) {
-                    if (content.length() > 0) {
-                        chatMsgResponse.setContent(content.toString());
-                    }
-                    if (!toolCalls.isEmpty()) {
-                        toolCalls.get(toolCalls.size() - 1).getFunction().setArguments(functionArgs.toString());
-                        chatMsgResponse.setToolCalls(toolCalls);
-                    }
-                    choice.setMessage(chatMsgResponse);
-                    choice.setFinishReason(innerChoice.getFinishReason());
-                }
-            }
-        });
-        return choice;
+        rateLimits.close();
+        if (conversationStore != null) {
+            conversationStore.close();
+        }
+        if (stubServer != null) {
+            stubServer.close();
+        }
     }
 
     public static void main(String[] args) {
-        var demo = new DemoConversationWithChatCompletion();
+        var arguments = List.of(args);
+        var useStub = arguments.contains("--stub");
+        var sessionIndex = arguments.indexOf("--session");
+        var sessionId = sessionIndex >= 0 && sessionIndex + 1 < args.length ? args[sessionIndex + 1] : null;
+        var demo = new DemoConversationWithChatCompletion(useStub, sessionId);
         demo.prepareConversation();
         demo.runConversation();
     }
 
+    @CacheableTool(ttlSeconds = 600)
     public static class CurrentTemperature implements Functional {
 
         @JsonPropertyDescription("The city and state, e.g., San Francisco, CA")
@@ -159,6 +204,7 @@ public class DemoConversationWithChatCompletion {
 
     }
 
+    @CacheableTool(ttlSeconds = 600)
     public static class RainProbability implements Functional {
 
         @JsonPropertyDescription("The city and state, e.g., San Francisco, CA")
@@ -0,0 +1,145 @@
+package io.github.sashirestela.openai.playground;
+
+import io.github.sashirestela.openai.playground.startup.StartupProbe;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Measures time-to-first-request of a fresh launcher process. It starts {@link StartupProbe} over
+ * and over against a local stub server, as a plain JVM, with the AppCDS archive of the {@code cds}
+ * profile, with that archive plus flags for short-lived JVMs, and as the native image of the
+ * {@code native} profile, skipping the variants whose build output is missing. Each step is timed
+ * from the moment the process was started, and the first run of each variant is discarded so all
+ * of them see a warm file cache.
+ */
+public class DemoStartupTime {
+
+    private static final Path TARGET = Paths.get("target");
+    private static final Path CDS_ARCHIVE = TARGET.resolve("app-cds.jsa");
+    private static final Path LIBRARIES = TARGET.resolve("lib");
+    private static final Path NATIVE_IMAGE = TARGET.resolve("startup-probe");
+    private static final List<String> STEPS = List.of("main", "ready", "response", "first-token", "exit");
+
+    private StubOpenAIServer stubServer;
+    private Map<String, List<String>> variants;
+
+    public DemoStartupTime() {
+        stubServer = StubOpenAIServer.builder().answer("It is 18 degrees Celsius in Lima.").build();
+        variants = new LinkedHashMap<>();
+        var java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        var probe = StartupProbe.class.getName();
+        var jar = packagedJar();
+        var classpath = jar != null && Files.isDirectory(LIBRARIES) ? jar.toString()
+                : System.getProperty("java.class.path");
+        var baseUrl = stubServer.getBaseUrl();
+        variants.put("jvm", List.of(java, "-cp", classpath, probe, "--base-url", baseUrl));
+        if (jar != null && Files.isDirectory(LIBRARIES) && Files.exists(CDS_ARCHIVE)) {
+            var archive = "-XX:SharedArchiveFile=" + CDS_ARCHIVE;
+            variants.put("jvm+cds", List.of(java, archive, "-cp", classpath, probe, "--base-url", baseUrl));
+            variants.put("jvm+cds+c1", List.of(java, archive, "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC",
+                    "-cp", classpath, probe, "--base-url", baseUrl));
+        }
+        if (Files.isExecutable(NATIVE_IMAGE)) {
+            variants.put("native", List.of(NATIVE_IMAGE.toString(), "--base-url", baseUrl));
+        }
+    }
+
+    public void runVariants(int runs) {
+        System.out.printf("%-12s %10s %10s %10s %12s %10s   (median ms since process start, %d runs)%n", "variant",
+                "main", "ready", "response", "first-token", "exit", runs);
+        for (var variant : variants.entrySet()) {
+            Map<String, List<Long>> samples = new HashMap<>();
+            STEPS.forEach(step -> samples.put(step, new ArrayList<>(runs)));
+            launch(variant.getValue());
+            for (var run = 0; run < runs; run++) {
+                launch(variant.getValue()).forEach((step, micros) -> samples.get(step).add(micros));
+            }
+            System.out.printf("%-12s %10.1f %10.1f %10.1f %12.1f %10.1f%n", variant.getKey(),
+                    median(samples.get("main")), median(samples.get("ready")), median(samples.get("response")),
+                    median(samples.get("first-token")), median(samples.get("exit")));
+        }
+    }
+
+    public void close() {
+        stubServer.close();
+    }
+
+    /**
+     * Runs the probe once.
+     *
+     * @return the microseconds from process start to each step
+     */
+    private static Map<String, Long> launch(List<String> command) {
+        try {
+            var startedAt = now();
+            var process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            List<String> output;
+            try (var reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                output = reader.lines().collect(Collectors.toList());
+            }
+            process.waitFor();
+            var exitedAt = now();
+            var startup = output.stream()
+                    .filter(line -> line.startsWith("startup "))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("The probe printed no startup line: " + output));
+            Map<String, Long> steps = new HashMap<>();
+            for (var field : startup.substring("startup ".length()).split(" ")) {
+                var pair = field.split("=");
+                steps.put(pair[0], Long.parseLong(pair[1]) - startedAt);
+            }
+            steps.put("exit", exitedAt - startedAt);
+            return steps;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start " + command.get(0), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path packagedJar() {
+        try (var files = Files.list(TARGET)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("simple-openai-playground")
+                    && file.getFileName().toString().endsWith(".jar"))
+                    .findFirst()
+                    .orElse(null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static double median(List<Long> micros) {
+        var sorted = micros.stream().sorted().collect(Collectors.toList());
+        return sorted.get(sorted.size() / 2) / 1000.0;
+    }
+
+    private static long now() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+
+    public static void main(String[] args) {
+        var runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        var demo = new DemoStartupTime();
+        demo.runVariants(runs);
+        demo.close();
+    }
+
+}
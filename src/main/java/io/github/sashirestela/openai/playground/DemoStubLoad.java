@@ -0,0 +1,75 @@
+package io.github.sashirestela.openai.playground;
+
+import io.github.sashirestela.openai.OpenAI;
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.common.StreamOptions;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.metrics.MeteredChatCompletions;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.stream.ChatStreamAccumulator;
+import io.github.sashirestela.openai.playground.stub.LoadGenerator;
+import io.github.sashirestela.openai.playground.stub.LoadProfile;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+
+import java.time.Duration;
+import java.util.List;
+
+public class DemoStubLoad {
+
+    private StubOpenAIServer stubServer;
+    private SimpleOpenAI openAI;
+    private MetricsRegistry metrics;
+    private OpenAI.ChatCompletions chatService;
+    private ChatRequest chatRequest;
+
+    public DemoStubLoad() {
+        stubServer = StubOpenAIServer.builder()
+                .answer("Machu Picchu is a fifteenth-century Inca citadel set on a mountain ridge above the "
+                        + "Sacred Valley in southern Peru. It was built as an estate for the emperor Pachacuti "
+                        + "and abandoned during the Spanish conquest. Its dry-stone walls, terraces and plazas "
+                        + "were restored in the twentieth century, and today it is one of the most visited "
+                        + "archaeological sites in South America.")
+                .firstChunkDelay(Duration.ofMillis(200))
+                .chunkDelay(Duration.ofMillis(10))
+                .jitter(0.3)
+                .build();
+        openAI = SimpleOpenAI.builder().apiKey("stub").baseUrl(stubServer.getBaseUrl()).build();
+        metrics = new MetricsRegistry();
+        chatService = new MeteredChatCompletions(openAI.chatCompletions(), metrics);
+        chatRequest = ChatRequest.builder()
+                .model("gpt-4o-mini")
+                .messages(List.of(UserMessage.of("Tell me about Machu Picchu.")))
+                .streamOptions(StreamOptions.of(Boolean.TRUE))
+                .build();
+    }
+
+    public void runLoad(LoadProfile profile) {
+        var generator = new LoadGenerator(() -> {
+            var chunks = new int[1];
+            var stream = chatService.createStream(chatRequest).join();
+            new ChatStreamAccumulator().accumulate(stream.peek(chunk -> chunks[0]++));
+            return chunks[0];
+        });
+        for (var report : generator.run(profile)) {
+            System.out.println(report);
+        }
+        System.out.println();
+        System.out.println(metrics);
+    }
+
+    public void close() {
+        openAI.shutDown();
+        stubServer.close();
+    }
+
+    public static void main(String[] args) {
+        var maxConcurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        var stageSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        var demo = new DemoStubLoad();
+        demo.runLoad(LoadProfile.ramp(Math.min(50, maxConcurrency), maxConcurrency, 4,
+                Duration.ofSeconds(stageSeconds)));
+        demo.close();
+    }
+
+}
@@ -1,5 +1,7 @@
 package io.github.sashirestela.openai.playground;
 
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
 
 import io.github.sashirestela.openai.OpenAI;
@@ -7,23 +9,59 @@ import io.github.sashirestela.openai.SimpleOpenAI;
 import io.github.sashirestela.openai.common.content.ContentPart.ContentPartImageUrl;
 import io.github.sashirestela.openai.common.content.ContentPart.ContentPartImageUrl.ImageUrl;
 import io.github.sashirestela.openai.common.content.ContentPart.ContentPartText;
-import io.github.sashirestela.openai.domain.chat.Chat;
 import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
 import io.github.sashirestela.openai.domain.chat.ChatRequest;
-import io.github.sashirestela.openai.support.Base64Util;
-import io.github.sashirestela.openai.support.Base64Util.MediaType;
+import io.github.sashirestela.openai.playground.cache.CachingChatCompletions;
+import io.github.sashirestela.openai.playground.cache.ChatResponseCache;
+import io.github.sashirestela.openai.playground.image.ImagePayloadCache;
+import io.github.sashirestela.openai.playground.metrics.MeteredChatCompletions;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.sink.MeteredTokenSink;
+import io.github.sashirestela.openai.playground.sink.PrintStreamTokenSink;
+import io.github.sashirestela.openai.playground.sink.RingBufferTokenSink;
+import io.github.sashirestela.openai.playground.stream.ChatChunkPrinter;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
 
 public class DemoVision {
 
+    private StubOpenAIServer stubServer;
     private SimpleOpenAI openai;
+    private ChatResponseCache responseCache;
+    private MetricsRegistry metrics;
     private OpenAI.ChatCompletions chatService;
+    private ImagePayloadCache imagePayloads;
+    private MeteredTokenSink tokens;
+    private ChatChunkPrinter chunkPrinter;
     private String model;
 
-    public DemoVision() {
-        openai = SimpleOpenAI.builder()
-                .apiKey(System.getenv("OPENAI_API_KEY"))
+    public DemoVision(boolean useStub) {
+        if (useStub) {
+            stubServer = StubOpenAIServer.builder()
+                    .answer("The image shows Machu Picchu, the Inca citadel on a ridge of the Peruvian Andes.")
+                    .firstChunkDelay(Duration.ofMillis(500))
+                    .chunkDelay(Duration.ofMillis(30))
+                    .build();
+            openai = SimpleOpenAI.builder()
+                    .apiKey("stub")
+                    .baseUrl(stubServer.getBaseUrl())
+                    .build();
+        } else {
+            openai = SimpleOpenAI.builder()
+                    .apiKey(System.getenv("OPENAI_API_KEY"))
+                    .build();
+        }
+        responseCache = ChatResponseCache.builder()
+                .diskDirectory(Paths.get("target", useStub ? "chat-cache-stub" : "chat-cache"))
+                .ttl(Duration.ofDays(1))
                 .build();
-        chatService = openai.chatCompletions();
+        metrics = new MetricsRegistry();
+        chatService = new MeteredChatCompletions(new CachingChatCompletions(openai.chatCompletions(), responseCache),
+                metrics);
+        imagePayloads = ImagePayloadCache.builder().maxDimension(2048).build();
+        tokens = new MeteredTokenSink(RingBufferTokenSink.builder()
+                .downstream(new PrintStreamTokenSink(System.out))
+                .build());
+        chunkPrinter = new ChatChunkPrinter(tokens);
         model = "gpt-4o-mini";
     }
 
@@ -39,9 +77,11 @@ public class DemoVision {
                 .temperature(0.0)
                 .maxCompletionTokens(500)
                 .build();
+        tokens.startStream();
         var chatResponse = chatService.createStream(chatRequest).join();
-        chatResponse.forEach(this::processResponseChunk);
-        System.out.println();
+        chatResponse.forEach(chunkPrinter);
+        tokens.emit("\n");
+        tokens.flush();
     }
 
     public void demoCallChatWithVisionLocalImage() {
@@ -52,36 +92,38 @@ public class DemoVision {
                                 ContentPartText.of(
                                         "What do you see in the image? Give in details in no more than 100 words."),
                                 ContentPartImageUrl.of(ImageUrl.of(
-                                        Base64Util.encode("src/main/resources/machupicchu.jpg", MediaType.IMAGE)))))))
+                                        imagePayloads.dataUrl("src/main/resources/machupicchu.jpg")))))))
                 .temperature(0.0)
                 .maxCompletionTokens(500)
                 .build();
+        tokens.startStream();
         var chatResponse = chatService.createStream(chatRequest).join();
-        chatResponse.forEach(this::processResponseChunk);
-        System.out.println();
+        chatResponse.forEach(chunkPrinter);
+        tokens.emit("\n");
+        tokens.flush();
     }
 
-    private void processResponseChunk(Chat responseChunk) {
-        var choices = responseChunk.getChoices();
-        if (!choices.isEmpty()) {
-            var delta = choices.get(0).getMessage();
-            if (delta.getContent() != null) {
-                System.out.print(delta.getContent());
-            }
-            if (delta.getReasoningContent() != null) {
-                System.out.print(delta.getReasoningContent());
-            }
-        }
-        var usage = responseChunk.getUsage();
-        if (usage != null && usage.getCompletionTokens() != 0) {
-            System.out.println("\n");
-            System.out.println(usage);
+    public void printCacheStats() {
+        System.out.println(responseCache.getStats());
+    }
+
+    public void printLatencies() {
+        tokens.close();
+        System.out.println(tokens.getTimeToFirstToken());
+        System.out.println(tokens.getInterTokenLatency());
+        System.out.println(metrics);
+        openai.shutDown();
+        if (stubServer != null) {
+            stubServer.close();
         }
     }
 
     public static void main(String[] args) {
-        var demoVision = new DemoVision();
+        var useStub = args.length > 0 && args[0].equals("--stub");
+        var demoVision = new DemoVision(useStub);
         demoVision.demoCallChatWithVisionExternalImage();
         demoVision.demoCallChatWithVisionLocalImage();
+        demoVision.printCacheStats();
+        demoVision.printLatencies();
     }
 }
@@ -0,0 +1,287 @@
+package io.github.sashirestela.openai.playground.assistant;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.domain.assistant.AssistantRequest;
+import io.github.sashirestela.openai.domain.assistant.ThreadRequest;
+import io.github.sashirestela.openai.domain.assistant.VectorStoreRequest;
+import io.github.sashirestela.openai.domain.file.FileRequest;
+import io.github.sashirestela.openai.domain.file.FileRequest.PurposeType;
+import io.github.sashirestela.openai.playground.assistant.ResourceRegistry.ResourceKind;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+import io.github.sashirestela.openai.playground.support.Fingerprint;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Reuses the files, vector stores and assistants of earlier runs instead of creating and deleting
+ * them every time. Each definition is fingerprinted (file contents, the file ids of a vector store,
+ * the whole assistant request) and looked up in a local {@link ResourceRegistry}; a registered id is
+ * checked against the API before being reused. It also keeps a warm pool of empty threads that
+ * sessions check out; the pooled threads are registered too, so they outlive the manager and are
+ * picked up again by the next run. It can garbage-collect resources that have not been used for a
+ * while; the resources handed out by a manager count as in use until it is closed, when their last
+ * use is recorded, so a long conversation never loses them to the collection. Creations are timed
+ * in a {@link MetricsRegistry}, including the polling of {@code vectorstores.createAndPoll}, and
+ * registry reuse is counted as {@code resources.reused}.
+ */
+public class AssistantResourceManager implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssistantResourceManager.class);
+
+    private static final Path DEFAULT_REGISTRY = Paths.get("target", "assistant-registry.json");
+    private static final int DEFAULT_THREAD_POOL_SIZE = 2;
+
+    private final SimpleOpenAI openAI;
+    private final ResourceRegistry registry;
+    private final int threadPoolSize;
+    private final Duration staleAfter;
+    private final ConcurrentLinkedDeque<String> warmThreads;
+    private final Set<CompletableFuture<Void>> replenishing;
+    private final Set<String> inUse;
+    private final ScheduledExecutorService scheduler;
+    private final MetricsRegistry metrics;
+    private boolean closed;
+
+    @Builder
+    public AssistantResourceManager(SimpleOpenAI openAI, Path registryFile, Integer threadPoolSize,
+            Duration staleAfter, Duration gcInterval, MetricsRegistry metrics) {
+        this.openAI = openAI;
+        this.metrics = metrics != null ? metrics : new MetricsRegistry();
+        this.registry = new ResourceRegistry(registryFile != null ? registryFile : DEFAULT_REGISTRY);
+        this.threadPoolSize = threadPoolSize != null ? threadPoolSize : DEFAULT_THREAD_POOL_SIZE;
+        this.staleAfter = staleAfter;
+        this.warmThreads = new ConcurrentLinkedDeque<>();
+        this.replenishing = ConcurrentHashMap.newKeySet();
+        this.inUse = ConcurrentHashMap.newKeySet();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("assistant-resources"));
+        restoreThreads();
+        for (int i = warmThreads.size(); i < this.threadPoolSize; i++) {
+            replenishThread();
+        }
+        if (staleAfter != null && gcInterval != null) {
+            scheduler.scheduleWithFixedDelay(this::collectGarbageQuietly, gcInterval.toMillis(),
+                    gcInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public String fileId(Path file) {
+        return reuseOrCreate("file:" + Fingerprint.ofFile(file), ResourceKind.FILE,
+                () -> metrics.time("files.create", () -> openAI.files()
+                        .create(FileRequest.builder()
+                                .file(file)
+                                .purpose(PurposeType.ASSISTANTS)
+                                .build()))
+                        .join()
+                        .getId());
+    }
+
+    public String vectorStoreId(List<String> fileIds) {
+        var fingerprint = "vector-store:"
+                + Fingerprint.ofText(fileIds.stream().sorted().collect(Collectors.joining(",")));
+        return reuseOrCreate(fingerprint, ResourceKind.VECTOR_STORE,
+                () -> metrics.timeBlocking("vectorstores.createAndPoll", () -> openAI.vectorStores()
+                        .createAndPoll(VectorStoreRequest.builder()
+                                .fileIds(fileIds)
+                                .build()))
+                        .getId());
+    }
+
+    public String assistantId(AssistantRequest assistantRequest) {
+        return reuseOrCreate("assistant:" + Fingerprint.ofObject(assistantRequest), ResourceKind.ASSISTANT,
+                () -> metrics.time("assistants.create", () -> openAI.assistants().create(assistantRequest))
+                        .join()
+                        .getId());
+    }
+
+    public String checkoutThread() {
+        var threadId = warmThreads.pollFirst();
+        if (threadId != null) {
+            registry.remove(threadFingerprint(threadId));
+        } else {
+            threadId = metrics.time("threads.create", () -> openAI.threads().create(ThreadRequest.builder().build()))
+                    .join()
+                    .getId();
+            logger.debug("Thread {} was created on demand.", threadId);
+        }
+        replenishThread();
+        return threadId;
+    }
+
+    public CompletableFuture<Void> releaseThread(String threadId) {
+        return openAI.threads().delete(threadId).thenAccept(deleted -> logger.debug("Thread {} was deleted.",
+                threadId));
+    }
+
+    public void collectGarbage() {
+        if (staleAfter == null) {
+            return;
+        }
+        var limit = System.currentTimeMillis() - staleAfter.toMillis();
+        registry.getEntries()
+                .stream()
+                .filter(entry -> entry.getLastUsedAt() < limit && !inUse.contains(entry.getId()))
+                .sorted(Comparator.comparing(entry -> -entry.getKind().ordinal()))
+                .filter(entry -> entry.getKind() != ResourceKind.THREAD || warmThreads.remove(entry.getId()))
+                .forEach(entry -> {
+                    delete(entry.getKind(), entry.getId());
+                    registry.remove(entry.getFingerprint());
+                    logger.debug("Stale {} {} was collected.", entry.getKind(), entry.getId());
+                });
+        for (int i = warmThreads.size(); i < threadPoolSize; i++) {
+            replenishThread();
+        }
+    }
+
+    /**
+     * Stops the garbage collection, records the last use of the resources handed out and waits for
+     * the warm threads being created. The warm threads are not deleted: they stay in the registry for
+     * the next run.
+     */
+    @Override
+    public void close() {
+        List<CompletableFuture<Void>> pending;
+        synchronized (this) {
+            closed = true;
+            pending = List.copyOf(replenishing);
+        }
+        scheduler.shutdownNow();
+        registry.getEntries()
+                .stream()
+                .filter(entry -> inUse.remove(entry.getId()))
+                .forEach(entry -> registry.touch(entry.getFingerprint()));
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).exceptionally(error -> null).join();
+        warmThreads.clear();
+    }
+
+    private String reuseOrCreate(String fingerprint, ResourceKind kind, Supplier<String> creator) {
+        var entry = registry.find(fingerprint);
+        if (entry.isPresent() && exists(kind, entry.get().getId())) {
+            registry.touch(fingerprint);
+            inUse.add(entry.get().getId());
+            metrics.increment("resources.reused");
+            logger.debug("{} {} was reused.", kind, entry.get().getId());
+            return entry.get().getId();
+        }
+        var id = creator.get();
+        registry.record(fingerprint, kind, id);
+        inUse.add(id);
+        logger.debug("{} {} was created.", kind, id);
+        return id;
+    }
+
+    private boolean exists(ResourceKind kind, String id) {
+        try {
+            switch (kind) {
+                case FILE:
+                    openAI.files().getOne(id).join();
+                    break;
+                case VECTOR_STORE:
+                    openAI.vectorStores().getOne(id).join();
+                    break;
+                case ASSISTANT:
+                    openAI.assistants().getOne(id).join();
+                    break;
+                case THREAD:
+                    openAI.threads().getOne(id).join();
+                    break;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void delete(ResourceKind kind, String id) {
+        try {
+            switch (kind) {
+                case FILE:
+                    openAI.files().delete(id).join();
+                    break;
+                case VECTOR_STORE:
+                    openAI.vectorStores().delete(id).join();
+                    break;
+                case ASSISTANT:
+                    openAI.assistants().delete(id).join();
+                    break;
+                case THREAD:
+                    openAI.threads().delete(id).join();
+                    break;
+            }
+        } catch (RuntimeException e) {
+            logger.debug("{} {} could not be deleted: {}", kind, id, e.getMessage());
+        }
+    }
+
+    /**
+     * Takes back the warm threads registered by earlier runs that still exist, up to the pool size,
+     * and deletes the rest.
+     */
+    private void restoreThreads() {
+        registry.getEntries()
+                .stream()
+                .filter(entry -> entry.getKind() == ResourceKind.THREAD)
+                .forEach(entry -> {
+                    if (warmThreads.size() < threadPoolSize && exists(ResourceKind.THREAD, entry.getId())) {
+                        registry.touch(entry.getFingerprint());
+                        warmThreads.addLast(entry.getId());
+                        metrics.increment("resources.reused");
+                        logger.debug("Warm thread {} was reused.", entry.getId());
+                    } else {
+                        delete(ResourceKind.THREAD, entry.getId());
+                        registry.remove(entry.getFingerprint());
+                    }
+                });
+    }
+
+    /**
+     * Starts creating a warm thread unless the pool, counting the threads being created, is full.
+     * The thread is registered before it joins the pool, so it is kept even if the manager is closed
+     * in the meantime.
+     */
+    private synchronized void replenishThread() {
+        if (closed || warmThreads.size() + replenishing.size() >= threadPoolSize) {
+            return;
+        }
+        var created = metrics.time("threads.create", () -> openAI.threads().create(ThreadRequest.builder().build()))
+                .thenAccept(thread -> {
+                    registry.record(threadFingerprint(thread.getId()), ResourceKind.THREAD, thread.getId());
+                    warmThreads.addLast(thread.getId());
+                })
+                .exceptionally(error -> {
+                    logger.debug("A warm thread could not be created: {}", error.getMessage());
+                    return null;
+                });
+        replenishing.add(created);
+        created.whenComplete((result, error) -> replenishing.remove(created));
+    }
+
+    private static String threadFingerprint(String threadId) {
+        return "thread:" + threadId;
+    }
+
+    private void collectGarbageQuietly() {
+        try {
+            collectGarbage();
+        } catch (RuntimeException e) {
+            logger.debug("Garbage collection of assistant resources failed: {}", e.getMessage());
+        }
+    }
+
+}
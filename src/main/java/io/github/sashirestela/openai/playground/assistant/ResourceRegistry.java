@@ -0,0 +1,112 @@
+package io.github.sashirestela.openai.playground.assistant;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Local JSON file that maps the fingerprint of a remote resource definition to the id of the
+ * resource created for it, so later runs can reuse it instead of creating it again.
+ */
+public class ResourceRegistry {
+
+    private final Path file;
+    private final Map<String, Entry> entries;
+
+    public ResourceRegistry(Path file) {
+        this.file = file;
+        this.entries = new LinkedHashMap<>();
+        load();
+    }
+
+    public synchronized Optional<Entry> find(String fingerprint) {
+        return Optional.ofNullable(entries.get(fingerprint));
+    }
+
+    public synchronized void record(String fingerprint, ResourceKind kind, String id) {
+        entries.put(fingerprint, new Entry(fingerprint, kind, id, System.currentTimeMillis()));
+        save();
+    }
+
+    public synchronized void touch(String fingerprint) {
+        var entry = entries.get(fingerprint);
+        if (entry != null) {
+            entry.setLastUsedAt(System.currentTimeMillis());
+            save();
+        }
+    }
+
+    public synchronized void remove(String fingerprint) {
+        if (entries.remove(fingerprint) != null) {
+            save();
+        }
+    }
+
+    public synchronized List<Entry> getEntries() {
+        List<Entry> copy = new ArrayList<>(entries.size());
+        entries.values().forEach(entry -> copy.add(
+                new Entry(entry.getFingerprint(), entry.getKind(), entry.getId(), entry.getLastUsedAt())));
+        return copy;
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            var json = Files.readString(file, StandardCharsets.UTF_8);
+            for (var entry : JsonUtil.jsonToList(json, Entry.class)) {
+                entries.put(entry.getFingerprint(), entry);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the resource registry " + file, e);
+        }
+    }
+
+    private void save() {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            var temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, JsonUtil.objectToJson(new ArrayList<>(entries.values())),
+                    StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the resource registry " + file, e);
+        }
+    }
+
+    public enum ResourceKind {
+        FILE,
+        VECTOR_STORE,
+        ASSISTANT,
+        THREAD;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+
+        private String fingerprint;
+        private ResourceKind kind;
+        private String id;
+        private long lastUsedAt;
+
+    }
+
+}
@@ -0,0 +1,202 @@
+package io.github.sashirestela.openai.playground.assistant;
+
+import io.github.sashirestela.cleverclient.Event;
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.common.content.ContentPart;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartTextAnnotation;
+import io.github.sashirestela.openai.domain.assistant.ThreadMessageDelta;
+import io.github.sashirestela.openai.domain.assistant.ThreadRun;
+import io.github.sashirestela.openai.domain.assistant.ThreadRun.RunStatus;
+import io.github.sashirestela.openai.domain.assistant.ThreadRunRequest;
+import io.github.sashirestela.openai.domain.assistant.ThreadRunSubmitOutputRequest;
+import io.github.sashirestela.openai.domain.assistant.ThreadRunSubmitOutputRequest.ToolOutput;
+import io.github.sashirestela.openai.domain.assistant.events.EventName;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+import io.github.sashirestela.openai.playground.tool.ParallelToolDispatcher;
+import lombok.Builder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.stream.Stream;
+
+/**
+ * Drives assistant runs as a loop of stream segments instead of recursion. Each segment drains one
+ * event stream (the run stream first, then every submit-tool-outputs stream) and ends in one of
+ * three states: the run requires action, the run reached a terminal status, or the stream ended
+ * without either. On requires action the stream is already closed when the tool calls are
+ * dispatched asynchronously and their outputs are submitted; the next segment is then scheduled on
+ * the executor, so long tool chains neither nest stack frames nor keep earlier streams open.
+ * Phases are recorded as {@code run.*} in a {@link MetricsRegistry}: the stream handshake, time to
+ * the first text delta, tool execution, tool output submission and the whole run, whose
+ * {@code run.duration.errors} count both the runs that failed with an exception and the runs that
+ * ended in a status other than completed.
+ */
+public class RunDriver {
+
+    private static final int DEFAULT_THREADS = 4;
+
+    private final SimpleOpenAI openAI;
+    private final ParallelToolDispatcher toolDispatcher;
+    private final Executor executor;
+    private final MetricsRegistry metrics;
+
+    @Builder
+    public RunDriver(SimpleOpenAI openAI, ParallelToolDispatcher toolDispatcher, Executor executor,
+            MetricsRegistry metrics) {
+        this.openAI = openAI;
+        this.toolDispatcher = toolDispatcher;
+        this.executor = executor != null ? executor
+                : Executors.newFixedThreadPool(DEFAULT_THREADS, new DaemonThreadFactory("run-driver"));
+        this.metrics = metrics != null ? metrics : new MetricsRegistry();
+    }
+
+    public RunHandle newRun(String threadId, ThreadRunRequest runRequest) {
+        return new RunHandle(this, threadId, runRequest,
+                new SubmissionPublisher<>(executor, Flow.defaultBufferSize()));
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    void start(RunHandle handle) {
+        handle.markStarted();
+        metrics.increment("run.duration.calls");
+        nextSegment(handle, metrics.time("run.stream.handshake",
+                () -> openAI.threadRuns().createStream(handle.getThreadId(), handle.getRunRequest())));
+    }
+
+    private void nextSegment(RunHandle handle, CompletableFuture<Stream<Event>> eventStream) {
+        eventStream.thenApplyAsync(stream -> drain(handle, stream), executor)
+                .thenCompose(segment -> {
+                    if (segment.state == SegmentState.REQUIRES_ACTION) {
+                        return submitToolOutputs(handle, segment.run).thenAccept(next -> nextSegment(handle,
+                                CompletableFuture.completedFuture(next)));
+                    }
+                    finish(handle, segment.run);
+                    return CompletableFuture.completedFuture(null);
+                })
+                .exceptionally(error -> {
+                    metrics.failed("run.duration", handle.getStartNanos());
+                    handle.fail(error);
+                    return null;
+                });
+    }
+
+    private void finish(RunHandle handle, ThreadRun run) {
+        if (run != null && run.getStatus() != RunStatus.COMPLETED) {
+            metrics.increment("run.duration.errors");
+            metrics.increment("run.status." + String.valueOf(run.getStatus()).toLowerCase());
+        }
+        if (run != null) {
+            metrics.recordUsage("run", run.getUsage());
+        }
+        metrics.recordSince("run.duration", handle.getStartNanos());
+        handle.complete(run);
+    }
+
+    private Segment drain(RunHandle handle, Stream<Event> stream) {
+        var segment = new Segment();
+        try (stream) {
+            var events = stream.iterator();
+            while (events.hasNext() && segment.state == SegmentState.STREAMING) {
+                var event = events.next();
+                switch (event.getName()) {
+                    case EventName.THREAD_MESSAGE_DELTA:
+                        var text = deltaText((ThreadMessageDelta) event.getData());
+                        if (!text.isEmpty()) {
+                            if (handle.markFirstText()) {
+                                metrics.recordSince("run.ttft", handle.getStartNanos());
+                            }
+                            handle.publishText(text);
+                        }
+                        break;
+                    case EventName.THREAD_RUN_CREATED:
+                        handle.publishStatus((ThreadRun) event.getData());
+                        break;
+                    case EventName.THREAD_RUN_REQUIRES_ACTION:
+                        segment.run = (ThreadRun) event.getData();
+                        segment.state = SegmentState.REQUIRES_ACTION;
+                        handle.publishStatus(segment.run);
+                        break;
+                    case EventName.THREAD_RUN_COMPLETED:
+                    case EventName.THREAD_RUN_INCOMPLETE:
+                    case EventName.THREAD_RUN_FAILED:
+                    case EventName.THREAD_RUN_CANCELLED:
+                    case EventName.THREAD_RUN_EXPIRED:
+                        segment.run = (ThreadRun) event.getData();
+                        segment.state = SegmentState.FINISHED;
+                        handle.publishStatus(segment.run);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        if (segment.state == SegmentState.STREAMING) {
+            segment.state = SegmentState.FINISHED;
+        }
+        return segment;
+    }
+
+    private CompletableFuture<Stream<Event>> submitToolOutputs(RunHandle handle, ThreadRun run) {
+        var toolCalls = run.getRequiredAction().getSubmitToolOutputs().getToolCalls();
+        return metrics.time("run.tools", () -> toolDispatcher.dispatch(toolCalls,
+                (toolCallId, result) -> ToolOutput.builder()
+                        .toolCallId(toolCallId)
+                        .output(result)
+                        .build()))
+                .thenCompose(toolOutputs -> metrics.time("run.submit.handshake", () -> openAI.threadRuns()
+                        .submitToolOutputStream(handle.getThreadId(), run.getId(),
+                                ThreadRunSubmitOutputRequest.builder()
+                                        .toolOutputs(toolOutputs)
+                                        .stream(true)
+                                        .build())));
+    }
+
+    /**
+     * @return the text carried by a message delta, or an empty string when it carries none.
+     */
+    public static String deltaText(ThreadMessageDelta messageDelta) {
+        var contents = messageDelta.getDelta().getContent();
+        if (contents == null || contents.isEmpty()) {
+            return "";
+        }
+        if (contents.size() == 1) {
+            return textOf(contents.get(0));
+        }
+        var text = new StringBuilder();
+        for (var content : contents) {
+            text.append(textOf(content));
+        }
+        return text.toString();
+    }
+
+    private static String textOf(ContentPart content) {
+        if (content instanceof ContentPartTextAnnotation) {
+            var text = ((ContentPartTextAnnotation) content).getText();
+            if (text != null && text.getValue() != null) {
+                return text.getValue();
+            }
+        }
+        return "";
+    }
+
+    private enum SegmentState {
+        STREAMING,
+        REQUIRES_ACTION,
+        FINISHED;
+    }
+
+    private static class Segment {
+
+        private SegmentState state = SegmentState.STREAMING;
+        private ThreadRun run;
+
+    }
+
+}
@@ -0,0 +1,122 @@
+package io.github.sashirestela.openai.playground.assistant;
+
+import io.github.sashirestela.openai.domain.assistant.ThreadRun;
+import io.github.sashirestela.openai.domain.assistant.ThreadRunRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+
+/**
+ * One assistant run prepared by a {@link RunDriver}. Subscribe to the text deltas and register a
+ * status listener before calling {@link #start()}, since deltas are not replayed to late
+ * subscribers.
+ */
+public class RunHandle {
+
+    private final RunDriver driver;
+    private final String threadId;
+    private final ThreadRunRequest runRequest;
+    private final SubmissionPublisher<String> textDeltas;
+    private final CompletableFuture<ThreadRun> completion;
+    private final StringBuilder text;
+    private Consumer<ThreadRun> statusListener;
+    private boolean started;
+    private volatile long startNanos;
+    private volatile boolean firstTextSeen;
+
+    RunHandle(RunDriver driver, String threadId, ThreadRunRequest runRequest,
+            SubmissionPublisher<String> textDeltas) {
+        this.driver = driver;
+        this.threadId = threadId;
+        this.runRequest = runRequest;
+        this.textDeltas = textDeltas;
+        this.completion = new CompletableFuture<>();
+        this.text = new StringBuilder();
+        this.statusListener = run -> {
+        };
+    }
+
+    public Flow.Publisher<String> getTextDeltas() {
+        return textDeltas;
+    }
+
+    public CompletableFuture<Void> consumeText(Consumer<String> consumer) {
+        return textDeltas.consume(consumer);
+    }
+
+    public RunHandle onStatus(Consumer<ThreadRun> listener) {
+        this.statusListener = listener;
+        return this;
+    }
+
+    public synchronized CompletableFuture<ThreadRun> start() {
+        if (!started) {
+            started = true;
+            driver.start(this);
+        }
+        return completion;
+    }
+
+    public CompletableFuture<ThreadRun> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * @return the whole text of the run once it has finished.
+     */
+    public CompletableFuture<String> getText() {
+        return completion.thenApply(run -> {
+            synchronized (text) {
+                return text.toString();
+            }
+        });
+    }
+
+    public String getThreadId() {
+        return threadId;
+    }
+
+    void markStarted() {
+        startNanos = System.nanoTime();
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    boolean markFirstText() {
+        if (firstTextSeen) {
+            return false;
+        }
+        firstTextSeen = true;
+        return true;
+    }
+
+    ThreadRunRequest getRunRequest() {
+        return runRequest;
+    }
+
+    void publishText(String delta) {
+        synchronized (text) {
+            text.append(delta);
+        }
+        textDeltas.submit(delta);
+    }
+
+    void publishStatus(ThreadRun run) {
+        statusListener.accept(run);
+    }
+
+    void complete(ThreadRun run) {
+        textDeltas.close();
+        completion.complete(run);
+    }
+
+    void fail(Throwable error) {
+        textDeltas.closeExceptionally(error);
+        completion.completeExceptionally(error);
+    }
+
+}
@@ -0,0 +1,449 @@
+package io.github.sashirestela.openai.playground.batch;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.domain.batch.Batch;
+import io.github.sashirestela.openai.domain.batch.BatchRequest;
+import io.github.sashirestela.openai.domain.batch.BatchRequest.CompletionWindowType;
+import io.github.sashirestela.openai.domain.batch.EndpointType;
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.domain.file.FileRequest;
+import io.github.sashirestela.openai.domain.file.FileRequest.PurposeType;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.support.AsyncLimiter;
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Front-end for bulk chat completions. Requests handed to {@link #submit(ChatRequest)} are grouped
+ * until {@code maxBatchSize} of them are waiting or the oldest has waited {@code maxLinger}. A group
+ * of at least {@code minBatchSize} requests is written as a JSONL file, uploaded through
+ * {@code files()} and run through {@code batches()}, and every line of the output is routed back
+ * to the future of its request. Smaller groups, groups whose batch cannot be created, and the
+ * requests left unanswered by an expired or cancelled batch are sent as direct chat completion
+ * calls, at most {@code maxConcurrency} at a time. A batch that was created but cannot be followed
+ * to its end, because polling or reading its output fails, is cancelled before its unanswered
+ * requests are sent directly. The remote input and output files are deleted however the batch
+ * ends. Batch status is polled with adaptive backoff: the interval doubles up to
+ * {@code maxPollInterval} while the batch makes no progress and drops back to
+ * {@code initialPollInterval} when it does. Counts and timings go to a {@link MetricsRegistry}
+ * under {@code batch.*}. Closing sends what is pending and waits for the batches in flight,
+ * including the deletion of their files.
+ */
+public class ChatBatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatBatcher.class);
+
+    private static final int DEFAULT_MIN_BATCH_SIZE = 100;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 50_000;
+    private static final Duration DEFAULT_MAX_LINGER = Duration.ofSeconds(1);
+    private static final Duration DEFAULT_INITIAL_POLL_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_MAX_POLL_INTERVAL = Duration.ofMinutes(1);
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final Set<String> TERMINAL_STATUSES = Set.of("completed", "failed", "expired", "cancelled");
+    private static final Set<String> STREAMING_FIELDS = Set.of("stream", "stream_options");
+
+    private final SimpleOpenAI openAI;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final Duration maxLinger;
+    private final long initialPollMillis;
+    private final long maxPollMillis;
+    private final Path directory;
+    private final boolean keepFiles;
+    private final AsyncLimiter limiter;
+    private final ScheduledExecutorService scheduler;
+    private final MetricsRegistry metrics;
+    private final AtomicLong batchSequence;
+    private final Set<CompletableFuture<?>> batchesInFlight;
+
+    private List<PendingRequest> pending;
+    private long generation;
+
+    @Builder
+    public ChatBatcher(SimpleOpenAI openAI, Integer minBatchSize, Integer maxBatchSize, Duration maxLinger,
+            Duration initialPollInterval, Duration maxPollInterval, Integer maxConcurrency, Path directory,
+            Boolean keepFiles, MetricsRegistry metrics) {
+        this.openAI = openAI;
+        this.minBatchSize = minBatchSize != null ? minBatchSize : DEFAULT_MIN_BATCH_SIZE;
+        this.maxBatchSize = maxBatchSize != null ? maxBatchSize : DEFAULT_MAX_BATCH_SIZE;
+        this.maxLinger = maxLinger != null ? maxLinger : DEFAULT_MAX_LINGER;
+        this.initialPollMillis = (initialPollInterval != null ? initialPollInterval : DEFAULT_INITIAL_POLL_INTERVAL)
+                .toMillis();
+        this.maxPollMillis = (maxPollInterval != null ? maxPollInterval : DEFAULT_MAX_POLL_INTERVAL).toMillis();
+        this.directory = directory;
+        this.keepFiles = Boolean.TRUE.equals(keepFiles);
+        this.limiter = new AsyncLimiter(maxConcurrency != null ? maxConcurrency : DEFAULT_MAX_CONCURRENCY);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("chat-batcher"));
+        this.metrics = metrics != null ? metrics : new MetricsRegistry();
+        this.batchSequence = new AtomicLong();
+        this.batchesInFlight = ConcurrentHashMap.newKeySet();
+        this.pending = new ArrayList<>();
+    }
+
+    public CompletableFuture<Chat> submit(ChatRequest chatRequest) {
+        var request = new PendingRequest(chatRequest);
+        List<PendingRequest> full = null;
+        synchronized (this) {
+            pending.add(request);
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            } else if (pending.size() == 1) {
+                var scheduledGeneration = generation;
+                scheduler.schedule(() -> flush(scheduledGeneration), maxLinger.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return request.result;
+    }
+
+    /**
+     * Submits all the requests and sends them at once, without waiting for {@code maxLinger}.
+     *
+     * @return the answers in the order of the requests
+     */
+    public CompletableFuture<List<Chat>> submitAll(List<ChatRequest> chatRequests) {
+        List<CompletableFuture<Chat>> results = new ArrayList<>(chatRequests.size());
+        for (var chatRequest : chatRequests) {
+            results.add(submit(chatRequest));
+        }
+        flush();
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> {
+                    List<Chat> chats = new ArrayList<>(results.size());
+                    for (var result : results) {
+                        chats.add(result.join());
+                    }
+                    return chats;
+                });
+    }
+
+    public void flush() {
+        List<PendingRequest> group;
+        synchronized (this) {
+            group = takePending();
+        }
+        dispatch(group);
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        flush();
+        CompletableFuture.allOf(batchesInFlight.toArray(new CompletableFuture<?>[0])).join();
+        scheduler.shutdown();
+    }
+
+    private void flush(long scheduledGeneration) {
+        List<PendingRequest> group;
+        synchronized (this) {
+            if (scheduledGeneration != generation) {
+                return;
+            }
+            group = takePending();
+        }
+        dispatch(group);
+    }
+
+    private List<PendingRequest> takePending() {
+        var group = pending;
+        pending = new ArrayList<>();
+        generation++;
+        return group;
+    }
+
+    private void dispatch(List<PendingRequest> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        if (group.size() < minBatchSize) {
+            sendDirectly(group);
+        } else {
+            sendAsBatch(group);
+        }
+    }
+
+    private void sendDirectly(List<PendingRequest> group) {
+        metrics.add("batch.direct", group.size());
+        for (var request : group) {
+            limiter.submit(() -> metrics.time("batch.direct.create",
+                    () -> openAI.chatCompletions().create(request.chatRequest)))
+                    .whenComplete((chat, error) -> {
+                        if (error != null) {
+                            request.result.completeExceptionally(unwrap(error));
+                        } else {
+                            request.result.complete(chat);
+                        }
+                    });
+        }
+    }
+
+    private void sendAsBatch(List<PendingRequest> group) {
+        var start = System.nanoTime();
+        Map<String, PendingRequest> byCustomId = new HashMap<>();
+        Path input;
+        try {
+            input = writeInput(group, byCustomId);
+        } catch (UncheckedIOException e) {
+            logger.warn("Cannot write the batch input, sending {} requests directly.", group.size(), e);
+            sendDirectly(group);
+            return;
+        }
+        metrics.increment("batch.batches");
+        metrics.add("batch.requests", group.size());
+        var done = new CompletableFuture<Void>();
+        batchesInFlight.add(done);
+        var inputFileId = new AtomicReference<String>();
+        var created = new AtomicReference<Batch>();
+        metrics.time("batch.upload", () -> openAI.files()
+                .create(FileRequest.builder()
+                        .file(input)
+                        .purpose(PurposeType.BATCH)
+                        .build()))
+                .thenCompose(file -> {
+                    inputFileId.set(file.getId());
+                    return openAI.batches()
+                            .create(BatchRequest.builder()
+                                    .inputFileId(file.getId())
+                                    .endpoint(EndpointType.CHAT_COMPLETIONS)
+                                    .completionWindow(CompletionWindowType.T24H)
+                                    .build());
+                })
+                .whenComplete((batch, error) -> {
+                    deleteQuietly(input);
+                    created.set(batch);
+                })
+                .thenCompose(batch -> poll(batch.getId(), initialPollMillis, -1))
+                .thenCompose(batch -> {
+                    created.set(batch);
+                    return collect(batch, byCustomId).thenApply(collected -> batch);
+                })
+                .handle((batch, error) -> {
+                    if (error == null) {
+                        metrics.recordSince("batch.duration", start);
+                        finish(batch, unanswered(group));
+                        return CompletableFuture.<Batch>completedFuture(batch);
+                    }
+                    metrics.increment("batch.fallbacks");
+                    if (created.get() == null) {
+                        var unanswered = unanswered(group);
+                        logger.warn("The batch could not be created, sending {} requests directly.",
+                                unanswered.size(), unwrap(error));
+                        sendDirectly(unanswered);
+                        return CompletableFuture.<Batch>completedFuture(null);
+                    }
+                    // The batch exists and keeps running remotely, so it is cancelled before its requests
+                    // are sent again, or they would be answered and billed twice.
+                    var batchId = created.get().getId();
+                    return openAI.batches().cancel(batchId).handle((cancelled, cancelError) -> {
+                        var unanswered = unanswered(group);
+                        if (cancelError != null) {
+                            logger.warn("Cannot cancel batch {}; it is left to finish on its own.", batchId,
+                                    unwrap(cancelError));
+                        }
+                        logger.warn("Batch {} could not be followed, sending {} requests directly.", batchId,
+                                unanswered.size(), unwrap(error));
+                        sendDirectly(unanswered);
+                        return cancelled != null ? cancelled : created.get();
+                    });
+                })
+                .thenCompose(stage -> stage)
+                .handle((batch, error) -> keepFiles ? CompletableFuture.<Void>completedFuture(null)
+                        : deleteRemoteFiles(inputFileId.get(), batch))
+                .thenCompose(deleted -> deleted)
+                .whenComplete((deleted, error) -> {
+                    batchesInFlight.remove(done);
+                    done.complete(null);
+                });
+    }
+
+    private Path writeInput(List<PendingRequest> group, Map<String, PendingRequest> byCustomId) {
+        var sequence = batchSequence.incrementAndGet();
+        try {
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            var file = directory != null
+                    ? directory.resolve("chat-batch-" + sequence + ".jsonl")
+                    : Files.createTempFile("chat-batch-" + sequence + "-", ".jsonl");
+            try (var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < group.size(); i++) {
+                    var customId = "request-" + sequence + "-" + i;
+                    byCustomId.put(customId, group.get(i));
+                    var body = JsonUtil.objectToMap(group.get(i).chatRequest);
+                    body.keySet().removeAll(STREAMING_FIELDS);
+                    writer.write(JsonUtil.objectToJson(Map.of("custom_id", customId, "method", "POST",
+                            "url", "/v1/chat/completions", "body", body)));
+                    writer.newLine();
+                }
+            }
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the input of batch " + sequence, e);
+        }
+    }
+
+    private CompletableFuture<Batch> poll(String batchId, long intervalMillis, int lastCompleted) {
+        metrics.increment("batch.polls");
+        return openAI.batches().getOne(batchId).thenCompose(batch -> {
+            if (TERMINAL_STATUSES.contains(batch.getStatus())) {
+                return CompletableFuture.completedFuture(batch);
+            }
+            var counts = batch.getRequestCounts();
+            var completed = counts != null && counts.getCompleted() != null ? counts.getCompleted() : 0;
+            var progressed = completed > lastCompleted || "finalizing".equals(batch.getStatus());
+            var nextInterval = progressed ? initialPollMillis : Math.min(maxPollMillis, intervalMillis * 2);
+            logger.debug("Batch {} is {} with {} requests completed, polling again in {} ms.", batchId,
+                    batch.getStatus(), completed, nextInterval);
+            var next = new CompletableFuture<Batch>();
+            scheduler.schedule(() -> poll(batchId, nextInterval, completed).whenComplete((result, error) -> {
+                if (error != null) {
+                    next.completeExceptionally(unwrap(error));
+                } else {
+                    next.complete(result);
+                }
+            }), nextInterval, TimeUnit.MILLISECONDS);
+            return next;
+        });
+    }
+
+    private CompletableFuture<Void> collect(Batch batch, Map<String, PendingRequest> byCustomId) {
+        var output = batch.getOutputFileId() != null
+                ? openAI.files().getContent(batch.getOutputFileId()).thenAccept(content -> demultiplex(content,
+                        byCustomId))
+                : CompletableFuture.<Void>completedFuture(null);
+        var errors = batch.getErrorFileId() != null
+                ? openAI.files().getContent(batch.getErrorFileId()).thenAccept(content -> demultiplex(content,
+                        byCustomId))
+                : CompletableFuture.<Void>completedFuture(null);
+        return CompletableFuture.allOf(output, errors);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void demultiplex(String content, Map<String, PendingRequest> byCustomId) {
+        for (var line : content.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            var item = JsonUtil.jsonToObject(line, Map.class);
+            var request = byCustomId.get(String.valueOf(item.get("custom_id")));
+            if (request == null) {
+                continue;
+            }
+            var response = (Map<String, Object>) item.get("response");
+            var statusCode = response != null ? response.get("status_code") : null;
+            if (statusCode instanceof Number && ((Number) statusCode).intValue() == 200) {
+                request.result.complete(JsonUtil.jsonToObject(JsonUtil.objectToJson(response.get("body")),
+                        Chat.class));
+            } else {
+                metrics.increment("batch.errors");
+                var error = item.get("error") != null ? item.get("error")
+                        : response != null ? response.get("body") : null;
+                request.result.completeExceptionally(new IllegalStateException("The batched request "
+                        + item.get("custom_id") + " failed with status " + statusCode + ": " + error));
+            }
+        }
+    }
+
+    private void finish(Batch batch, List<PendingRequest> unanswered) {
+        if (unanswered.isEmpty()) {
+            return;
+        }
+        if (batch.getStatus().equals("expired") || batch.getStatus().equals("cancelled")) {
+            logger.info("Batch {} was {}, sending {} unanswered requests directly.", batch.getId(),
+                    batch.getStatus(), unanswered.size());
+            sendDirectly(unanswered);
+            return;
+        }
+        var failure = new IllegalStateException("Batch " + batch.getId() + " ended as " + batch.getStatus()
+                + " without an answer for this request" + (batch.getErrors() != null
+                        ? ": " + batch.getErrors().getData()
+                        : "."));
+        for (var request : unanswered) {
+            request.result.completeExceptionally(failure);
+        }
+    }
+
+    private CompletableFuture<Void> deleteRemoteFiles(String inputFileId, Batch batch) {
+        var fileIds = new HashSet<String>();
+        fileIds.add(inputFileId);
+        if (batch != null) {
+            fileIds.add(batch.getInputFileId());
+            fileIds.add(batch.getOutputFileId());
+            fileIds.add(batch.getErrorFileId());
+        }
+        fileIds.remove(null);
+        List<CompletableFuture<?>> deletions = new ArrayList<>(fileIds.size());
+        for (var fileId : fileIds) {
+            deletions.add(openAI.files().delete(fileId).exceptionally(error -> {
+                logger.debug("Cannot delete the batch file {}.", fileId, error);
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(deletions.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private static List<PendingRequest> unanswered(List<PendingRequest> group) {
+        List<PendingRequest> unanswered = new ArrayList<>();
+        for (var request : group) {
+            if (!request.result.isDone()) {
+                unanswered.add(request);
+            }
+        }
+        return unanswered;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Cannot delete the batch input {}.", file, e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static class PendingRequest {
+
+        private final ChatRequest chatRequest;
+        private final CompletableFuture<Chat> result;
+
+        PendingRequest(ChatRequest chatRequest) {
+            this.chatRequest = chatRequest;
+            this.result = new CompletableFuture<>();
+        }
+
+    }
+
+}
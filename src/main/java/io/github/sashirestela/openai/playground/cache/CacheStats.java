@@ -0,0 +1,70 @@
+package io.github.sashirestela.openai.playground.cache;
+
+/**
+ * Point-in-time view of the counters of a {@link ChatResponseCache}.
+ */
+public class CacheStats {
+
+    private final long hits;
+    private final long diskHits;
+    private final long misses;
+    private final long coalesced;
+    private final long evictions;
+    private final long hitNanos;
+    private final long missNanos;
+
+    CacheStats(long hits, long diskHits, long misses, long coalesced, long evictions, long hitNanos,
+            long missNanos) {
+        this.hits = hits;
+        this.diskHits = diskHits;
+        this.misses = misses;
+        this.coalesced = coalesced;
+        this.evictions = evictions;
+        this.hitNanos = hitNanos;
+        this.missNanos = missNanos;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getDiskHits() {
+        return diskHits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Requests that shared the upstream call of an identical miss already in flight.
+     */
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double getHitRatio() {
+        var requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    public double getAverageHitMillis() {
+        return hits == 0 ? 0.0 : hitNanos / 1_000_000.0 / hits;
+    }
+
+    public double getAverageMissMillis() {
+        return misses == 0 ? 0.0 : missNanos / 1_000_000.0 / misses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats(hits=%d, diskHits=%d, misses=%d, coalesced=%d, evictions=%d, "
+                + "hitRatio=%.3f, avgHitMillis=%.3f, avgMissMillis=%.3f)", hits, diskHits, misses, coalesced,
+                evictions, getHitRatio(), getAverageHitMillis(), getAverageMissMillis());
+    }
+
+}
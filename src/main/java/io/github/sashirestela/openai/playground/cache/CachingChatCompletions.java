@@ -0,0 +1,278 @@
+package io.github.sashirestela.openai.playground.cache;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.OpenAI;
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Chat completions service that answers repeated deterministic requests from a
+ * {@link ChatResponseCache}. A streamed response is recorded chunk by chunk while the caller drains
+ * it and is stored only if the stream was consumed to the end; a hit replays the recorded chunks as
+ * a {@code Stream<Chat>}, so stream consumers do not change. Cached responses are decoded straight
+ * from the buffers of the cache. A request that misses while an identical one is already on its way
+ * upstream shares that call instead of sending its own: the answer of a blocking call, or the
+ * chunks of a stream as they are recorded. A miss is timed until its answer is complete, for streams
+ * until upstream is drained. By default only requests with temperature 0 are cached.
+ */
+public class CachingChatCompletions implements OpenAI.ChatCompletions {
+
+    private static final byte NEW_LINE = '\n';
+    private static final ObjectReader CHAT_READER = new ObjectMapper().readerFor(Chat.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final OpenAI.ChatCompletions delegate;
+    private final ChatResponseCache cache;
+    private final Predicate<ChatRequest> cacheable;
+    private final ConcurrentHashMap<String, CompletableFuture<Chat>> pendingChats;
+    private final ConcurrentHashMap<String, CompletableFuture<Recording>> pendingStreams;
+
+    public CachingChatCompletions(OpenAI.ChatCompletions delegate, ChatResponseCache cache) {
+        this(delegate, cache, CachingChatCompletions::isDeterministic);
+    }
+
+    public CachingChatCompletions(OpenAI.ChatCompletions delegate, ChatResponseCache cache,
+            Predicate<ChatRequest> cacheable) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.cacheable = cacheable;
+        this.pendingChats = new ConcurrentHashMap<>();
+        this.pendingStreams = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public CompletableFuture<Chat> create(ChatRequest chatRequest) {
+        if (!cacheable.test(chatRequest)) {
+            return delegate.create(chatRequest);
+        }
+        var start = System.nanoTime();
+        var key = "chat-" + ChatCacheKey.of(chatRequest);
+        var cached = cache.get(key);
+        if (cached != null) {
+            var chat = decode(cached);
+            cache.recordHit(System.nanoTime() - start);
+            return CompletableFuture.completedFuture(chat);
+        }
+        var pending = new CompletableFuture<Chat>();
+        var shared = pendingChats.putIfAbsent(key, pending);
+        if (shared != null) {
+            cache.recordCoalesced();
+            return shared;
+        }
+        delegate.create(chatRequest).whenComplete((chat, error) -> {
+            if (error == null) {
+                cache.put(key, JsonUtil.objectToJson(chat).getBytes(StandardCharsets.UTF_8));
+                cache.recordMiss(System.nanoTime() - start);
+            }
+            pendingChats.remove(key, pending);
+            if (error == null) {
+                pending.complete(chat);
+            } else {
+                pending.completeExceptionally(error);
+            }
+        });
+        return pending;
+    }
+
+    @Override
+    public CompletableFuture<Stream<Chat>> createStream(ChatRequest chatRequest) {
+        if (!cacheable.test(chatRequest)) {
+            return delegate.createStream(chatRequest);
+        }
+        var start = System.nanoTime();
+        var key = "stream-" + ChatCacheKey.of(chatRequest);
+        var cached = cache.get(key);
+        if (cached != null) {
+            cache.recordHit(System.nanoTime() - start);
+            return CompletableFuture.completedFuture(replay(cached));
+        }
+        var pending = new CompletableFuture<Recording>();
+        var shared = pendingStreams.putIfAbsent(key, pending);
+        if (shared != null) {
+            cache.recordCoalesced();
+            return shared.thenCompose(recording -> {
+                var reader = recording.newReader();
+                return reader != null ? CompletableFuture.completedFuture(reader) : createStream(chatRequest);
+            });
+        }
+        var leader = new CompletableFuture<Stream<Chat>>();
+        delegate.createStream(chatRequest).whenComplete((stream, error) -> {
+            if (error != null) {
+                pendingStreams.remove(key, pending);
+                pending.completeExceptionally(error);
+                leader.completeExceptionally(error);
+            } else {
+                var recording = new Recording(key, stream, start, pending);
+                leader.complete(recording.newReader());
+                pending.complete(recording);
+            }
+        });
+        return leader;
+    }
+
+    @Override
+    public CompletableFuture<Chat> createPrimitive(ChatRequest chatRequest) {
+        return delegate.createPrimitive(chatRequest);
+    }
+
+    @Override
+    public CompletableFuture<Stream<Chat>> createStreamPrimitive(ChatRequest chatRequest) {
+        return delegate.createStreamPrimitive(chatRequest);
+    }
+
+    public ChatResponseCache getCache() {
+        return cache;
+    }
+
+    public static boolean isDeterministic(ChatRequest chatRequest) {
+        var temperature = chatRequest.getTemperature();
+        var choices = chatRequest.getN();
+        return temperature != null && temperature == 0.0 && (choices == null || choices == 1);
+    }
+
+    private static Chat decode(ByteBuffer recorded) {
+        try {
+            return CHAT_READER.readValue(new ByteBufferBackedInputStream(recorded));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode a cached chat response", e);
+        }
+    }
+
+    private static Stream<Chat> replay(ByteBuffer recorded) {
+        try {
+            var chunks = CHAT_READER.<Chat>readValues(new ByteBufferBackedInputStream(recorded));
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode a cached chat stream", e);
+        }
+    }
+
+    /**
+     * A streamed miss shared by every identical request made while it is being recorded. Each
+     * request reads the recorded chunks through its own stream, and whichever reader gets ahead
+     * pulls the next chunk from upstream, so no reader waits for another to consume. The recording is
+     * stored once upstream is drained; if every reader closes before that, it is dropped.
+     */
+    private class Recording {
+
+        private final String key;
+        private final Stream<Chat> stream;
+        private final Spliterator<Chat> source;
+        private final long start;
+        private final CompletableFuture<Recording> pending;
+        private final List<Chat> chunks;
+        private final ByteArrayOutputStream bytes;
+        private int readers;
+        private boolean drained;
+        private boolean abandoned;
+        private RuntimeException failure;
+
+        Recording(String key, Stream<Chat> stream, long start, CompletableFuture<Recording> pending) {
+            this.key = key;
+            this.stream = stream;
+            this.source = stream.spliterator();
+            this.start = start;
+            this.pending = pending;
+            this.chunks = new ArrayList<>();
+            this.bytes = new ByteArrayOutputStream();
+        }
+
+        /**
+         * A stream over the recording, or null if every reader has already abandoned it.
+         */
+        synchronized Stream<Chat> newReader() {
+            if (abandoned) {
+                return null;
+            }
+            readers++;
+            var spliterator = new Spliterators.AbstractSpliterator<Chat>(Long.MAX_VALUE, Spliterator.ORDERED) {
+
+                private int next;
+                private boolean closed;
+
+                @Override
+                public boolean tryAdvance(Consumer<? super Chat> action) {
+                    var chunk = chunk(next);
+                    if (chunk == null) {
+                        close();
+                        return false;
+                    }
+                    next++;
+                    action.accept(chunk);
+                    return true;
+                }
+
+                void close() {
+                    if (!closed) {
+                        closed = true;
+                        release();
+                    }
+                }
+
+            };
+            return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+        }
+
+        private synchronized Chat chunk(int index) {
+            while (index >= chunks.size() && !drained) {
+                if (failure != null) {
+                    throw failure;
+                }
+                try {
+                    if (!source.tryAdvance(this::append)) {
+                        drained = true;
+                        cache.put(key, bytes.toByteArray());
+                        cache.recordMiss(System.nanoTime() - start);
+                        pendingStreams.remove(key, pending);
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                    pendingStreams.remove(key, pending);
+                    throw e;
+                }
+            }
+            return index < chunks.size() ? chunks.get(index) : null;
+        }
+
+        private void append(Chat chunk) {
+            chunks.add(chunk);
+            bytes.writeBytes(JsonUtil.objectToJson(chunk).getBytes(StandardCharsets.UTF_8));
+            bytes.write(NEW_LINE);
+        }
+
+        private synchronized void release() {
+            if (--readers > 0) {
+                return;
+            }
+            abandoned = true;
+            if (!drained) {
+                // Abandoned by every reader: later identical requests go upstream again.
+                pendingStreams.remove(key, pending);
+                cache.recordMiss(System.nanoTime() - start);
+            }
+            stream.close();
+        }
+
+    }
+
+}
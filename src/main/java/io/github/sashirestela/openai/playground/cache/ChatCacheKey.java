@@ -0,0 +1,29 @@
+package io.github.sashirestela.openai.playground.cache;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.support.Fingerprint;
+
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Canonical cache key of a chat request: the SHA-256 of its JSON with map keys sorted, leaving out
+ * the fields that do not change the answer (the streaming flag, user, metadata and store). The
+ * stream options stay in the key: {@code include_usage} adds a final usage chunk to the stream, and
+ * a replayed stream must have it exactly when the request asked for it.
+ */
+public final class ChatCacheKey {
+
+    private static final Set<String> IGNORED_FIELDS = Set.of("stream", "user", "metadata", "store");
+
+    private ChatCacheKey() {
+    }
+
+    public static String of(ChatRequest chatRequest) {
+        var fields = new TreeMap<String, Object>(JsonUtil.objectToMap(chatRequest));
+        fields.keySet().removeAll(IGNORED_FIELDS);
+        return Fingerprint.ofMap(fields);
+    }
+
+}
@@ -0,0 +1,162 @@
+package io.github.sashirestela.openai.playground.cache;
+
+import lombok.Builder;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two tier store of serialized chat responses. The first tier is an in-memory LRU bounded by the
+ * total size of its values; entries pushed out of it are spilled to an optional
+ * {@link DiskCacheStore} and promoted back on a disk hit. Values are handed out as read-only
+ * buffers, and a promoted entry keeps the mapping of its file instead of a heap copy. An optional
+ * time to live is counted from the first store of an entry, across both tiers, and an expired entry
+ * is dropped when it is looked up.
+ */
+public class ChatResponseCache {
+
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    private static final long DEFAULT_MAX_DISK_BYTES = 512L * 1024 * 1024;
+
+    private final long maxBytes;
+    private final Duration ttl;
+    private final LinkedHashMap<String, Stored> entries;
+    private final DiskCacheStore diskStore;
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder hitNanos = new LongAdder();
+    private final LongAdder missNanos = new LongAdder();
+
+    @Builder
+    public ChatResponseCache(Long maxBytes, Path diskDirectory, Long maxDiskBytes, Duration ttl) {
+        this.maxBytes = maxBytes != null ? maxBytes : DEFAULT_MAX_BYTES;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true);
+        this.diskStore = diskDirectory != null
+                ? new DiskCacheStore(diskDirectory, maxDiskBytes != null ? maxDiskBytes : DEFAULT_MAX_DISK_BYTES)
+                : null;
+    }
+
+    public ByteBuffer get(String key) {
+        Stored stored;
+        synchronized (this) {
+            stored = entries.get(key);
+            if (stored != null && !isExpired(stored.storedAt)) {
+                return stored.value.asReadOnlyBuffer();
+            }
+        }
+        if (stored != null) {
+            // The copy on disk, if any, was stored at the same time.
+            invalidate(key);
+            return null;
+        }
+        if (diskStore != null) {
+            var value = diskStore.get(key);
+            if (value != null) {
+                var storedAt = diskStore.getStoredAt(key);
+                if (isExpired(storedAt)) {
+                    invalidate(key);
+                    return null;
+                }
+                diskHits.increment();
+                putInMemory(key, new Stored(value, storedAt));
+                return value.asReadOnlyBuffer();
+            }
+        }
+        return null;
+    }
+
+    public void put(String key, byte[] value) {
+        putInMemory(key, new Stored(ByteBuffer.wrap(value), System.currentTimeMillis()));
+    }
+
+    public void invalidate(String key) {
+        synchronized (this) {
+            var previous = entries.remove(key);
+            if (previous != null) {
+                totalBytes -= previous.value.remaining();
+            }
+        }
+        if (diskStore != null) {
+            diskStore.remove(key);
+        }
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), diskHits.sum(), misses.sum(), coalesced.sum(), evictions.sum(),
+                hitNanos.sum(), missNanos.sum());
+    }
+
+    void recordHit(long nanos) {
+        hits.increment();
+        hitNanos.add(nanos);
+    }
+
+    void recordMiss(long nanos) {
+        misses.increment();
+        missNanos.add(nanos);
+    }
+
+    void recordCoalesced() {
+        coalesced.increment();
+    }
+
+    private boolean isExpired(long storedAt) {
+        return ttl != null && System.currentTimeMillis() - storedAt >= ttl.toMillis();
+    }
+
+    private void putInMemory(String key, Stored stored) {
+        if (stored.value.remaining() > maxBytes) {
+            if (diskStore != null && !(stored.value instanceof MappedByteBuffer)) {
+                diskStore.put(key, stored.value, stored.storedAt);
+            }
+            return;
+        }
+        List<Map.Entry<String, Stored>> spilled = new ArrayList<>();
+        synchronized (this) {
+            var previous = entries.put(key, stored);
+            totalBytes += stored.value.remaining() - (previous != null ? previous.value.remaining() : 0);
+            var iterator = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                var eldest = iterator.next();
+                iterator.remove();
+                totalBytes -= eldest.getValue().value.remaining();
+                evictions.increment();
+                spilled.add(Map.entry(eldest.getKey(), eldest.getValue()));
+            }
+        }
+        if (diskStore != null) {
+            // A promoted entry is still on disk unless the disk tier has evicted it since.
+            spilled.stream()
+                    .filter(entry -> !(entry.getValue().value instanceof MappedByteBuffer)
+                            || !diskStore.contains(entry.getKey()))
+                    .forEach(entry -> diskStore.put(entry.getKey(), entry.getValue().value,
+                            entry.getValue().storedAt));
+        }
+    }
+
+    private static class Stored {
+
+        private final ByteBuffer value;
+        private final long storedAt;
+
+        Stored(ByteBuffer value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+
+    }
+
+}
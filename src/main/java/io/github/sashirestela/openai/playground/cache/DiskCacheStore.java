@@ -0,0 +1,144 @@
+package io.github.sashirestela.openai.playground.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Second cache tier: one file per entry in a directory, read back as a read-only memory-mapped
+ * buffer that callers decode in place, so a hit does not copy the entry onto the heap. The total
+ * size on disk is bounded and the least recently used files are deleted first. Entries written by
+ * earlier runs are picked up on start, oldest first, and trimmed to the bound. The modification time
+ * of a file is the time its entry was first stored, which survives spills and restarts.
+ */
+public class DiskCacheStore {
+
+    private static final String SUFFIX = ".cache";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> entries;
+    private long totalBytes;
+
+    public DiskCacheStore(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        load();
+    }
+
+    /**
+     * The mapped entry, or null if there is none. The mapping stays valid after the entry is
+     * evicted or replaced, since both only unlink the file.
+     */
+    public synchronized ByteBuffer get(String key) {
+        if (!entries.containsKey(key)) {
+            return null;
+        }
+        try (var channel = FileChannel.open(file(key), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            remove(key);
+            return null;
+        }
+    }
+
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized long getStoredAt(String key) {
+        return entries.containsKey(key) ? lastModified(file(key)) : 0L;
+    }
+
+    public synchronized void put(String key, ByteBuffer value, long storedAt) {
+        var length = value.remaining();
+        if (length > maxBytes) {
+            return;
+        }
+        try {
+            var temp = Files.createTempFile(directory, key, ".tmp");
+            try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                var source = value.duplicate();
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+            }
+            Files.setLastModifiedTime(temp, FileTime.fromMillis(storedAt));
+            Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the cache entry " + key, e);
+        }
+        var previous = entries.put(key, (long) length);
+        totalBytes += length - (previous != null ? previous : 0L);
+        evictToMaxBytes();
+    }
+
+    public synchronized void remove(String key) {
+        var size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        try {
+            Files.deleteIfExists(file(key));
+        } catch (IOException e) {
+            // A file that cannot be deleted is simply no longer tracked.
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private void load() {
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                var existing = files.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                        .sorted(Comparator.comparing(DiskCacheStore::lastModified))
+                        .collect(Collectors.toList());
+                for (var path : existing) {
+                    var name = path.getFileName().toString();
+                    var size = Files.size(path);
+                    entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+                    totalBytes += size;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the cache directory " + directory, e);
+        }
+        evictToMaxBytes();
+    }
+
+    private void evictToMaxBytes() {
+        while (totalBytes > maxBytes && !entries.isEmpty()) {
+            remove(entries.keySet().iterator().next());
+        }
+    }
+
+    private static Long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.domain.chat.ChatMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.SystemMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+
+import java.util.List;
+
+/**
+ * Asks a (cheap) chat model to merge the evicted turns into the running summary.
+ */
+public class ChatCompletionSummarizer implements Summarizer {
+
+    private static final String INSTRUCTIONS = "You compress conversations. Merge the previous summary and the "
+            + "new messages into one short summary that keeps names, numbers, decisions and open questions. "
+            + "Answer with the summary only.";
+
+    private final SimpleOpenAI openAI;
+    private final String model;
+    private final int maxCompletionTokens;
+
+    public ChatCompletionSummarizer(SimpleOpenAI openAI, String model, int maxCompletionTokens) {
+        this.openAI = openAI;
+        this.model = model;
+        this.maxCompletionTokens = maxCompletionTokens;
+    }
+
+    @Override
+    public String summarize(String previousSummary, List<ChatMessage> evicted) {
+        var prompt = new StringBuilder();
+        if (previousSummary != null) {
+            prompt.append("Previous summary:\n").append(previousSummary).append("\n\n");
+        }
+        prompt.append("New messages:\n");
+        for (var message : evicted) {
+            prompt.append(JsonUtil.objectToJson(message)).append('\n');
+        }
+        var chat = openAI.chatCompletions()
+                .create(ChatRequest.builder()
+                        .model(model)
+                        .message(SystemMessage.of(INSTRUCTIONS))
+                        .message(UserMessage.of(prompt.toString()))
+                        .temperature(0.0)
+                        .maxCompletionTokens(maxCompletionTokens)
+                        .build())
+                .join();
+        return chat.firstContent();
+    }
+
+}
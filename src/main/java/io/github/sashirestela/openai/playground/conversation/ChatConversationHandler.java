@@ -0,0 +1,93 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import io.github.sashirestela.openai.common.function.FunctionExecutor;
+import io.github.sashirestela.openai.domain.chat.Chat.Choice;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.AssistantMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.ToolMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.stream.ChatStreamAccumulator;
+import io.github.sashirestela.openai.playground.tool.ParallelToolDispatcher;
+import lombok.Builder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Chat completions conversation of one session: keeps its own message history and runs the tool
+ * call loop until the model answers without requesting tools.
+ */
+public class ChatConversationHandler implements ConversationHandler {
+
+    private static final String DEFAULT_MODEL = "gpt-4o-mini";
+
+    private final ConversationEngine engine;
+    private final FunctionExecutor functionExecutor;
+    private final ParallelToolDispatcher toolDispatcher;
+    private final String model;
+    private final Double temperature;
+    private final ConversationMemory memory;
+    private final ChatStreamAccumulator accumulator;
+
+    @Builder
+    public ChatConversationHandler(ConversationEngine engine, FunctionExecutor functionExecutor,
+            ParallelToolDispatcher toolDispatcher, ConversationMemory memory, String model, Double temperature,
+            Consumer<String> output) {
+        this.engine = engine;
+        this.functionExecutor = functionExecutor;
+        this.toolDispatcher = toolDispatcher != null || functionExecutor == null ? toolDispatcher
+                : ParallelToolDispatcher.builder()
+                        .functionExecutor(functionExecutor)
+                        .executor(engine.getExecutor())
+                        .build();
+        this.model = model != null ? model : DEFAULT_MODEL;
+        this.temperature = temperature;
+        this.memory = memory != null ? memory : ConversationMemory.builder().build();
+        this.accumulator = output != null ? new ChatStreamAccumulator(output) : new ChatStreamAccumulator();
+    }
+
+    @Override
+    public CompletableFuture<Void> onMessage(String message) {
+        memory.add(UserMessage.of(message));
+        return nextRequest();
+    }
+
+    private CompletableFuture<Void> nextRequest() {
+        var chatRequestBuilder = ChatRequest.builder()
+                .model(model)
+                .messages(memory.getMessages())
+                .temperature(temperature)
+                .stream(true);
+        if (functionExecutor != null) {
+            chatRequestBuilder.tools(functionExecutor.getToolFunctions());
+        }
+        var chatRequest = chatRequestBuilder.build();
+        return engine.getRequestLimiter()
+                .submit(() -> engine.getOpenAI()
+                        .chatCompletions()
+                        .createStream(chatRequest)
+                        .thenApplyAsync(accumulator::accumulate, engine.getExecutor()))
+                .thenComposeAsync(this::handleResponse, engine.getExecutor());
+    }
+
+    private CompletableFuture<Void> handleResponse(Choice response) {
+        if ("tool_calls".equals(response.getFinishReason())) {
+            memory.add(response.getMessage());
+            var toolCalls = response.getMessage().getToolCalls();
+            return toolDispatcher.dispatch(toolCalls, (toolCallId, result) -> ToolMessage.of(result, toolCallId))
+                    .thenCompose(toolMessages -> {
+                        memory.addAll(toolMessages);
+                        return nextRequest();
+                    });
+        }
+        if (response.getMessage().getContent() != null) {
+            memory.add(AssistantMessage.of(response.getMessage().getContent()));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public ConversationMemory getMemory() {
+        return memory;
+    }
+
+}
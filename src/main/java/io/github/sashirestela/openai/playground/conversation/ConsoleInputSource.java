@@ -0,0 +1,31 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads messages from the system console until the user writes 'exit'.
+ */
+public class ConsoleInputSource implements InputSource {
+
+    private static final String FIRST_PROMPT = "\nWelcome! Write any message: ";
+    private static final String NEXT_PROMPT = "\n\nWrite any message (or write 'exit' to finish): ";
+
+    private final Executor executor;
+    private boolean started;
+
+    public ConsoleInputSource(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<String> nextMessage() {
+        var prompt = started ? NEXT_PROMPT : FIRST_PROMPT;
+        started = true;
+        return CompletableFuture.supplyAsync(() -> {
+            var message = System.console().readLine(prompt);
+            return message == null || message.equalsIgnoreCase("exit") ? null : message;
+        }, executor);
+    }
+
+}
@@ -0,0 +1,93 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.playground.support.AsyncLimiter;
+import lombok.Builder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hosts many independent conversation sessions on one shared {@link SimpleOpenAI} client. Sessions
+ * wait for input and for responses through futures, so an idle session holds no thread; threads of
+ * the executor are only taken while a stream is being drained or tools are running. The number of
+ * requests in flight against the client is capped by a shared {@link AsyncLimiter}. On Java 21+ a
+ * virtual thread per task executor can be passed in.
+ */
+public class ConversationEngine implements AutoCloseable {
+
+    private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 16;
+
+    private final SimpleOpenAI openAI;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final AsyncLimiter requestLimiter;
+    private final Map<String, ConversationSession> sessions;
+
+    @Builder
+    public ConversationEngine(SimpleOpenAI openAI, ExecutorService executor, Integer maxInFlightRequests) {
+        var maxRequests = maxInFlightRequests != null ? maxInFlightRequests : DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+        this.openAI = openAI;
+        this.ownsExecutor = executor == null;
+        this.executor = executor != null ? executor : Executors.newFixedThreadPool(maxRequests);
+        this.requestLimiter = new AsyncLimiter(maxRequests);
+        this.sessions = new ConcurrentHashMap<>();
+    }
+
+    public ConversationSession startSession(String sessionId, InputSource input, ConversationHandler handler) {
+        var session = new ConversationSession(sessionId, input, handler, executor);
+        if (sessions.putIfAbsent(sessionId, session) != null) {
+            throw new IllegalArgumentException("There is already a session with id " + sessionId);
+        }
+        session.getCompletion().whenComplete((result, error) -> sessions.remove(sessionId, session));
+        session.start();
+        return session;
+    }
+
+    public ConversationSession getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public int getActiveSessions() {
+        return sessions.size();
+    }
+
+    public CompletableFuture<Void> awaitAll() {
+        return CompletableFuture.allOf(sessions.values()
+                .stream()
+                .map(session -> session.getCompletion().exceptionally(error -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    public SimpleOpenAI getOpenAI() {
+        return openAI;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public AsyncLimiter getRequestLimiter() {
+        return requestLimiter;
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
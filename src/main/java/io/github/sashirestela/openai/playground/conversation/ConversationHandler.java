@@ -0,0 +1,16 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs one full turn of a conversation, including any tool call round trips, for a user message.
+ * A session never calls a handler again before the future of the previous turn has completed.
+ */
+public interface ConversationHandler {
+
+    CompletableFuture<Void> onMessage(String message);
+
+    default void close() {
+    }
+
+}
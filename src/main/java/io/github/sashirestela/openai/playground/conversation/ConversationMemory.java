@@ -0,0 +1,180 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import io.github.sashirestela.openai.domain.chat.ChatMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.DeveloperMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.SystemMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.playground.store.ConversationStore;
+import lombok.Builder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Token-bounded replacement for the raw message list of a conversation. Every message is estimated
+ * once when added, and when the running total goes over the budget the oldest turns are evicted
+ * whole, so an assistant tool call is never separated from its tool results. System and developer
+ * messages are pinned and the latest turn is always kept. Eviction goes down to three quarters of
+ * the budget, so it happens in batches rather than on every message. With a {@link Summarizer} the
+ * evicted turns are folded into a running summary instead of being dropped. With a
+ * {@link ConversationStore} and a session id the memory is loaded from the store when built, every
+ * added message is appended to it, and after each eviction the kept messages are stored as a
+ * snapshot, so a resumed session starts from what the model saw last. Not thread-safe: it belongs
+ * to a single session.
+ */
+public class ConversationMemory {
+
+    private static final int DEFAULT_MAX_TOKENS = 16_000;
+    private static final double LOW_WATER_RATIO = 0.75;
+    private static final String SUMMARY_PREFIX = "Summary of the earlier conversation:\n";
+
+    private final int maxTokens;
+    private final TokenEstimator tokenEstimator;
+    private final Summarizer summarizer;
+    private final ConversationStore store;
+    private final String sessionId;
+    private final List<ChatMessage> pinned;
+    private final Deque<Turn> turns;
+    private int pinnedTokens;
+    private int turnTokens;
+    private String summary;
+    private ChatMessage summaryMessage;
+    private int summaryTokens;
+    private int messageCount;
+    private int evictedTurns;
+
+    @Builder
+    public ConversationMemory(Integer maxTokens, TokenEstimator tokenEstimator, Summarizer summarizer,
+            ConversationStore store, String sessionId) {
+        if (store != null && sessionId == null) {
+            throw new IllegalArgumentException("A session id is required to use a conversation store");
+        }
+        this.maxTokens = maxTokens != null ? maxTokens : DEFAULT_MAX_TOKENS;
+        this.tokenEstimator = tokenEstimator != null ? tokenEstimator : TokenEstimator.charBased();
+        this.summarizer = summarizer;
+        this.store = store;
+        this.sessionId = sessionId;
+        this.pinned = new ArrayList<>();
+        this.turns = new ArrayDeque<>();
+        if (store != null) {
+            restore(store.load(sessionId));
+        }
+    }
+
+    public void add(ChatMessage message) {
+        if (store != null) {
+            store.append(sessionId, message);
+        }
+        addMessage(message);
+        if (getEstimatedTokens() > maxTokens) {
+            evict();
+            if (store != null) {
+                store.snapshot(sessionId, getMessages());
+            }
+        }
+    }
+
+    public void addAll(List<? extends ChatMessage> messages) {
+        for (var message : messages) {
+            add(message);
+        }
+    }
+
+    public List<ChatMessage> getMessages() {
+        List<ChatMessage> messages = new ArrayList<>(messageCount + 1);
+        messages.addAll(pinned);
+        if (summaryMessage != null) {
+            messages.add(summaryMessage);
+        }
+        for (var turn : turns) {
+            messages.addAll(turn.messages);
+        }
+        return messages;
+    }
+
+    public int getEstimatedTokens() {
+        return pinnedTokens + summaryTokens + turnTokens;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public int size() {
+        return messageCount;
+    }
+
+    public int getEvictedTurns() {
+        return evictedTurns;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    private void addMessage(ChatMessage message) {
+        var tokens = tokenEstimator.estimate(message);
+        if (message instanceof SystemMessage || message instanceof DeveloperMessage) {
+            pinned.add(message);
+            pinnedTokens += tokens;
+        } else {
+            if (message instanceof UserMessage || turns.isEmpty()) {
+                turns.addLast(new Turn());
+            }
+            turns.getLast().add(message, tokens);
+            turnTokens += tokens;
+        }
+        messageCount++;
+    }
+
+    /**
+     * Rebuilds the memory from stored messages, recognizing a stored summary by its prefix.
+     */
+    private void restore(List<ChatMessage> messages) {
+        for (var message : messages) {
+            var content = message instanceof SystemMessage ? ((SystemMessage) message).getContent() : null;
+            if (content != null && content.startsWith(SUMMARY_PREFIX)) {
+                summary = content.substring(SUMMARY_PREFIX.length());
+                summaryMessage = message;
+                summaryTokens = tokenEstimator.estimate(message);
+            } else {
+                addMessage(message);
+            }
+        }
+        if (getEstimatedTokens() > maxTokens) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        var target = (int) (maxTokens * LOW_WATER_RATIO);
+        List<ChatMessage> evicted = new ArrayList<>();
+        while (turns.size() > 1 && getEstimatedTokens() > target) {
+            var turn = turns.removeFirst();
+            turnTokens -= turn.tokens;
+            messageCount -= turn.messages.size();
+            evictedTurns++;
+            evicted.addAll(turn.messages);
+        }
+        if (summarizer != null && !evicted.isEmpty()) {
+            summary = summarizer.summarize(summary, evicted);
+            summaryMessage = SystemMessage.of(SUMMARY_PREFIX + summary);
+            summaryTokens = tokenEstimator.estimate(summaryMessage);
+        }
+    }
+
+    private static class Turn {
+
+        private final List<ChatMessage> messages = new ArrayList<>();
+        private int tokens;
+
+        void add(ChatMessage message, int messageTokens) {
+            messages.add(message);
+            tokens += messageTokens;
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Pulls messages from its input source and hands them to its handler one turn at a time.
+ */
+public class ConversationSession {
+
+    private final String sessionId;
+    private final InputSource input;
+    private final ConversationHandler handler;
+    private final Executor executor;
+    private final CompletableFuture<Void> completion;
+    private volatile int turns;
+
+    ConversationSession(String sessionId, InputSource input, ConversationHandler handler, Executor executor) {
+        this.sessionId = sessionId;
+        this.input = input;
+        this.handler = handler;
+        this.executor = executor;
+        this.completion = new CompletableFuture<>();
+    }
+
+    void start() {
+        nextTurn();
+    }
+
+    private void nextTurn() {
+        input.nextMessage()
+                .thenComposeAsync(message -> {
+                    if (message == null) {
+                        handler.close();
+                        completion.complete(null);
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    turns++;
+                    return handler.onMessage(message).thenRunAsync(this::nextTurn, executor);
+                }, executor)
+                .exceptionally(error -> {
+                    handler.close();
+                    completion.completeExceptionally(error);
+                    return null;
+                });
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+}
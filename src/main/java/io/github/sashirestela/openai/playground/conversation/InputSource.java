@@ -0,0 +1,16 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Supplies the user messages of one conversation session. The session asks for the next message
+ * only after the previous turn has finished, so a source is never read ahead of the conversation.
+ */
+public interface InputSource {
+
+    /**
+     * @return a future with the next message, or with {@code null} when the conversation is over.
+     */
+    CompletableFuture<String> nextMessage();
+
+}
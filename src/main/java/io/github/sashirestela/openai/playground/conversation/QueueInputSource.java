@@ -0,0 +1,71 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded in-memory input source fed by producers through {@link #offer(String)}. A full queue
+ * rejects new messages, which is the per-session backpressure signal for the producer.
+ */
+public class QueueInputSource implements InputSource {
+
+    private final int capacity;
+    private final Deque<String> messages;
+    private CompletableFuture<String> pending;
+    private boolean closed;
+
+    public QueueInputSource(int capacity) {
+        this.capacity = capacity;
+        this.messages = new ArrayDeque<>(capacity);
+    }
+
+    public boolean offer(String message) {
+        CompletableFuture<String> waiting;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("The input source was already closed.");
+            }
+            if (pending == null) {
+                if (messages.size() >= capacity) {
+                    return false;
+                }
+                messages.add(message);
+                return true;
+            }
+            waiting = pending;
+            pending = null;
+        }
+        waiting.complete(message);
+        return true;
+    }
+
+    public void close() {
+        CompletableFuture<String> waiting;
+        synchronized (this) {
+            closed = true;
+            waiting = pending;
+            pending = null;
+        }
+        if (waiting != null) {
+            waiting.complete(null);
+        }
+    }
+
+    @Override
+    public synchronized CompletableFuture<String> nextMessage() {
+        if (!messages.isEmpty()) {
+            return CompletableFuture.completedFuture(messages.poll());
+        }
+        if (closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        pending = new CompletableFuture<>();
+        return pending;
+    }
+
+    public synchronized int size() {
+        return messages.size();
+    }
+
+}
@@ -0,0 +1,20 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import io.github.sashirestela.openai.domain.chat.ChatMessage;
+
+import java.util.List;
+
+/**
+ * Folds the messages evicted from the conversation memory into a running summary.
+ */
+@FunctionalInterface
+public interface Summarizer {
+
+    /**
+     * @param previousSummary the summary so far, or {@code null} if nothing was evicted before.
+     * @param evicted         the messages of the turns being evicted, oldest first.
+     * @return the new summary covering both.
+     */
+    String summarize(String previousSummary, List<ChatMessage> evicted);
+
+}
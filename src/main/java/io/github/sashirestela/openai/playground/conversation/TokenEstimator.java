@@ -0,0 +1,23 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.domain.chat.ChatMessage;
+
+/**
+ * Estimates how many prompt tokens a message will cost. The estimate is taken once, when the
+ * message enters the conversation memory.
+ */
+@FunctionalInterface
+public interface TokenEstimator {
+
+    int estimate(ChatMessage message);
+
+    /**
+     * Rough estimate of four characters of serialized JSON per token plus a fixed per-message
+     * overhead. Good enough for budgeting without shipping a tokenizer.
+     */
+    static TokenEstimator charBased() {
+        return message -> JsonUtil.objectToJson(message).length() / 4 + 4;
+    }
+
+}
@@ -0,0 +1,242 @@
+package io.github.sashirestela.openai.playground.image;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.OpenAI;
+import io.github.sashirestela.openai.common.StreamOptions;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartImageUrl;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartImageUrl.ImageUrl;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartText;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.ratelimit.RateLimitScheduler;
+import io.github.sashirestela.openai.playground.ratelimit.RateLimitScheduler.Lane;
+import io.github.sashirestela.openai.playground.stream.ChatStreamAccumulator;
+import io.github.sashirestela.openai.playground.support.AsyncLimiter;
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+import lombok.Builder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Describes a batch of images through the chat completions service. Requests run with bounded
+ * concurrency, in the bulk lane of a {@link RateLimitScheduler} when one is given, and each result
+ * is appended to a JSONL file as soon as it is ready. The output file is also the checkpoint:
+ * images with a successful line in it are skipped when the job is run again after a crash, while
+ * failed ones are retried.
+ */
+public class BatchVisionJob {
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "webp");
+    private static final String DEFAULT_PROMPT = "What do you see in the image? Give in details in no more than "
+            + "100 words.";
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+
+    private final OpenAI.ChatCompletions chatService;
+    private final ImagePayloadCache imagePayloads;
+    private final String model;
+    private final String prompt;
+    private final Integer maxCompletionTokens;
+    private final AsyncLimiter limiter;
+    private final Path output;
+    private final Executor executor;
+
+    @Builder
+    public BatchVisionJob(OpenAI.ChatCompletions chatService, ImagePayloadCache imagePayloads, String model,
+            String prompt, Integer maxCompletionTokens, Integer maxConcurrency, RateLimitScheduler rateLimits,
+            Path output, Executor executor) {
+        var concurrency = maxConcurrency != null ? maxConcurrency : DEFAULT_MAX_CONCURRENCY;
+        this.chatService = rateLimits != null ? rateLimits.chatCompletions(chatService, Lane.BULK) : chatService;
+        this.imagePayloads = imagePayloads != null ? imagePayloads : ImagePayloadCache.builder().build();
+        this.model = model != null ? model : "gpt-4o-mini";
+        this.prompt = prompt != null ? prompt : DEFAULT_PROMPT;
+        this.maxCompletionTokens = maxCompletionTokens;
+        this.limiter = new AsyncLimiter(concurrency);
+        this.output = output;
+        this.executor = executor != null ? executor
+                : Executors.newFixedThreadPool(concurrency, new DaemonThreadFactory("batch-vision"));
+    }
+
+    public BatchVisionReport run(Path directoryOrManifest) {
+        return run(Files.isDirectory(directoryOrManifest)
+                ? scanDirectory(directoryOrManifest)
+                : readManifest(directoryOrManifest));
+    }
+
+    public BatchVisionReport run(List<String> images) {
+        var completed = readCheckpoint();
+        var pending = images.stream().filter(image -> !completed.contains(image)).collect(Collectors.toList());
+        var succeeded = new AtomicInteger();
+        var failed = new AtomicInteger();
+        var promptTokens = new AtomicLong();
+        var completionTokens = new AtomicLong();
+        var start = System.nanoTime();
+        try (var writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            if (endsMidLine()) {
+                writer.newLine();
+            }
+            List<CompletableFuture<Void>> futures = new ArrayList<>(pending.size());
+            for (var image : pending) {
+                futures.add(limiter.submit(() -> describe(image))
+                        .thenAccept(result -> {
+                            if (result.getError() == null) {
+                                succeeded.incrementAndGet();
+                            } else {
+                                failed.incrementAndGet();
+                            }
+                            promptTokens.addAndGet(valueOf(result.getPromptTokens()));
+                            completionTokens.addAndGet(valueOf(result.getCompletionTokens()));
+                            append(writer, result);
+                        }));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the results to " + output, e);
+        }
+        return BatchVisionReport.builder()
+                .total(images.size())
+                .skipped(images.size() - pending.size())
+                .succeeded(succeeded.get())
+                .failed(failed.get())
+                .promptTokens(promptTokens.get())
+                .completionTokens(completionTokens.get())
+                .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    public static List<String> scanDirectory(Path directory) {
+        try (var files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(BatchVisionJob::isImage)
+                    .map(Path::toString)
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot scan the directory " + directory, e);
+        }
+    }
+
+    public static List<String> readManifest(Path manifest) {
+        try (var lines = Files.lines(manifest)) {
+            return lines.map(String::strip)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the manifest " + manifest, e);
+        }
+    }
+
+    private CompletableFuture<BatchVisionResult> describe(String image) {
+        var start = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> chatRequest(image), executor)
+                .thenCompose(chatService::createStream)
+                .thenApplyAsync(chatStream -> {
+                    var accumulator = new ChatStreamAccumulator();
+                    var choice = accumulator.accumulate(chatStream);
+                    var usage = accumulator.getUsage();
+                    return BatchVisionResult.builder()
+                            .image(image)
+                            .description(choice.getMessage().getContent())
+                            .promptTokens(usage != null ? usage.getPromptTokens() : null)
+                            .completionTokens(usage != null ? usage.getCompletionTokens() : null)
+                            .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                            .build();
+                }, executor)
+                .exceptionally(error -> BatchVisionResult.builder()
+                        .image(image)
+                        .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                        .error(String.valueOf((error instanceof CompletionException ? error.getCause() : error)
+                                .getMessage()))
+                        .build());
+    }
+
+    private ChatRequest chatRequest(String image) {
+        var imageUrl = image.startsWith("http://") || image.startsWith("https://") ? image
+                : imagePayloads.dataUrl(image);
+        return ChatRequest.builder()
+                .model(model)
+                .messages(List.of(
+                        UserMessage.of(List.of(
+                                ContentPartText.of(prompt),
+                                ContentPartImageUrl.of(ImageUrl.of(imageUrl))))))
+                .temperature(0.0)
+                .maxCompletionTokens(maxCompletionTokens)
+                .streamOptions(StreamOptions.of(Boolean.TRUE))
+                .build();
+    }
+
+    private Set<String> readCheckpoint() {
+        Set<String> completed = new HashSet<>();
+        if (!Files.exists(output)) {
+            return completed;
+        }
+        try (var lines = Files.lines(output, StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                try {
+                    var result = JsonUtil.jsonToObject(line, BatchVisionResult.class);
+                    if (result.getError() == null) {
+                        completed.add(result.getImage());
+                    }
+                } catch (RuntimeException e) {
+                    // A line cut short by a crash is not a checkpoint; the image runs again.
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the checkpoint " + output, e);
+        }
+        return completed;
+    }
+
+    private boolean endsMidLine() throws IOException {
+        try (var channel = FileChannel.open(output, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return false;
+            }
+            var last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            return last.get(0) != '\n';
+        }
+    }
+
+    private static void append(BufferedWriter writer, BatchVisionResult result) {
+        synchronized (writer) {
+            try {
+                writer.write(JsonUtil.objectToJson(result));
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot append the result of " + result.getImage(), e);
+            }
+        }
+    }
+
+    private static boolean isImage(Path path) {
+        var name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return IMAGE_EXTENSIONS.contains(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    private static long valueOf(Integer tokens) {
+        return tokens != null ? tokens : 0L;
+    }
+
+}
@@ -0,0 +1,36 @@
+package io.github.sashirestela.openai.playground.image;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Outcome and throughput of one run of a {@link BatchVisionJob}.
+ */
+@Getter
+@Builder
+public class BatchVisionReport {
+
+    private final int total;
+    private final int skipped;
+    private final int succeeded;
+    private final int failed;
+    private final long promptTokens;
+    private final long completionTokens;
+    private final long elapsedMillis;
+
+    public double getImagesPerSecond() {
+        return elapsedMillis == 0 ? 0.0 : (succeeded + failed) * 1000.0 / elapsedMillis;
+    }
+
+    public double getTokensPerSecond() {
+        return elapsedMillis == 0 ? 0.0 : (promptTokens + completionTokens) * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchVisionReport(total=%d, skipped=%d, succeeded=%d, failed=%d, elapsedMillis=%d, "
+                + "imagesPerSecond=%.2f, tokensPerSecond=%.1f)", total, skipped, succeeded, failed, elapsedMillis,
+                getImagesPerSecond(), getTokensPerSecond());
+    }
+
+}
@@ -0,0 +1,24 @@
+package io.github.sashirestela.openai.playground.image;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of the JSONL output of a {@link BatchVisionJob}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchVisionResult {
+
+    private String image;
+    private String description;
+    private Integer promptTokens;
+    private Integer completionTokens;
+    private Long elapsedMillis;
+    private String error;
+
+}
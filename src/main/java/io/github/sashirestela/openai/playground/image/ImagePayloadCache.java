@@ -0,0 +1,259 @@
+package io.github.sashirestela.openai.playground.image;
+
+import io.github.sashirestela.openai.playground.support.Fingerprint;
+import lombok.Builder;
+
+import javax.imageio.ImageIO;
+
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Builds the Base64 data URLs of local images for vision requests and keeps them for reuse. A file
+ * is identified by path, size and modification time, so an unchanged file is neither read nor
+ * hashed again; the payloads themselves are stored by content hash, so copies of the same image
+ * share one entry. Files are memory-mapped and encoded in chunks straight into the final buffer,
+ * without holding the raw bytes and an intermediate Base64 string at the same time. Images larger
+ * than {@code maxDimension} pixels on any side are downscaled and re-encoded as JPEG first; only
+ * their headers are read to find out.
+ */
+public class ImagePayloadCache {
+
+    private static final long DEFAULT_MAX_CHARS = 64L * 1024 * 1024;
+    private static final int CHUNK_BYTES = 3 * 64 * 1024;
+
+    private final long maxChars;
+    private final Integer maxDimension;
+    private final Map<FileKey, String> hashesByFile;
+    private final LinkedHashMap<String, String> payloadsByHash;
+    private long totalChars;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Builder
+    public ImagePayloadCache(Long maxChars, Integer maxDimension) {
+        this.maxChars = maxChars != null ? maxChars : DEFAULT_MAX_CHARS;
+        this.maxDimension = maxDimension;
+        this.hashesByFile = new ConcurrentHashMap<>();
+        this.payloadsByHash = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    public String dataUrl(String path) {
+        return dataUrl(Path.of(path));
+    }
+
+    public String dataUrl(Path path) {
+        var fileKey = FileKey.of(path);
+        var hash = hashesByFile.get(fileKey);
+        if (hash != null) {
+            var payload = cached(hash);
+            if (payload != null) {
+                hits.increment();
+                return payload;
+            }
+        }
+        misses.increment();
+        var encoded = encode(path);
+        hashesByFile.put(fileKey, encoded.hash);
+        return store(encoded.hash, encoded.dataUrl);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized long getTotalChars() {
+        return totalChars;
+    }
+
+    private synchronized String cached(String hash) {
+        return payloadsByHash.get(hash);
+    }
+
+    private synchronized String store(String hash, String dataUrl) {
+        var existing = payloadsByHash.get(hash);
+        if (existing != null) {
+            return existing;
+        }
+        if (dataUrl.length() > maxChars) {
+            return dataUrl;
+        }
+        payloadsByHash.put(hash, dataUrl);
+        totalChars += dataUrl.length();
+        var iterator = payloadsByHash.entrySet().iterator();
+        while (totalChars > maxChars && iterator.hasNext()) {
+            var eldest = iterator.next();
+            iterator.remove();
+            totalChars -= eldest.getValue().length();
+            hashesByFile.values().removeIf(eldest.getKey()::equals);
+        }
+        return dataUrl;
+    }
+
+    private Encoded encode(Path path) {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            var mediaType = mediaType(path);
+            if (maxDimension != null) {
+                var downscaled = downscale(path);
+                if (downscaled != null) {
+                    buffer = downscaled;
+                    mediaType = "image/jpeg";
+                }
+            }
+            return encode(buffer, mediaType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode the image " + path, e);
+        }
+    }
+
+    private static Encoded encode(ByteBuffer source, String mediaType) {
+        var digest = Fingerprint.sha256();
+        var prefix = ("data:" + mediaType + ";base64,").getBytes(StandardCharsets.US_ASCII);
+        var size = source.remaining();
+        var target = new byte[prefix.length + 4 * ((size + 2) / 3)];
+        System.arraycopy(prefix, 0, target, 0, prefix.length);
+        var encoder = Base64.getEncoder();
+        var chunk = new byte[Math.min(CHUNK_BYTES, size)];
+        var encodedChunk = new byte[4 * chunk.length / 3 + 4];
+        var offset = prefix.length;
+        while (source.hasRemaining()) {
+            var length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            digest.update(chunk, 0, length);
+            var input = length == chunk.length ? chunk : Arrays.copyOf(chunk, length);
+            var encodedLength = encoder.encode(input, encodedChunk);
+            System.arraycopy(encodedChunk, 0, target, offset, encodedLength);
+            offset += encodedLength;
+        }
+        return new Encoded(Fingerprint.hex(digest.digest()), new String(target, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Downscales the image if it is oversized. The dimensions are read from the header alone, so an
+     * image within {@code maxDimension} is never decoded; an oversized one is decoded with source
+     * subsampling to roughly the target size before the final bilinear scaling.
+     *
+     * @return the JPEG of the downscaled image, or null if the image is small enough or unreadable
+     */
+    private ByteBuffer downscale(Path path) throws IOException {
+        BufferedImage image;
+        try (var input = ImageIO.createImageInputStream(path.toFile())) {
+            var readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            var reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                var longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                if (longestSide <= maxDimension) {
+                    return null;
+                }
+                var param = reader.getDefaultReadParam();
+                var step = longestSide / maxDimension;
+                param.setSourceSubsampling(step, step, 0, 0);
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+        var scale = (double) maxDimension / Math.max(image.getWidth(), image.getHeight());
+        var width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        var height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        var scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        var output = new ByteArrayOutputStream();
+        ImageIO.write(scaled, "jpg", output);
+        return ByteBuffer.wrap(output.toByteArray());
+    }
+
+    private static String mediaType(Path path) {
+        var name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        var extension = name.substring(name.lastIndexOf('.') + 1);
+        switch (extension) {
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg";
+            default:
+                return "image/" + extension;
+        }
+    }
+
+    private static class Encoded {
+
+        private final String hash;
+        private final String dataUrl;
+
+        Encoded(String hash, String dataUrl) {
+            this.hash = hash;
+            this.dataUrl = dataUrl;
+        }
+
+    }
+
+    private static class FileKey {
+
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+
+        FileKey(Path path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        static FileKey of(Path path) {
+            try {
+                var absolute = path.toAbsolutePath().normalize();
+                return new FileKey(absolute, Files.size(absolute), Files.getLastModifiedTime(absolute).toMillis());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read the attributes of the image " + path, e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof FileKey)) {
+                return false;
+            }
+            var that = (FileKey) other;
+            return size == that.size && lastModified == that.lastModified && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * path.hashCode() + Long.hashCode(size)) + Long.hashCode(lastModified);
+        }
+
+    }
+
+}
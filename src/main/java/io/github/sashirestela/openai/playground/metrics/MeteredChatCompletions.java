@@ -0,0 +1,128 @@
+package io.github.sashirestela.openai.playground.metrics;
+
+import io.github.sashirestela.openai.OpenAI;
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Chat completions service that records into a {@link MetricsRegistry}:
+ * <ul>
+ * <li>{@code chat.create}: blocking completions, from request to response.</li>
+ * <li>{@code chat.stream.handshake}: from request until the stream is open.</li>
+ * <li>{@code chat.stream.ttft}: from request to the first chunk carrying content or tool calls.</li>
+ * <li>{@code chat.stream.duration}: from request until the stream is drained, failing if the
+ * handshake or the stream fails; an exception thrown by the consumer of the chunks is not counted
+ * as a failure of the stream.</li>
+ * <li>{@code chat.tokens.*}: the usage of every response, for streams only when requested through
+ * {@code streamOptions}.</li>
+ * </ul>
+ */
+public class MeteredChatCompletions implements OpenAI.ChatCompletions {
+
+    private final OpenAI.ChatCompletions delegate;
+    private final MetricsRegistry metrics;
+
+    public MeteredChatCompletions(OpenAI.ChatCompletions delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public CompletableFuture<Chat> create(ChatRequest chatRequest) {
+        return metrics.time("chat.create", () -> delegate.create(chatRequest))
+                .thenApply(chat -> {
+                    metrics.recordUsage("chat", chat.getUsage());
+                    return chat;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Stream<Chat>> createStream(ChatRequest chatRequest) {
+        var start = System.nanoTime();
+        metrics.increment("chat.stream.duration.calls");
+        return metrics.time("chat.stream.handshake", () -> delegate.createStream(chatRequest))
+                .whenComplete((stream, error) -> {
+                    if (error != null) {
+                        metrics.failed("chat.stream.duration", start);
+                    }
+                })
+                .thenApply(stream -> meter(stream, start));
+    }
+
+    @Override
+    public CompletableFuture<Chat> createPrimitive(ChatRequest chatRequest) {
+        return delegate.createPrimitive(chatRequest);
+    }
+
+    @Override
+    public CompletableFuture<Stream<Chat>> createStreamPrimitive(ChatRequest chatRequest) {
+        return delegate.createStreamPrimitive(chatRequest);
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    private Stream<Chat> meter(Stream<Chat> stream, long start) {
+        var source = stream.spliterator();
+        var spliterator = new Spliterators.AbstractSpliterator<Chat>(Long.MAX_VALUE, Spliterator.ORDERED) {
+
+            private boolean firstToken = true;
+            private boolean finished;
+            private boolean inConsumer;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Chat> action) {
+                boolean advanced;
+                try {
+                    advanced = source.tryAdvance(chunk -> {
+                        if (firstToken && carriesOutput(chunk)) {
+                            firstToken = false;
+                            metrics.recordSince("chat.stream.ttft", start);
+                        }
+                        if (chunk.getUsage() != null) {
+                            metrics.recordUsage("chat", chunk.getUsage());
+                        }
+                        inConsumer = true;
+                        action.accept(chunk);
+                        inConsumer = false;
+                    });
+                } catch (RuntimeException e) {
+                    if (inConsumer) {
+                        inConsumer = false;
+                    } else if (!finished) {
+                        finished = true;
+                        metrics.failed("chat.stream.duration", start);
+                    }
+                    throw e;
+                }
+                if (!advanced && !finished) {
+                    finished = true;
+                    metrics.recordSince("chat.stream.duration", start);
+                }
+                return advanced;
+            }
+
+        };
+        return StreamSupport.stream(spliterator, false).onClose(stream::close);
+    }
+
+    private static boolean carriesOutput(Chat chunk) {
+        for (var choice : chunk.getChoices()) {
+            var delta = choice.getMessage();
+            if (delta != null && ((delta.getContent() != null && !delta.getContent().isEmpty())
+                    || delta.getToolCalls() != null)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
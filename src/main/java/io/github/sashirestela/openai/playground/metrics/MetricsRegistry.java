@@ -0,0 +1,146 @@
+package io.github.sashirestela.openai.playground.metrics;
+
+import io.github.sashirestela.openai.common.Usage;
+import io.github.sashirestela.openai.playground.support.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Named counters and latency timers for the conversation flows. Timings are also committed as
+ * {@link PhaseEvent}s and usages as {@link TokenUsageEvent}s, which cost nothing unless a flight
+ * recording is running. A timed call {@code x} counts {@code x.calls} and {@code x.errors}, so the
+ * error rate of every phase is available next to its latency.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, LongAdder> counters;
+    private final Map<String, LatencyHistogram> timers;
+
+    public MetricsRegistry() {
+        this.counters = new ConcurrentHashMap<>();
+        this.timers = new ConcurrentHashMap<>();
+    }
+
+    public void increment(String name) {
+        add(name, 1);
+    }
+
+    public void add(String name, long amount) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    public void recordNanos(String name, long nanos) {
+        recordNanos(name, nanos, false);
+    }
+
+    public void recordSince(String name, long startNanos) {
+        recordNanos(name, System.nanoTime() - startNanos, false);
+    }
+
+    public void recordUsage(String flow, Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        var prompt = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+        var completion = usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+        add(flow + ".tokens.prompt", prompt);
+        add(flow + ".tokens.completion", completion);
+        var event = new TokenUsageEvent();
+        if (event.isEnabled()) {
+            event.flow = flow;
+            event.promptTokens = prompt;
+            event.completionTokens = completion;
+            event.commit();
+        }
+    }
+
+    /**
+     * Times an asynchronous call from now until its future completes, counting it as an error if it
+     * completes exceptionally.
+     */
+    public <T> CompletableFuture<T> time(String name, Supplier<CompletableFuture<T>> call) {
+        var start = System.nanoTime();
+        increment(name + ".calls");
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            failed(name, start);
+            throw e;
+        }
+        return future.whenComplete((result, error) -> {
+            if (error != null) {
+                failed(name, start);
+            } else {
+                recordSince(name, start);
+            }
+        });
+    }
+
+    public <T> T timeBlocking(String name, Supplier<T> call) {
+        var start = System.nanoTime();
+        increment(name + ".calls");
+        try {
+            var result = call.get();
+            recordSince(name, start);
+            return result;
+        } catch (RuntimeException e) {
+            failed(name, start);
+            throw e;
+        }
+    }
+
+    public void failed(String name, long startNanos) {
+        increment(name + ".errors");
+        recordNanos(name + ".failed", System.nanoTime() - startNanos, true);
+    }
+
+    public long getCount(String name) {
+        var counter = counters.get(name);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    public double getErrorRate(String name) {
+        var calls = getCount(name + ".calls");
+        return calls == 0 ? 0 : (double) getCount(name + ".errors") / calls;
+    }
+
+    public LatencyHistogram getTimer(String name) {
+        return timers.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public Map<String, Long> getCounters() {
+        var snapshot = new TreeMap<String, Long>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        return snapshot;
+    }
+
+    public Map<String, LatencyHistogram> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    @Override
+    public String toString() {
+        var report = new StringBuilder();
+        getTimers().values().forEach(timer -> report.append(timer).append('\n'));
+        getCounters().forEach((name, count) -> report.append(name).append(": ").append(count).append('\n'));
+        return report.toString();
+    }
+
+    private void recordNanos(String name, long nanos, boolean failed) {
+        getTimer(name).record(nanos);
+        var event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = name;
+            event.elapsed = nanos;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+}
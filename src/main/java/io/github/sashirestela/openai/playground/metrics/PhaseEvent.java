@@ -0,0 +1,32 @@
+package io.github.sashirestela.openai.playground.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event committed for every timing recorded in a {@link MetricsRegistry}, so a flight recording
+ * shows where the time of a conversation turn went next to GC and thread activity.
+ */
+@Name("io.github.sashirestela.openai.playground.Phase")
+@Label("OpenAI Phase")
+@Category({ "OpenAI Playground" })
+@Description("Duration of one phase of an OpenAI call, e.g. chat.stream.ttft or run.tools")
+@StackTrace(false)
+class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Failed")
+    boolean failed;
+
+}
@@ -0,0 +1,29 @@
+package io.github.sashirestela.openai.playground.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event committed for every usage reported by the API.
+ */
+@Name("io.github.sashirestela.openai.playground.TokenUsage")
+@Label("OpenAI Token Usage")
+@Category({ "OpenAI Playground" })
+@Description("Tokens reported by the API for one chat completion or assistant run")
+@StackTrace(false)
+class TokenUsageEvent extends Event {
+
+    @Label("Flow")
+    String flow;
+
+    @Label("Prompt Tokens")
+    int promptTokens;
+
+    @Label("Completion Tokens")
+    int completionTokens;
+
+}
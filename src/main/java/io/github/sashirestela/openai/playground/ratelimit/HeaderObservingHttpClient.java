@@ -0,0 +1,115 @@
+package io.github.sashirestela.openai.playground.ratelimit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.PushPromiseHandler;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * {@link HttpClient} that hands the rate limit headers of every response to an observer as soon as
+ * the status line and headers arrive, before the body is read, so streamed responses report their
+ * budgets too. Everything else is delegated.
+ */
+class HeaderObservingHttpClient extends HttpClient {
+
+    private final HttpClient delegate;
+    private final Consumer<RateLimitHeaders> observer;
+
+    HeaderObservingHttpClient(HttpClient delegate, Consumer<RateLimitHeaders> observer) {
+        this.delegate = delegate;
+        this.observer = observer;
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> responseBodyHandler)
+            throws IOException, InterruptedException {
+        return delegate.send(request, observing(responseBodyHandler));
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+            BodyHandler<T> responseBodyHandler) {
+        return delegate.sendAsync(request, observing(responseBodyHandler));
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, BodyHandler<T> responseBodyHandler,
+            PushPromiseHandler<T> pushPromiseHandler) {
+        return delegate.sendAsync(request, observing(responseBodyHandler), pushPromiseHandler);
+    }
+
+    @Override
+    public Optional<CookieHandler> cookieHandler() {
+        return delegate.cookieHandler();
+    }
+
+    @Override
+    public Optional<Duration> connectTimeout() {
+        return delegate.connectTimeout();
+    }
+
+    @Override
+    public Redirect followRedirects() {
+        return delegate.followRedirects();
+    }
+
+    @Override
+    public Optional<ProxySelector> proxy() {
+        return delegate.proxy();
+    }
+
+    @Override
+    public SSLContext sslContext() {
+        return delegate.sslContext();
+    }
+
+    @Override
+    public SSLParameters sslParameters() {
+        return delegate.sslParameters();
+    }
+
+    @Override
+    public Optional<Authenticator> authenticator() {
+        return delegate.authenticator();
+    }
+
+    @Override
+    public Version version() {
+        return delegate.version();
+    }
+
+    @Override
+    public Optional<Executor> executor() {
+        return delegate.executor();
+    }
+
+    @Override
+    public WebSocket.Builder newWebSocketBuilder() {
+        return delegate.newWebSocketBuilder();
+    }
+
+    private <T> BodyHandler<T> observing(BodyHandler<T> handler) {
+        return responseInfo -> {
+            var headers = RateLimitHeaders.of(responseInfo.headers().map());
+            if (!headers.isEmpty()) {
+                observer.accept(headers);
+            }
+            return handler.apply(responseInfo);
+        };
+    }
+
+}
@@ -0,0 +1,134 @@
+package io.github.sashirestela.openai.playground.ratelimit;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The rate limit headers of one API response: the {@code x-ratelimit-*} request and token budgets
+ * and the {@code retry-after-ms} / {@code retry-after} hint of throttled responses. Missing or
+ * unparseable values are null.
+ */
+public class RateLimitHeaders {
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final Long limitRequests;
+    private final Long remainingRequests;
+    private final Duration resetRequests;
+    private final Long limitTokens;
+    private final Long remainingTokens;
+    private final Duration resetTokens;
+    private final Duration retryAfter;
+
+    private RateLimitHeaders(Map<String, String> headers) {
+        this.limitRequests = number(headers.get("x-ratelimit-limit-requests"));
+        this.remainingRequests = number(headers.get("x-ratelimit-remaining-requests"));
+        this.resetRequests = duration(headers.get("x-ratelimit-reset-requests"));
+        this.limitTokens = number(headers.get("x-ratelimit-limit-tokens"));
+        this.remainingTokens = number(headers.get("x-ratelimit-remaining-tokens"));
+        this.resetTokens = duration(headers.get("x-ratelimit-reset-tokens"));
+        var retryAfterMillis = number(headers.get("retry-after-ms"));
+        var retryAfterSeconds = number(headers.get("retry-after"));
+        this.retryAfter = retryAfterMillis != null ? Duration.ofMillis(retryAfterMillis)
+                : retryAfterSeconds != null ? Duration.ofSeconds(retryAfterSeconds) : null;
+    }
+
+    public static RateLimitHeaders of(Map<String, List<String>> headers) {
+        var lowerCase = new HashMap<String, String>();
+        if (headers != null) {
+            headers.forEach((name, values) -> {
+                if (name != null && values != null && !values.isEmpty()) {
+                    lowerCase.put(name.toLowerCase(Locale.ROOT), values.get(0));
+                }
+            });
+        }
+        return new RateLimitHeaders(lowerCase);
+    }
+
+    public boolean isEmpty() {
+        return limitRequests == null && remainingRequests == null && limitTokens == null && remainingTokens == null
+                && retryAfter == null;
+    }
+
+    public Long getLimitRequests() {
+        return limitRequests;
+    }
+
+    public Long getRemainingRequests() {
+        return remainingRequests;
+    }
+
+    public Duration getResetRequests() {
+        return resetRequests;
+    }
+
+    public Long getLimitTokens() {
+        return limitTokens;
+    }
+
+    public Long getRemainingTokens() {
+        return remainingTokens;
+    }
+
+    public Duration getResetTokens() {
+        return resetTokens;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "requests " + remainingRequests + "/" + limitRequests + " (reset " + resetRequests + "), tokens "
+                + remainingTokens + "/" + limitTokens + " (reset " + resetTokens + "), retry after " + retryAfter;
+    }
+
+    private static Long number(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return (long) Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses the Go-style durations of the reset headers, such as {@code 20ms}, {@code 1s} or
+     * {@code 6m0.5s}.
+     */
+    static Duration duration(String value) {
+        if (value == null) {
+            return null;
+        }
+        var matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        var found = false;
+        while (matcher.find()) {
+            found = true;
+            var amount = Double.parseDouble(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "h":
+                    millis += amount * 3_600_000;
+                    break;
+                case "m":
+                    millis += amount * 60_000;
+                    break;
+                case "s":
+                    millis += amount * 1_000;
+                    break;
+                default:
+                    millis += amount;
+                    break;
+            }
+        }
+        return found ? Duration.ofMillis(Math.round(millis)) : null;
+    }
+
+}
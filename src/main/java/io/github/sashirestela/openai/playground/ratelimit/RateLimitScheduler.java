@@ -0,0 +1,379 @@
+package io.github.sashirestela.openai.playground.ratelimit;
+
+import io.github.sashirestela.cleverclient.support.CleverClientException;
+import io.github.sashirestela.openai.OpenAI;
+import io.github.sashirestela.openai.exception.OpenAIException;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Client-side admission control for one API key, shared by every service of one
+ * {@code SimpleOpenAI} client. Calls wait in a queue per {@link Lane} and are admitted against two
+ * budgets, requests and tokens per minute, each a bucket that refills continuously over a minute.
+ * The budgets start from the configured limits and follow the {@code x-ratelimit-*} headers of
+ * every response, which reach the scheduler through {@link #getHttpClient()}. Interactive calls are
+ * always admitted first, and bulk calls leave {@code interactiveReserve} of each budget untouched.
+ * At most {@code maxConcurrency} calls are in flight; a streamed call counts until its stream is
+ * open. Throttled (429) and server (5xx) errors and I/O failures are retried up to
+ * {@code maxRetries} times after the server's {@code retry-after} or else a jittered exponential
+ * backoff. A 429 also pauses admission for every lane for that long, so retries do not pile up
+ * into a storm. Exhausted quotas ({@code insufficient_quota}) are not retried.
+ */
+public class RateLimitScheduler implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitScheduler.class);
+
+    private static final double DEFAULT_REQUESTS_PER_MINUTE = 500;
+    private static final double DEFAULT_TOKENS_PER_MINUTE = 200_000;
+    private static final int DEFAULT_MAX_CONCURRENCY = 32;
+    private static final int DEFAULT_MAX_RETRIES = 6;
+    private static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(500);
+    private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(30);
+    private static final double DEFAULT_INTERACTIVE_RESERVE = 0.1;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(TOO_MANY_REQUESTS, 500, 502, 503, 504);
+
+    /**
+     * Priority classes, in admission order.
+     */
+    public enum Lane {
+        INTERACTIVE,
+        BULK
+    }
+
+    private final HttpClient httpClient;
+    private final Budget requests;
+    private final Budget tokens;
+    private final int maxConcurrency;
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double interactiveReserve;
+    private final Map<Lane, Deque<Call<?>>> queues;
+    private final ScheduledExecutorService scheduler;
+    private final MetricsRegistry metrics;
+    private int inFlight;
+    private long pausedUntil;
+    private long drainAt;
+
+    @Builder
+    public RateLimitScheduler(HttpClient httpClient, Double requestsPerMinute, Double tokensPerMinute,
+            Integer maxConcurrency, Integer maxRetries, Duration initialBackoff, Duration maxBackoff,
+            Double interactiveReserve, MetricsRegistry metrics) {
+        this.httpClient = new HeaderObservingHttpClient(httpClient != null ? httpClient : HttpClient.newHttpClient(),
+                this::observe);
+        this.requests = new Budget(requestsPerMinute != null ? requestsPerMinute : DEFAULT_REQUESTS_PER_MINUTE);
+        this.tokens = new Budget(tokensPerMinute != null ? tokensPerMinute : DEFAULT_TOKENS_PER_MINUTE);
+        this.maxConcurrency = maxConcurrency != null ? maxConcurrency : DEFAULT_MAX_CONCURRENCY;
+        this.maxRetries = maxRetries != null ? maxRetries : DEFAULT_MAX_RETRIES;
+        this.initialBackoffNanos = (initialBackoff != null ? initialBackoff : DEFAULT_INITIAL_BACKOFF).toNanos();
+        this.maxBackoffNanos = (maxBackoff != null ? maxBackoff : DEFAULT_MAX_BACKOFF).toNanos();
+        this.interactiveReserve = interactiveReserve != null ? interactiveReserve : DEFAULT_INTERACTIVE_RESERVE;
+        this.queues = new EnumMap<>(Lane.class);
+        for (var lane : Lane.values()) {
+            queues.put(lane, new ArrayDeque<>());
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("rate-limit"));
+        this.metrics = metrics != null ? metrics : new MetricsRegistry();
+        this.pausedUntil = System.nanoTime();
+    }
+
+    /**
+     * The client to build {@code SimpleOpenAI} with, so that response headers update the budgets.
+     */
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Chat completions of the given lane, admitted by this scheduler.
+     */
+    public OpenAI.ChatCompletions chatCompletions(OpenAI.ChatCompletions delegate, Lane lane) {
+        return new RateLimitedChatCompletions(delegate, this, lane);
+    }
+
+    /**
+     * Queues a call and runs it once its lane is admitted within the budgets, retrying it as needed.
+     *
+     * @param estimatedTokens tokens the call is expected to use, prompt plus completion
+     */
+    public <T> CompletableFuture<T> submit(Lane lane, long estimatedTokens, Supplier<CompletableFuture<T>> call) {
+        var pending = new Call<>(lane, Math.max(0, estimatedTokens), call);
+        synchronized (this) {
+            queues.get(lane).addLast(pending);
+        }
+        drain();
+        return pending.result;
+    }
+
+    public synchronized int getQueued(Lane lane) {
+        return queues.get(lane).size();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    synchronized void observe(RateLimitHeaders headers) {
+        requests.follow(headers.getLimitRequests(), headers.getRemainingRequests());
+        tokens.follow(headers.getLimitTokens(), headers.getRemainingTokens());
+    }
+
+    private void drain() {
+        List<Call<?>> admitted = new ArrayList<>();
+        synchronized (this) {
+            var now = System.nanoTime();
+            while (inFlight < maxConcurrency) {
+                var call = nextCall();
+                if (call == null) {
+                    break;
+                }
+                var reserve = call.lane == Lane.INTERACTIVE ? 0.0 : interactiveReserve;
+                var waitNanos = Math.max(pausedUntil - now,
+                        Math.max(requests.waitNanos(1, reserve, now), tokens.waitNanos(call.tokens, reserve, now)));
+                if (waitNanos > 0) {
+                    scheduleDrain(now + waitNanos);
+                    break;
+                }
+                queues.get(call.lane).removeFirst();
+                requests.take(1);
+                tokens.take(call.tokens);
+                inFlight++;
+                admitted.add(call);
+            }
+        }
+        for (var call : admitted) {
+            start(call);
+        }
+    }
+
+    private Call<?> nextCall() {
+        for (var lane : Lane.values()) {
+            var call = queues.get(lane).peekFirst();
+            if (call != null) {
+                return call;
+            }
+        }
+        return null;
+    }
+
+    private void scheduleDrain(long at) {
+        if (drainAt != 0 && drainAt - at <= 0) {
+            return;
+        }
+        drainAt = at;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                if (drainAt == at) {
+                    drainAt = 0;
+                }
+            }
+            drain();
+        }, at - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private <T> void start(Call<T> call) {
+        call.attempts++;
+        metrics.recordSince("ratelimit.wait." + call.lane.name().toLowerCase(Locale.ROOT), call.queuedAt);
+        CompletableFuture<T> response;
+        try {
+            response = call.supplier.get();
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((result, error) -> {
+            synchronized (this) {
+                inFlight--;
+            }
+            if (error == null) {
+                call.result.complete(result);
+            } else {
+                retryOrFail(call, unwrap(error));
+            }
+            drain();
+        });
+    }
+
+    private <T> void retryOrFail(Call<T> call, Throwable error) {
+        if (!isRetryable(error) || call.attempts > maxRetries) {
+            if (isRetryable(error)) {
+                metrics.increment("ratelimit.giveups");
+            }
+            call.result.completeExceptionally(error);
+            return;
+        }
+        var delayNanos = retryDelayNanos(call.attempts, error);
+        if (statusOf(error) == TOO_MANY_REQUESTS) {
+            metrics.increment("ratelimit.throttled");
+            synchronized (this) {
+                pausedUntil = Math.max(pausedUntil, System.nanoTime() + delayNanos);
+            }
+        }
+        metrics.increment("ratelimit.retries");
+        logger.debug("Retrying a {} call in {} ms after attempt {}: {}", call.lane, delayNanos / 1_000_000,
+                call.attempts, error.getMessage());
+        call.queuedAt = System.nanoTime() + delayNanos;
+        scheduler.schedule(() -> {
+            synchronized (this) {
+                queues.get(call.lane).addFirst(call);
+            }
+            drain();
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private long retryDelayNanos(int attempt, Throwable error) {
+        var retryAfter = RateLimitHeaders.of(headersOf(error)).getRetryAfter();
+        if (retryAfter != null) {
+            var nanos = retryAfter.toNanos();
+            return nanos + ThreadLocalRandom.current().nextLong(nanos / 10 + 1);
+        }
+        var ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        var status = statusOf(error);
+        if (status == TOO_MANY_REQUESTS) {
+            return !String.valueOf(bodyOf(error)).contains("insufficient_quota");
+        }
+        return RETRYABLE_STATUSES.contains(status) || error instanceof IOException
+                || error.getCause() instanceof IOException;
+    }
+
+    /**
+     * Status of a failed call. Blocking calls fail with an {@link OpenAIException}, while streamed
+     * ones keep the {@link CleverClientException} of the HTTP layer.
+     */
+    private static int statusOf(Throwable error) {
+        if (error instanceof OpenAIException && ((OpenAIException) error).getResponseInfo() != null) {
+            return ((OpenAIException) error).getResponseInfo().getStatus();
+        }
+        if (error instanceof CleverClientException) {
+            return ((CleverClientException) error).responseInfo().map(info -> info.getStatusCode()).orElse(0);
+        }
+        return 0;
+    }
+
+    private static Map<String, List<String>> headersOf(Throwable error) {
+        if (error instanceof OpenAIException && ((OpenAIException) error).getResponseInfo() != null) {
+            return ((OpenAIException) error).getResponseInfo().getResponseHeaders();
+        }
+        if (error instanceof CleverClientException) {
+            return ((CleverClientException) error).responseInfo().map(info -> info.getHeaders()).orElse(null);
+        }
+        return null;
+    }
+
+    private static Object bodyOf(Throwable error) {
+        if (error instanceof OpenAIException && ((OpenAIException) error).getResponseInfo() != null) {
+            return ((OpenAIException) error).getResponseInfo().getErrorResponse();
+        }
+        if (error instanceof CleverClientException) {
+            return ((CleverClientException) error).responseInfo().map(info -> info.getData()).orElse(null);
+        }
+        return null;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * A per-minute budget that refills continuously, up to its limit.
+     */
+    private static class Budget {
+
+        private double limit;
+        private double available;
+        private long refilledAt;
+
+        Budget(double limit) {
+            this.limit = limit;
+            this.available = limit;
+            this.refilledAt = System.nanoTime();
+        }
+
+        long waitNanos(double amount, double reserve, long now) {
+            refill(now);
+            var needed = Math.min(limit, Math.min(amount, limit) + reserve * limit);
+            if (available >= needed) {
+                return 0;
+            }
+            return (long) ((needed - available) / limit * TimeUnit.MINUTES.toNanos(1));
+        }
+
+        void take(double amount) {
+            available -= Math.min(amount, limit);
+        }
+
+        /**
+         * Adopts the limit the server reports and never assumes more room than it has left.
+         */
+        void follow(Long serverLimit, Long serverRemaining) {
+            refill(System.nanoTime());
+            if (serverLimit != null && serverLimit > 0) {
+                limit = serverLimit;
+            }
+            if (serverRemaining != null) {
+                available = Math.min(available, serverRemaining);
+            }
+        }
+
+        private void refill(long now) {
+            available = Math.min(limit, available + (now - refilledAt) / (double) TimeUnit.MINUTES.toNanos(1) * limit);
+            refilledAt = now;
+        }
+
+    }
+
+    private static class Call<T> {
+
+        private final Lane lane;
+        private final long tokens;
+        private final Supplier<CompletableFuture<T>> supplier;
+        private final CompletableFuture<T> result;
+        private int attempts;
+        private long queuedAt;
+
+        Call(Lane lane, long tokens, Supplier<CompletableFuture<T>> supplier) {
+            this.lane = lane;
+            this.tokens = tokens;
+            this.supplier = supplier;
+            this.result = new CompletableFuture<>();
+            this.queuedAt = System.nanoTime();
+        }
+
+    }
+
+}
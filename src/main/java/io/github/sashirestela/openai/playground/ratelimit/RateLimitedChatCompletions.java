@@ -0,0 +1,88 @@
+package io.github.sashirestela.openai.playground.ratelimit;
+
+import io.github.sashirestela.openai.OpenAI;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartImageUrl;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartText;
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.conversation.TokenEstimator;
+import io.github.sashirestela.openai.playground.ratelimit.RateLimitScheduler.Lane;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Chat completions service whose calls go through a {@link RateLimitScheduler} in one lane. Each
+ * call is charged its estimated prompt tokens plus its completion limit, the way the API counts
+ * tokens against the per-minute budget.
+ */
+public class RateLimitedChatCompletions implements OpenAI.ChatCompletions {
+
+    private static final int DEFAULT_COMPLETION_TOKENS = 1_000;
+    private static final int IMAGE_TOKENS = 765;
+    private static final TokenEstimator MESSAGE_TOKENS = TokenEstimator.charBased();
+
+    private final OpenAI.ChatCompletions delegate;
+    private final RateLimitScheduler scheduler;
+    private final Lane lane;
+
+    public RateLimitedChatCompletions(OpenAI.ChatCompletions delegate, RateLimitScheduler scheduler, Lane lane) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.lane = lane;
+    }
+
+    @Override
+    public CompletableFuture<Chat> create(ChatRequest chatRequest) {
+        return scheduler.submit(lane, estimateTokens(chatRequest), () -> delegate.create(chatRequest));
+    }
+
+    @Override
+    public CompletableFuture<Stream<Chat>> createStream(ChatRequest chatRequest) {
+        return scheduler.submit(lane, estimateTokens(chatRequest), () -> delegate.createStream(chatRequest));
+    }
+
+    @Override
+    public CompletableFuture<Chat> createPrimitive(ChatRequest chatRequest) {
+        return scheduler.submit(lane, estimateTokens(chatRequest), () -> delegate.createPrimitive(chatRequest));
+    }
+
+    @Override
+    public CompletableFuture<Stream<Chat>> createStreamPrimitive(ChatRequest chatRequest) {
+        return scheduler.submit(lane, estimateTokens(chatRequest),
+                () -> delegate.createStreamPrimitive(chatRequest));
+    }
+
+    /**
+     * Prompt tokens by the character estimate, counting images at a flat rate instead of by the size
+     * of their base64 payload, plus the completion limit of the request.
+     */
+    public static long estimateTokens(ChatRequest chatRequest) {
+        long tokens = 0;
+        for (var message : chatRequest.getMessages()) {
+            if (message instanceof UserMessage && ((UserMessage) message).getContent() instanceof List) {
+                for (var part : (List<?>) ((UserMessage) message).getContent()) {
+                    if (part instanceof ContentPartText) {
+                        tokens += String.valueOf(((ContentPartText) part).getText()).length() / 4 + 1;
+                    } else if (part instanceof ContentPartImageUrl) {
+                        tokens += IMAGE_TOKENS;
+                    }
+                }
+                tokens += 4;
+            } else {
+                tokens += MESSAGE_TOKENS.estimate(message);
+            }
+        }
+        var completion = chatRequest.getMaxCompletionTokens() != null ? chatRequest.getMaxCompletionTokens()
+                : legacyMaxTokens(chatRequest);
+        return tokens + completion;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int legacyMaxTokens(ChatRequest chatRequest) {
+        return chatRequest.getMaxTokens() != null ? chatRequest.getMaxTokens() : DEFAULT_COMPLETION_TOKENS;
+    }
+
+}
@@ -0,0 +1,56 @@
+package io.github.sashirestela.openai.playground.sink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends tokens to a UTF-8 file through a buffered writer.
+ */
+public class FileTokenSink implements TokenSink {
+
+    private final Path file;
+    private final Writer writer;
+
+    public FileTokenSink(Path file) {
+        this.file = file;
+        try {
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the token file " + file, e);
+        }
+    }
+
+    @Override
+    public void emit(String token) {
+        try {
+            writer.write(token);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write to the token file " + file, e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot flush the token file " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close the token file " + file, e);
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package io.github.sashirestela.openai.playground.sink;
+
+import io.github.sashirestela.openai.playground.support.LatencyHistogram;
+
+/**
+ * Records time-to-first-token and inter-token latency on the producer side, i.e. when tokens come
+ * off the response stream rather than when they are written, and forwards them to a delegate.
+ * Call {@link #startStream()} right before sending each request. One instance follows one stream
+ * at a time; concurrent streams should use one instance each, sharing the histograms.
+ */
+public class MeteredTokenSink implements TokenSink {
+
+    private final TokenSink delegate;
+    private final LatencyHistogram timeToFirstToken;
+    private final LatencyHistogram interTokenLatency;
+    private volatile long streamStart;
+    private volatile long lastToken;
+
+    public MeteredTokenSink(TokenSink delegate) {
+        this(delegate, new LatencyHistogram("time-to-first-token"), new LatencyHistogram("inter-token-latency"));
+    }
+
+    public MeteredTokenSink(TokenSink delegate, LatencyHistogram timeToFirstToken,
+            LatencyHistogram interTokenLatency) {
+        this.delegate = delegate;
+        this.timeToFirstToken = timeToFirstToken;
+        this.interTokenLatency = interTokenLatency;
+    }
+
+    public void startStream() {
+        streamStart = System.nanoTime();
+        lastToken = 0;
+    }
+
+    @Override
+    public void emit(String token) {
+        if (token == null || token.isEmpty()) {
+            return;
+        }
+        var now = System.nanoTime();
+        if (lastToken != 0) {
+            interTokenLatency.record(now - lastToken);
+        } else if (streamStart != 0) {
+            timeToFirstToken.record(now - streamStart);
+        }
+        lastToken = now;
+        delegate.emit(token);
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    public LatencyHistogram getTimeToFirstToken() {
+        return timeToFirstToken;
+    }
+
+    public LatencyHistogram getInterTokenLatency() {
+        return interTokenLatency;
+    }
+
+}
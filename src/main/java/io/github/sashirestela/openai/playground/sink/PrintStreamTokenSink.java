@@ -0,0 +1,27 @@
+package io.github.sashirestela.openai.playground.sink;
+
+import java.io.PrintStream;
+
+/**
+ * Writes tokens to a print stream such as {@code System.out}. The stream is flushed but never
+ * closed, since it usually belongs to someone else.
+ */
+public class PrintStreamTokenSink implements TokenSink {
+
+    private final PrintStream output;
+
+    public PrintStreamTokenSink(PrintStream output) {
+        this.output = output;
+    }
+
+    @Override
+    public void emit(String token) {
+        output.print(token);
+    }
+
+    @Override
+    public void flush() {
+        output.flush();
+    }
+
+}
@@ -0,0 +1,211 @@
+package io.github.sashirestela.openai.playground.sink;
+
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+import lombok.Builder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decouples the threads that drain response streams from a slow downstream sink such as a
+ * terminal. Producers claim slots of a bounded multi-producer/single-consumer ring with a CAS on
+ * the tail and never take a lock. A single writer thread drains the ring into a batch and passes it
+ * downstream once it reaches {@code maxBatchChars} or has waited {@code flushInterval}, or when a
+ * producer asks for a flush. The writer parks while the ring is empty, and the first producer to
+ * publish a token after that wakes it up. A full ring makes producers spin and then park briefly, so
+ * tokens are never dropped. Closing marks the tail with a flag in the same CAS that producers use to
+ * claim a slot: an emit that claimed its slot before is still written, and any later one is rejected.
+ */
+public class RingBufferTokenSink implements TokenSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(RingBufferTokenSink.class);
+
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int DEFAULT_MAX_BATCH_CHARS = 4096;
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(16);
+    private static final int SPINS_BEFORE_PARK = 64;
+    private static final long CLOSED = 1L << 62;
+
+    private final TokenSink downstream;
+    private final AtomicReferenceArray<String> ring;
+    private final int mask;
+    private final int maxBatchChars;
+    private final long flushIntervalNanos;
+    private final AtomicLong tail;
+    private final AtomicLong head;
+    private final AtomicLong written;
+    private final AtomicLong flushRequested;
+    private final Thread writer;
+    private volatile boolean writerParked;
+
+    @Builder
+    public RingBufferTokenSink(TokenSink downstream, Integer capacity, Integer maxBatchChars,
+            Duration flushInterval) {
+        this.downstream = downstream;
+        var size = Integer.highestOneBit(Math.max(2, capacity != null ? capacity : DEFAULT_CAPACITY) * 2 - 1);
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxBatchChars = maxBatchChars != null ? maxBatchChars : DEFAULT_MAX_BATCH_CHARS;
+        this.flushIntervalNanos = (flushInterval != null ? flushInterval : DEFAULT_FLUSH_INTERVAL).toNanos();
+        this.tail = new AtomicLong();
+        this.head = new AtomicLong();
+        this.written = new AtomicLong();
+        this.flushRequested = new AtomicLong(-1);
+        this.writer = new DaemonThreadFactory("token-sink").newThread(this::drainLoop);
+        this.writer.start();
+    }
+
+    @Override
+    public void emit(String token) {
+        if (token == null || token.isEmpty()) {
+            return;
+        }
+        long slot;
+        int spins = 0;
+        while (true) {
+            slot = tail.get();
+            if ((slot & CLOSED) != 0) {
+                throw new IllegalStateException("The token sink is closed.");
+            }
+            if (slot - head.get() >= ring.length()) {
+                backOff(++spins);
+            } else if (tail.compareAndSet(slot, slot + 1)) {
+                break;
+            }
+        }
+        ring.lazySet((int) slot & mask, token);
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Blocks until every token emitted before this call has been passed downstream and flushed.
+     */
+    @Override
+    public void flush() {
+        var target = claimed();
+        flushRequested.accumulateAndGet(target, Math::max);
+        LockSupport.unpark(writer);
+        int spins = 0;
+        while (written.get() < target && writer.isAlive()) {
+            backOff(++spins);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        long current;
+        do {
+            current = tail.get();
+            if ((current & CLOSED) != 0) {
+                return;
+            }
+        } while (!tail.compareAndSet(current, current | CLOSED));
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        downstream.close();
+    }
+
+    /**
+     * @return tokens emitted but not yet passed downstream.
+     */
+    public long getPending() {
+        return claimed() - written.get();
+    }
+
+    private long claimed() {
+        return tail.get() & ~CLOSED;
+    }
+
+    private boolean isClosed() {
+        return (tail.get() & CLOSED) != 0;
+    }
+
+    private void drainLoop() {
+        var batch = new StringBuilder(maxBatchChars);
+        long batchStart = 0;
+        long consumed = head.get();
+        while (!isClosed() || consumed < claimed()) {
+            var index = (int) consumed & mask;
+            var token = ring.get(index);
+            if (token != null) {
+                ring.lazySet(index, null);
+                head.lazySet(++consumed);
+                if (batch.length() == 0) {
+                    batchStart = System.nanoTime();
+                }
+                batch.append(token);
+                if (batch.length() >= maxBatchChars) {
+                    write(batch, consumed);
+                }
+                continue;
+            }
+            if (consumed < claimed()) {
+                // A producer claimed the slot but has not published the token yet.
+                Thread.onSpinWait();
+                continue;
+            }
+            var flushDue = flushRequested.get() >= 0 && flushRequested.get() <= consumed
+                    && written.get() < flushRequested.get();
+            if (batch.length() > 0 && (flushDue || System.nanoTime() - batchStart >= flushIntervalNanos)) {
+                write(batch, consumed);
+            } else if (flushDue) {
+                written.set(consumed);
+            } else {
+                park(consumed, batch.length() > 0
+                        ? Math.max(1, flushIntervalNanos - (System.nanoTime() - batchStart))
+                        : 0);
+            }
+        }
+        if (batch.length() > 0) {
+            write(batch, consumed);
+        }
+    }
+
+    /**
+     * Parks the writer until a producer publishes a token, a flush or close is asked for, or the given
+     * time has passed (0 to wait without a limit).
+     */
+    private void park(long consumed, long nanos) {
+        writerParked = true;
+        // A producer that claimed a slot before seeing the flag does not unpark: check the tail again.
+        if (consumed == claimed() && !isClosed()) {
+            if (nanos > 0) {
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        writerParked = false;
+    }
+
+    private void write(StringBuilder batch, long consumed) {
+        try {
+            downstream.emit(batch.toString());
+            downstream.flush();
+        } catch (RuntimeException e) {
+            logger.warn("Cannot write {} chars to the downstream token sink: {}", batch.length(), e.getMessage());
+        }
+        batch.setLength(0);
+        written.set(consumed);
+    }
+
+    private static void backOff(int spins) {
+        if (spins < SPINS_BEFORE_PARK) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+    }
+
+}
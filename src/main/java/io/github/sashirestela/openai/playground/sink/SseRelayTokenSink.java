@@ -0,0 +1,148 @@
+package io.github.sashirestela.openai.playground.sink;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Relays tokens to every client connected to {@code GET /tokens} as server-sent events, one JSON
+ * string per event, so a browser or {@code curl -N} can follow a conversation live. Clients that
+ * connect late only see what is emitted after they connect; clients that disconnect are dropped on
+ * the next write.
+ */
+public class SseRelayTokenSink implements TokenSink {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<OutputStream> clients;
+    private final CountDownLatch closed;
+
+    public SseRelayTokenSink(int port) {
+        this.clients = new CopyOnWriteArrayList<>();
+        this.closed = new CountDownLatch(1);
+        try {
+            this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start the token relay on port " + port, e);
+        }
+        this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("token-relay"));
+        server.createContext("/tokens", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/tokens";
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    @Override
+    public void emit(String token) {
+        send(("data: " + quote(token) + "\n\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void flush() {
+        for (var client : clients) {
+            synchronized (client) {
+                try {
+                    client.flush();
+                } catch (IOException e) {
+                    clients.remove(client);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        send("event: done\ndata: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        for (var client : clients) {
+            synchronized (client) {
+                try {
+                    client.close();
+                } catch (IOException e) {
+                    // The client is gone already.
+                }
+            }
+        }
+        clients.clear();
+        closed.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        var output = exchange.getResponseBody();
+        clients.add(output);
+        try {
+            closed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(output);
+            output.close();
+        }
+    }
+
+    private void send(byte[] event) {
+        for (var client : clients) {
+            synchronized (client) {
+                try {
+                    client.write(event);
+                } catch (IOException e) {
+                    clients.remove(client);
+                }
+            }
+        }
+    }
+
+    private static String quote(String text) {
+        var quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+}
@@ -0,0 +1,20 @@
+package io.github.sashirestela.openai.playground.sink;
+
+/**
+ * Destination for streamed text. Producers call {@link #emit(String)} from the thread that drains
+ * the response stream; {@link #flush()} returns once everything emitted before it has been written
+ * out.
+ */
+public interface TokenSink extends AutoCloseable {
+
+    void emit(String token);
+
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+        flush();
+    }
+
+}
@@ -0,0 +1,127 @@
+package io.github.sashirestela.openai.playground.startup;
+
+import io.github.sashirestela.cleverclient.CleverClient;
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.OpenAI;
+import io.github.sashirestela.openai.playground.tool.ToolSchemas;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the GraalVM native-image metadata of the playground into the compiled classes directory,
+ * under {@code META-INF/native-image}, where {@code native-image} picks it up from the classpath.
+ * Jackson binds the simple-openai domain and the playground's own types by reflection, the tool
+ * schemas read the fields of the functional classes, and cleverclient reads the annotations of the
+ * service interfaces and implements them as dynamic proxies, so every class of the playground,
+ * simple-openai and cleverclient is registered for reflection, and every service interface as a
+ * proxy. Listing them from the jars at build time keeps the metadata in step with the library
+ * version. Run by the {@code native} profile after compilation.
+ */
+public class NativeImageConfig {
+
+    private static final String METADATA_DIRECTORY = "META-INF/native-image/io.github.sashirestela/"
+            + "simple-openai-playground";
+    private static final String SERVICE_PACKAGE = OpenAI.class.getPackageName() + ".";
+
+    private NativeImageConfig() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        var classesDirectory = Paths.get(args.length > 0 ? args[0] : "target/classes");
+        var classNames = new TreeSet<String>();
+        classNames.addAll(classNames(classesDirectory));
+        classNames.addAll(classNames(codeSource(OpenAI.class)));
+        classNames.addAll(classNames(codeSource(CleverClient.class)));
+
+        List<Map<String, Object>> reflection = new ArrayList<>();
+        List<Map<String, Object>> proxies = new ArrayList<>();
+        for (var className : classNames) {
+            reflection.add(reflectionEntry(className));
+            if (isServiceInterface(className)) {
+                proxies.add(Map.of("interfaces", List.of(className)));
+            }
+        }
+        var resources = Map.of("resources", Map.of("includes", List.of(
+                Map.of("pattern", "\\Q" + ToolSchemas.RESOURCE + "\\E"),
+                Map.of("pattern", "\\Qsimplelogger.properties\\E"))));
+
+        var directory = classesDirectory.resolve(METADATA_DIRECTORY);
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve("reflect-config.json"), JsonUtil.objectToJson(reflection));
+        Files.writeString(directory.resolve("proxy-config.json"), JsonUtil.objectToJson(proxies));
+        Files.writeString(directory.resolve("resource-config.json"), JsonUtil.objectToJson(resources));
+        System.out.println("Wrote native-image metadata for " + reflection.size() + " classes and "
+                + proxies.size() + " proxies to " + directory);
+    }
+
+    private static Map<String, Object> reflectionEntry(String className) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("name", className);
+        entry.put("allDeclaredConstructors", true);
+        entry.put("allPublicConstructors", true);
+        entry.put("allDeclaredMethods", true);
+        entry.put("allPublicMethods", true);
+        entry.put("allDeclaredFields", true);
+        entry.put("allPublicFields", true);
+        return entry;
+    }
+
+    private static boolean isServiceInterface(String className) {
+        if (!className.startsWith(SERVICE_PACKAGE) || className.indexOf('.', SERVICE_PACKAGE.length()) >= 0
+                || !className.contains("$")) {
+            return false;
+        }
+        try {
+            return Class.forName(className, false, NativeImageConfig.class.getClassLoader()).isInterface();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static List<String> classNames(Path location) throws IOException {
+        if (Files.isDirectory(location)) {
+            try (var files = Files.walk(location)) {
+                return files.map(file -> location.relativize(file).toString().replace('\\', '/'))
+                        .filter(NativeImageConfig::isClassFile)
+                        .map(NativeImageConfig::toClassName)
+                        .collect(Collectors.toList());
+            }
+        }
+        try (var jar = new JarFile(location.toFile())) {
+            return jar.stream()
+                    .map(JarEntry::getName)
+                    .filter(name -> isClassFile(name) && !name.startsWith("META-INF/"))
+                    .map(NativeImageConfig::toClassName)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isClassFile(String path) {
+        return path.endsWith(".class") && !path.endsWith("-info.class");
+    }
+
+    private static String toClassName(String path) {
+        return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+    }
+
+    private static Path codeSource(Class<?> type) {
+        try {
+            return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("Cannot locate the jar of " + type.getName(), e);
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package io.github.sashirestela.openai.playground.startup;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.common.StreamOptions;
+import io.github.sashirestela.openai.common.function.FunctionDef;
+import io.github.sashirestela.openai.common.function.FunctionExecutor;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.DemoConversationWithChatCompletion.CurrentTemperature;
+import io.github.sashirestela.openai.playground.DemoConversationWithChatCompletion.RainProbability;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import io.github.sashirestela.openai.playground.tool.ToolSchemas;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Short-lived launcher that does what the conversation demo does up to its first answer: builds the
+ * client and the tools, sends a streamed chat request and waits for the first token. It prints the
+ * moments it reached each step as one {@code startup} line of epoch microseconds, which
+ * {@code DemoStartupTime} compares against the moment it started the process:
+ * <ul>
+ * <li>{@code main}: JVM startup and loading of the main class.</li>
+ * <li>{@code ready}: client and tool schemas built, the first request about to be sent.</li>
+ * <li>{@code response}: response headers of the first request received, including connection
+ * setup.</li>
+ * <li>{@code first-token}: first streamed token received.</li>
+ * </ul>
+ * With {@code --base-url} it talks to that server, with the key in {@code OPENAI_API_KEY} if set;
+ * otherwise it starts a stub server of its own, which is how the build trains the AppCDS archive.
+ */
+public class StartupProbe {
+
+    public static void main(String[] args) {
+        var mainAt = now();
+        var arguments = List.of(args);
+        var baseUrlIndex = arguments.indexOf("--base-url");
+        StubOpenAIServer stubServer = null;
+        String baseUrl;
+        if (baseUrlIndex >= 0 && baseUrlIndex + 1 < args.length) {
+            baseUrl = args[baseUrlIndex + 1];
+        } else {
+            stubServer = StubOpenAIServer.builder().answer("It is 18 degrees Celsius in Lima.").build();
+            baseUrl = stubServer.getBaseUrl();
+        }
+        var apiKey = System.getenv("OPENAI_API_KEY");
+        var openAI = SimpleOpenAI.builder()
+                .apiKey(apiKey != null ? apiKey : "stub")
+                .baseUrl(baseUrl)
+                .build();
+        var functionExecutor = new FunctionExecutor(List.of(
+                FunctionDef.builder()
+                        .name("getCurrentTemperature")
+                        .description("Get the current temperature for a specific location")
+                        .functionalClass(CurrentTemperature.class)
+                        .schemaConverter(ToolSchemas.precomputed())
+                        .build(),
+                FunctionDef.builder()
+                        .name("getRainProbability")
+                        .description("Get the probability of rain for a specific location")
+                        .functionalClass(RainProbability.class)
+                        .schemaConverter(ToolSchemas.precomputed())
+                        .build()));
+        var chatRequest = ChatRequest.builder()
+                .model("gpt-4o-mini")
+                .message(UserMessage.of("Answer in one short sentence: what is the weather like in Lima?"))
+                .tools(functionExecutor.getToolFunctions())
+                .stream(true)
+                .streamOptions(StreamOptions.of(Boolean.TRUE))
+                .build();
+        var readyAt = now();
+        var chatStream = openAI.chatCompletions().createStream(chatRequest).join();
+        var responseAt = now();
+        var firstTokenAt = 0L;
+        var iterator = chatStream.iterator();
+        while (firstTokenAt == 0 && iterator.hasNext()) {
+            var choices = iterator.next().getChoices();
+            var delta = choices.isEmpty() ? null : choices.get(0).getMessage();
+            if (delta != null && (delta.getContent() != null || delta.getToolCalls() != null)) {
+                firstTokenAt = now();
+            }
+        }
+        iterator.forEachRemaining(chunk -> {
+        });
+        System.out.println("startup main=" + mainAt + " ready=" + readyAt + " response=" + responseAt
+                + " first-token=" + firstTokenAt);
+        openAI.shutDown();
+        if (stubServer != null) {
+            stubServer.close();
+        }
+    }
+
+    private static long now() {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    }
+
+}
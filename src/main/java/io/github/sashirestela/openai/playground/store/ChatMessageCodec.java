@@ -0,0 +1,130 @@
+package io.github.sashirestela.openai.playground.store;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.common.audio.InputAudioFormat;
+import io.github.sashirestela.openai.common.content.ContentPart;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartImageUrl;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartImageUrl.ImageUrl;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartInputAudio;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartInputAudio.InputAudio;
+import io.github.sashirestela.openai.common.content.ContentPart.ContentPartText;
+import io.github.sashirestela.openai.common.content.ImageDetail;
+import io.github.sashirestela.openai.common.tool.ToolCall;
+import io.github.sashirestela.openai.domain.chat.ChatMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.AssistantMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.DeveloperMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.SystemMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.ToolMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * JSON form of chat messages in the store. Messages are written in the same JSON the API receives,
+ * and read back by role into the request message types, because the library's message classes
+ * cannot be deserialized directly. A {@code ResponseMessage} from a completion comes back as the
+ * equivalent {@link AssistantMessage}.
+ */
+final class ChatMessageCodec {
+
+    private ChatMessageCodec() {
+    }
+
+    static byte[] encode(ChatMessage message) {
+        return JsonUtil.objectToJson(message).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] encodeAll(List<? extends ChatMessage> messages) {
+        return JsonUtil.objectToJson(messages).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    static ChatMessage decode(byte[] json) {
+        return fromMap(JsonUtil.jsonToObject(new String(json, StandardCharsets.UTF_8), Map.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<ChatMessage> decodeAll(byte[] json) {
+        var maps = JsonUtil.jsonToList(new String(json, StandardCharsets.UTF_8), Map.class);
+        List<ChatMessage> messages = new ArrayList<>(maps.size());
+        for (var map : maps) {
+            messages.add(fromMap(map));
+        }
+        return messages;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ChatMessage fromMap(Map<String, Object> map) {
+        var role = String.valueOf(map.get("role"));
+        var name = (String) map.get("name");
+        switch (role) {
+            case "system":
+                return SystemMessage.of((String) map.get("content"), name);
+            case "developer":
+                return DeveloperMessage.of((String) map.get("content"), name);
+            case "user":
+                var content = map.get("content");
+                return UserMessage.of(content instanceof List ? contentParts((List<Map<String, Object>>) content)
+                        : content, name);
+            case "assistant":
+                var audio = (Map<String, Object>) map.get("audio");
+                var toolCalls = (List<Object>) map.get("tool_calls");
+                return AssistantMessage.builder()
+                        .content((String) map.get("content"))
+                        .refusal((String) map.get("refusal"))
+                        .name(name)
+                        .audioId(audio != null ? (String) audio.get("id") : null)
+                        .toolCalls(toolCalls != null ? convertAll(toolCalls, ToolCall.class) : null)
+                        .build();
+            case "tool":
+                return ToolMessage.of((String) map.get("content"), (String) map.get("tool_call_id"));
+            default:
+                throw new IllegalArgumentException("Unknown message role " + role);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ContentPart> contentParts(List<Map<String, Object>> parts) {
+        List<ContentPart> contentParts = new ArrayList<>(parts.size());
+        for (var part : parts) {
+            var type = String.valueOf(part.get("type"));
+            switch (type) {
+                case "text":
+                    contentParts.add(ContentPartText.of((String) part.get("text")));
+                    break;
+                case "image_url":
+                    var imageUrl = (Map<String, Object>) part.get("image_url");
+                    var detail = (String) imageUrl.get("detail");
+                    contentParts.add(ContentPartImageUrl.of(ImageUrl.of((String) imageUrl.get("url"),
+                            detail != null ? ImageDetail.valueOf(detail.toUpperCase(Locale.ROOT)) : null)));
+                    break;
+                case "input_audio":
+                    var inputAudio = (Map<String, Object>) part.get("input_audio");
+                    contentParts.add(ContentPartInputAudio.of(InputAudio.of((String) inputAudio.get("data"),
+                            InputAudioFormat.valueOf(String.valueOf(inputAudio.get("format"))
+                                    .toUpperCase(Locale.ROOT)))));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown content part type " + type);
+            }
+        }
+        return contentParts;
+    }
+
+    private static <T> List<T> convertAll(List<Object> values, Class<T> type) {
+        List<T> converted = new ArrayList<>(values.size());
+        for (var value : values) {
+            converted.add(convert(value, type));
+        }
+        return converted;
+    }
+
+    private static <T> T convert(Object value, Class<T> type) {
+        return JsonUtil.jsonToObject(JsonUtil.objectToJson(value), type);
+    }
+
+}
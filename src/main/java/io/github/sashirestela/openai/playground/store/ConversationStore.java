@@ -0,0 +1,360 @@
+package io.github.sashirestela.openai.playground.store;
+
+import io.github.sashirestela.openai.domain.chat.ChatMessage;
+import lombok.Builder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Durable conversation history on top of a {@link SegmentedLog}. Every message of a session is
+ * appended as its own record, and every {@code snapshotEvery} messages the session is rewritten as
+ * a single snapshot record, so the in-memory index only has to keep, per session, the offset of
+ * its last snapshot and the offsets of the few messages after it. Loading a session reads those
+ * records straight from the mapped segments, and its cost does not depend on how long the
+ * conversation has run. A caller can also snapshot a trimmed history itself, as
+ * {@link io.github.sashirestela.openai.playground.conversation.ConversationMemory} does after it
+ * evicts old turns.
+ * <p>
+ * Records superseded by a snapshot, or by the deletion of their session, are dead. Segments at the
+ * front of the log with no live record are deleted right away, and {@link #compact()} re-snapshots
+ * the sessions still pinning mostly dead segments so those can go too. The index is checkpointed to
+ * a file on close, so a clean reopen only replays the records written after it; after a crash the
+ * whole log is replayed. The directory is locked while the store is open, so a directory is written
+ * by one JVM at a time and can be taken over by another once it is released; see
+ * {@link ShardedConversationStore}.
+ */
+public class ConversationStore implements AutoCloseable {
+
+    static final byte MESSAGE = 1;
+    static final byte SNAPSHOT = 2;
+    static final byte DELETE = 3;
+
+    private static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final int DEFAULT_SNAPSHOT_EVERY = 64;
+    private static final double DEFAULT_COMPACTION_LIVE_RATIO = 0.5;
+    private static final String LOCK_FILE = "store.lock";
+    private static final String CHECKPOINT_FILE = "sessions.idx";
+    private static final int CHECKPOINT_VERSION = 1;
+
+    private final Path directory;
+    private final int snapshotEvery;
+    private final double compactionLiveRatio;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final SegmentedLog log;
+    private final Map<String, SessionIndex> sessions;
+    private int droppedSegments;
+    private boolean closed;
+
+    @Builder
+    public ConversationStore(Path directory, Integer segmentBytes, Integer snapshotEvery,
+            Double compactionLiveRatio) {
+        this.directory = directory;
+        this.snapshotEvery = snapshotEvery != null ? snapshotEvery : DEFAULT_SNAPSHOT_EVERY;
+        this.compactionLiveRatio = compactionLiveRatio != null ? compactionLiveRatio
+                : DEFAULT_COMPACTION_LIVE_RATIO;
+        try {
+            Files.createDirectories(directory);
+            this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            this.lock = tryLock(lockChannel);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the conversation store " + directory, e);
+        }
+        if (lock == null) {
+            closeQuietly(lockChannel);
+            throw new IllegalStateException("The conversation store " + directory + " is already open");
+        }
+        this.log = new SegmentedLog(directory, segmentBytes != null ? segmentBytes : DEFAULT_SEGMENT_BYTES);
+        this.sessions = new HashMap<>();
+        recover();
+    }
+
+    public synchronized void append(String sessionId, ChatMessage message) {
+        var index = sessions.computeIfAbsent(sessionId, id -> new SessionIndex());
+        var offset = log.append(MESSAGE, sessionId, ChatMessageCodec.encode(message));
+        log.addLive(offset, log.sizeOf(offset));
+        index.tail.add(offset);
+        if (index.tail.size() >= snapshotEvery) {
+            snapshot(sessionId, load(sessionId));
+        }
+    }
+
+    public synchronized void appendAll(String sessionId, List<? extends ChatMessage> messages) {
+        for (var message : messages) {
+            append(sessionId, message);
+        }
+    }
+
+    /**
+     * Replaces the stored history of a session with the given messages.
+     */
+    public synchronized void snapshot(String sessionId, List<? extends ChatMessage> messages) {
+        var offset = log.append(SNAPSHOT, sessionId, ChatMessageCodec.encodeAll(messages));
+        var index = sessions.get(sessionId);
+        if (index != null) {
+            kill(index);
+        } else {
+            index = new SessionIndex();
+            sessions.put(sessionId, index);
+        }
+        log.addLive(offset, log.sizeOf(offset));
+        index.snapshot = offset;
+        dropDeadSegments();
+    }
+
+    /**
+     * The stored history of a session, or an empty list if the session is unknown.
+     */
+    public synchronized List<ChatMessage> load(String sessionId) {
+        var index = sessions.get(sessionId);
+        if (index == null) {
+            return new ArrayList<>();
+        }
+        List<ChatMessage> messages = index.snapshot >= 0
+                ? ChatMessageCodec.decodeAll(log.read(index.snapshot).body)
+                : new ArrayList<>(index.tail.size());
+        for (var offset : index.tail) {
+            messages.add(ChatMessageCodec.decode(log.read(offset).body));
+        }
+        return messages;
+    }
+
+    public synchronized boolean contains(String sessionId) {
+        return sessions.containsKey(sessionId);
+    }
+
+    public synchronized boolean delete(String sessionId) {
+        var index = sessions.remove(sessionId);
+        if (index == null) {
+            return false;
+        }
+        log.append(DELETE, sessionId, new byte[0]);
+        kill(index);
+        dropDeadSegments();
+        return true;
+    }
+
+    public synchronized Set<String> getSessionIds() {
+        return new HashSet<>(sessions.keySet());
+    }
+
+    /**
+     * Reclaims space from the front of the log. Going from the oldest sealed segment on, as long as
+     * a segment is at most {@code compactionLiveRatio} live, the sessions that still have records in
+     * it are re-snapshotted at the end of the log, which leaves the segment dead.
+     *
+     * @return the number of segments deleted
+     */
+    public synchronized int compact() {
+        var droppedBefore = droppedSegments;
+        for (var segment : log.sealedSegments()) {
+            var base = segment[0];
+            var end = segment[1];
+            if (segment[2] > compactionLiveRatio * (end - base)) {
+                break;
+            }
+            for (var entry : new ArrayList<>(sessions.entrySet())) {
+                if (entry.getValue().hasRecordIn(base, end)) {
+                    snapshot(entry.getKey(), load(entry.getKey()));
+                }
+            }
+        }
+        dropDeadSegments();
+        return droppedSegments - droppedBefore;
+    }
+
+    /**
+     * Forces the records written so far to disk. Without it they survive a crash of the process,
+     * but not of the machine.
+     */
+    public synchronized void flush() {
+        log.force();
+    }
+
+    public synchronized int getSegmentCount() {
+        return log.getSegmentCount();
+    }
+
+    public synchronized long getSizeBytes() {
+        return log.getSizeBytes();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        log.force();
+        writeCheckpoint();
+        log.close();
+        try {
+            lock.release();
+        } catch (IOException e) {
+            // Closing the channel releases the lock as well.
+        }
+        closeQuietly(lockChannel);
+    }
+
+    private void dropDeadSegments() {
+        droppedSegments += log.dropDeadSegments();
+    }
+
+    private void kill(SessionIndex index) {
+        if (index.snapshot >= 0) {
+            log.addLive(index.snapshot, -log.sizeOf(index.snapshot));
+        }
+        for (var offset : index.tail) {
+            log.addLive(offset, -log.sizeOf(offset));
+        }
+        index.snapshot = -1;
+        index.tail.clear();
+    }
+
+    private void recover() {
+        var from = readCheckpoint();
+        log.scan(from, record -> {
+            switch (record.kind) {
+                case MESSAGE:
+                    sessions.computeIfAbsent(record.sessionId, id -> new SessionIndex()).tail.add(record.offset);
+                    break;
+                case SNAPSHOT:
+                    var index = sessions.computeIfAbsent(record.sessionId, id -> new SessionIndex());
+                    index.snapshot = record.offset;
+                    index.tail.clear();
+                    break;
+                default:
+                    sessions.remove(record.sessionId);
+                    break;
+            }
+        });
+        for (var index : sessions.values()) {
+            if (index.snapshot >= 0) {
+                log.addLive(index.snapshot, log.sizeOf(index.snapshot));
+            }
+            for (var offset : index.tail) {
+                log.addLive(offset, log.sizeOf(offset));
+            }
+        }
+        dropDeadSegments();
+    }
+
+    /**
+     * Loads the index checkpoint if it still matches the log.
+     *
+     * @return the offset to replay the log from
+     */
+    private long readCheckpoint() {
+        var file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return log.getStartOffset();
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            var version = in.readInt();
+            var startOffset = in.readLong();
+            var endOffset = in.readLong();
+            if (version != CHECKPOINT_VERSION || startOffset != log.getStartOffset()
+                    || endOffset > log.getEndOffset()) {
+                return log.getStartOffset();
+            }
+            var count = in.readInt();
+            for (var i = 0; i < count; i++) {
+                var index = new SessionIndex();
+                var sessionId = in.readUTF();
+                index.snapshot = in.readLong();
+                var tailSize = in.readInt();
+                for (var j = 0; j < tailSize; j++) {
+                    index.tail.add(in.readLong());
+                }
+                sessions.put(sessionId, index);
+            }
+            return endOffset;
+        } catch (IOException e) {
+            sessions.clear();
+            return log.getStartOffset();
+        }
+    }
+
+    private void writeCheckpoint() {
+        try {
+            var temp = Files.createTempFile(directory, CHECKPOINT_FILE, ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(CHECKPOINT_VERSION);
+                out.writeLong(log.getStartOffset());
+                out.writeLong(log.getEndOffset());
+                out.writeInt(sessions.size());
+                for (var entry : sessions.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().snapshot);
+                    out.writeInt(entry.getValue().tail.size());
+                    for (var offset : entry.getValue().tail) {
+                        out.writeLong(offset);
+                    }
+                }
+            }
+            Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the index checkpoint of " + directory, e);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to release.
+        }
+    }
+
+    private static class SessionIndex {
+
+        private final List<Long> tail = new ArrayList<>();
+        private long snapshot = -1;
+
+        boolean hasRecordIn(long base, long end) {
+            if (snapshot >= base && snapshot < end) {
+                return true;
+            }
+            for (var offset : tail) {
+                if (offset >= base && offset < end) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
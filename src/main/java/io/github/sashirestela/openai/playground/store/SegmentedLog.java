@@ -0,0 +1,316 @@
+package io.github.sashirestela.openai.playground.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log split into memory-mapped segment files. A record is addressed by its offset, the
+ * byte position in the whole log, and each segment file is named after the offset of its first
+ * byte, so finding a record is a floor lookup plus a read from mapped memory. Records are framed as
+ * {@code [length][crc32][kind][session id][body]}; the length is written last, and segments are
+ * zero-filled, so a record torn by a crash reads as the end of the log and is overwritten on the
+ * next open. Only the last segment is written to, and segments are only ever deleted from the
+ * front. Each segment counts its live bytes, as told by the store, to decide what compaction can
+ * reclaim. Not thread-safe: the owning store serializes access.
+ */
+class SegmentedLog implements AutoCloseable {
+
+    static final int HEADER_BYTES = 8;
+
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final TreeMap<Long, Segment> segments;
+    private Segment active;
+
+    SegmentedLog(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.segments = new TreeMap<>();
+        open();
+    }
+
+    long append(byte kind, String sessionId, byte[] body) {
+        var id = sessionId.getBytes(StandardCharsets.UTF_8);
+        var length = 1 + 2 + id.length + body.length;
+        if (HEADER_BYTES + length > active.capacity - active.end) {
+            roll(HEADER_BYTES + length);
+        }
+        var buffer = active.buffer;
+        var position = active.end;
+        buffer.position(position + HEADER_BYTES);
+        buffer.put(kind);
+        buffer.putShort((short) id.length);
+        buffer.put(id);
+        buffer.put(body);
+        buffer.putInt(position + 4, crc(buffer, position + HEADER_BYTES, length));
+        buffer.putInt(position, length);
+        active.end = position + HEADER_BYTES + length;
+        return active.base + position;
+    }
+
+    Record read(long offset) {
+        var segment = segmentOf(offset);
+        var buffer = segment.buffer.duplicate();
+        var position = (int) (offset - segment.base);
+        var length = buffer.getInt(position);
+        buffer.position(position + HEADER_BYTES);
+        var kind = buffer.get();
+        var id = new byte[buffer.getShort()];
+        buffer.get(id);
+        var body = new byte[length - 3 - id.length];
+        buffer.get(body);
+        return new Record(offset, kind, new String(id, StandardCharsets.UTF_8), body, HEADER_BYTES + length);
+    }
+
+    /**
+     * Reads every record from the given offset to the end of the log, in order.
+     */
+    void scan(long fromOffset, Consumer<Record> consumer) {
+        for (var segment : segments.values()) {
+            if (segment.base + segment.end <= fromOffset) {
+                continue;
+            }
+            var position = (int) Math.max(0, fromOffset - segment.base);
+            while (position < segment.end) {
+                var record = read(segment.base + position);
+                consumer.accept(record);
+                position += record.size;
+            }
+        }
+    }
+
+    int sizeOf(long offset) {
+        var segment = segmentOf(offset);
+        return HEADER_BYTES + segment.buffer.getInt((int) (offset - segment.base));
+    }
+
+    void addLive(long offset, long bytes) {
+        segmentOf(offset).live += bytes;
+    }
+
+    /**
+     * Deletes the oldest segments for as long as they hold no live record and are not being
+     * written to.
+     *
+     * @return the number of segments deleted
+     */
+    int dropDeadSegments() {
+        var dropped = 0;
+        while (segments.size() > 1 && segments.firstEntry().getValue().live <= 0) {
+            var segment = segments.pollFirstEntry().getValue();
+            segment.close();
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete the log segment " + segment.path, e);
+            }
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * The sealed segments from the oldest on, as {@code [base offset, end offset, live bytes]}.
+     */
+    List<long[]> sealedSegments() {
+        return segments.values()
+                .stream()
+                .filter(segment -> segment != active)
+                .map(segment -> new long[] { segment.base, segment.base + segment.end, segment.live })
+                .collect(Collectors.toList());
+    }
+
+    long getStartOffset() {
+        return segments.firstKey();
+    }
+
+    long getEndOffset() {
+        return active.base + active.end;
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    long getSizeBytes() {
+        return segments.values().stream().mapToLong(segment -> segment.end).sum();
+    }
+
+    /**
+     * Forces the active segment to disk; a segment is forced when it is sealed, so this covers
+     * every record written so far.
+     */
+    void force() {
+        active.buffer.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+        segments.values().forEach(Segment::close);
+        segments.clear();
+    }
+
+    private Segment segmentOf(long offset) {
+        var entry = segments.floorEntry(offset);
+        if (entry == null || offset >= entry.getKey() + entry.getValue().end) {
+            throw new IllegalArgumentException("There is no record at offset " + offset + " of " + directory);
+        }
+        return entry.getValue();
+    }
+
+    private void roll(int recordBytes) {
+        active.buffer.force();
+        active = Segment.map(directory, active.base + active.end, Math.max(segmentBytes, recordBytes));
+        segments.put(active.base, active);
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (var list = Files.list(directory)) {
+                files = list.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            for (var i = 0; i < files.size(); i++) {
+                var name = files.get(i).getFileName().toString();
+                var base = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                var size = Files.size(files.get(i));
+                var capacity = i == files.size() - 1 ? Math.max(size, segmentBytes) : size;
+                segments.put(base, Segment.map(directory, base, (int) capacity));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the log directory " + directory, e);
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, Segment.map(directory, 0L, segmentBytes));
+        }
+        for (var segment : new ArrayList<>(segments.values())) {
+            segment.end = walk(segment, segment == segments.lastEntry().getValue());
+        }
+        active = segments.lastEntry().getValue();
+    }
+
+    /**
+     * Finds the end of the records of a segment. Sealed segments are only walked by their lengths;
+     * the last one, where a crash may have torn a record, is also checked against the checksums and
+     * anything after its last good record is zeroed. That includes the body of a record whose
+     * length was never written, which a shorter record written over it would otherwise leave behind
+     * as garbage once the segment is sealed.
+     */
+    private static int walk(Segment segment, boolean last) {
+        var buffer = segment.buffer;
+        var position = 0;
+        while (position + HEADER_BYTES <= segment.capacity) {
+            var length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > segment.capacity
+                    || (last && buffer.getInt(position + 4) != crc(buffer, position + HEADER_BYTES, length))) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        if (last && !isZero(buffer, position, segment.capacity)) {
+            for (var i = position; i < segment.capacity; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        return position;
+    }
+
+    private static boolean isZero(MappedByteBuffer buffer, int from, int to) {
+        var i = from;
+        for (; i + 8 <= to; i += 8) {
+            if (buffer.getLong(i) != 0) {
+                return false;
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int crc(MappedByteBuffer buffer, int position, int length) {
+        var slice = buffer.duplicate();
+        slice.position(position).limit(position + length);
+        var crc = new CRC32();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    static class Record {
+
+        final long offset;
+        final byte kind;
+        final String sessionId;
+        final byte[] body;
+        final int size;
+
+        Record(long offset, byte kind, String sessionId, byte[] body, int size) {
+            this.offset = offset;
+            this.kind = kind;
+            this.sessionId = sessionId;
+            this.body = body;
+            this.size = size;
+        }
+
+    }
+
+    private static class Segment {
+
+        private final long base;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int end;
+        private long live;
+
+        private Segment(long base, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.base = base;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        static Segment map(Path directory, long base, int capacity) {
+            var path = directory.resolve(String.format("%020d%s", base, SUFFIX));
+            try {
+                var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                return new Segment(base, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map the log segment " + path, e);
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The mapping stays valid until it is collected.
+            }
+        }
+
+    }
+
+}
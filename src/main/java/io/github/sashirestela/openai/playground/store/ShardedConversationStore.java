@@ -0,0 +1,112 @@
+package io.github.sashirestela.openai.playground.store;
+
+import lombok.Builder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Splits sessions over a fixed number of shards, each one an independent {@link ConversationStore}
+ * in its own {@code shard-NNN} directory. A session always maps to the same shard, by a hash of its
+ * id that is stable across JVMs, so several worker processes sharing the base directory can each
+ * open a disjoint set of shards and route every session to the worker that owns it. The lock of
+ * each shard directory keeps two workers from opening the same shard; when a worker goes away its
+ * shards can be opened by another one, which resumes their sessions from the log.
+ */
+public class ShardedConversationStore implements AutoCloseable {
+
+    private static final int DEFAULT_SHARD_COUNT = 16;
+
+    private final int shardCount;
+    private final Map<Integer, ConversationStore> stores;
+
+    @Builder
+    public ShardedConversationStore(Path directory, Integer shardCount, Collection<Integer> shards,
+            Integer segmentBytes, Integer snapshotEvery, Double compactionLiveRatio) {
+        this.shardCount = shardCount != null ? shardCount : DEFAULT_SHARD_COUNT;
+        this.stores = new TreeMap<>();
+        var owned = shards != null ? shards
+                : IntStream.range(0, this.shardCount).boxed().collect(Collectors.toList());
+        try {
+            for (var shard : owned) {
+                if (shard < 0 || shard >= this.shardCount) {
+                    throw new IllegalArgumentException("There is no shard " + shard + " of " + this.shardCount);
+                }
+                stores.put(shard, ConversationStore.builder()
+                        .directory(directory.resolve(String.format("shard-%03d", shard)))
+                        .segmentBytes(segmentBytes)
+                        .snapshotEvery(snapshotEvery)
+                        .compactionLiveRatio(compactionLiveRatio)
+                        .build());
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public static int shardOf(String sessionId, int shardCount) {
+        var crc = new CRC32();
+        crc.update(sessionId.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shardCount);
+    }
+
+    public int shardOf(String sessionId) {
+        return shardOf(sessionId, shardCount);
+    }
+
+    public boolean owns(String sessionId) {
+        return stores.containsKey(shardOf(sessionId));
+    }
+
+    /**
+     * The store of the shard a session belongs to.
+     *
+     * @throws IllegalArgumentException if that shard is not open in this worker
+     */
+    public ConversationStore forSession(String sessionId) {
+        var shard = shardOf(sessionId);
+        var store = stores.get(shard);
+        if (store == null) {
+            throw new IllegalArgumentException("The session " + sessionId + " belongs to shard " + shard
+                    + ", which is not open in this worker");
+        }
+        return store;
+    }
+
+    public Set<Integer> getShards() {
+        return new HashSet<>(stores.keySet());
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public Set<String> getSessionIds() {
+        Set<String> sessionIds = new HashSet<>();
+        stores.values().forEach(store -> sessionIds.addAll(store.getSessionIds()));
+        return sessionIds;
+    }
+
+    public int compact() {
+        return stores.values().stream().mapToInt(ConversationStore::compact).sum();
+    }
+
+    public void flush() {
+        stores.values().forEach(ConversationStore::flush);
+    }
+
+    @Override
+    public void close() {
+        stores.values().forEach(ConversationStore::close);
+    }
+
+}
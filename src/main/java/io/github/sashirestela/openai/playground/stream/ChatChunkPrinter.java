@@ -0,0 +1,38 @@
+package io.github.sashirestela.openai.playground.stream;
+
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.playground.sink.TokenSink;
+
+import java.util.function.Consumer;
+
+/**
+ * Emits the content and reasoning deltas of the first choice as they stream in, followed by the
+ * usage once the final usage chunk arrives.
+ */
+public class ChatChunkPrinter implements Consumer<Chat> {
+
+    private final TokenSink output;
+
+    public ChatChunkPrinter(TokenSink output) {
+        this.output = output;
+    }
+
+    @Override
+    public void accept(Chat responseChunk) {
+        var choices = responseChunk.getChoices();
+        if (!choices.isEmpty()) {
+            var delta = choices.get(0).getMessage();
+            if (delta.getContent() != null) {
+                output.emit(delta.getContent());
+            }
+            if (delta.getReasoningContent() != null) {
+                output.emit(delta.getReasoningContent());
+            }
+        }
+        var usage = responseChunk.getUsage();
+        if (usage != null && usage.getCompletionTokens() != 0) {
+            output.emit("\n\n" + usage + "\n");
+        }
+    }
+
+}
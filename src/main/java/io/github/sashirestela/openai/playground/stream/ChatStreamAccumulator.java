@@ -0,0 +1,272 @@
+package io.github.sashirestela.openai.playground.stream;
+
+import io.github.sashirestela.openai.common.Usage;
+import io.github.sashirestela.openai.common.function.FunctionCall;
+import io.github.sashirestela.openai.common.tool.ToolCall;
+import io.github.sashirestela.openai.common.tool.ToolType;
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.domain.chat.Chat.Choice;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.ChatRole;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.ResponseMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Stitches the deltas of a streamed chat completion back into whole {@link Choice} objects. Deltas
+ * are merged by choice index and by tool call index, so interleaved parallel tool calls and n > 1
+ * choices are rebuilt correctly. An optional tool call listener is told about each tool call of the
+ * first choice as soon as its arguments form a closed JSON object, while the rest of the response is
+ * still streaming. Buffers are kept between requests and cleared by {@link #reset()},
+ * so one instance should be reused for the successive turns of a single conversation. It is not
+ * thread-safe: use one instance per in-flight stream.
+ */
+public class ChatStreamAccumulator implements Consumer<Chat> {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private final Consumer<String> contentListener;
+    private final Consumer<ToolCall> toolCallListener;
+    private final List<ChoiceBuffer> choiceBuffers;
+    private int choiceCount;
+    private Usage usage;
+
+    public ChatStreamAccumulator() {
+        this(text -> {
+        });
+    }
+
+    public ChatStreamAccumulator(Consumer<String> contentListener) {
+        this(contentListener, null);
+    }
+
+    public ChatStreamAccumulator(Consumer<String> contentListener, Consumer<ToolCall> toolCallListener) {
+        this.contentListener = contentListener;
+        this.toolCallListener = toolCallListener;
+        this.choiceBuffers = new ArrayList<>();
+    }
+
+    public Choice accumulate(Stream<Chat> chatStream) {
+        reset();
+        chatStream.forEach(this);
+        return getChoice();
+    }
+
+    @Override
+    public void accept(Chat responseChunk) {
+        var choices = responseChunk.getChoices();
+        if (choices != null) {
+            for (int i = 0; i < choices.size(); i++) {
+                var innerChoice = choices.get(i);
+                var index = innerChoice.getIndex() != null ? innerChoice.getIndex() : i;
+                if (index == 0) {
+                    choiceBuffer(index).append(innerChoice, contentListener, toolCallListener);
+                } else {
+                    choiceBuffer(index).append(innerChoice, null, null);
+                }
+            }
+        }
+        if (responseChunk.getUsage() != null) {
+            usage = responseChunk.getUsage();
+        }
+    }
+
+    public Choice getChoice() {
+        return getChoice(0);
+    }
+
+    public Choice getChoice(int index) {
+        if (index >= choiceCount) {
+            throw new IndexOutOfBoundsException("No choice was streamed with index " + index);
+        }
+        return choiceBuffers.get(index).toChoice(index);
+    }
+
+    public List<Choice> getChoices() {
+        List<Choice> choices = new ArrayList<>(choiceCount);
+        for (int i = 0; i < choiceCount; i++) {
+            choices.add(choiceBuffers.get(i).toChoice(i));
+        }
+        return choices;
+    }
+
+    public Usage getUsage() {
+        return usage;
+    }
+
+    public void reset() {
+        for (int i = 0; i < choiceCount; i++) {
+            choiceBuffers.get(i).reset();
+        }
+        choiceCount = 0;
+        usage = null;
+    }
+
+    private ChoiceBuffer choiceBuffer(int index) {
+        while (choiceBuffers.size() <= index) {
+            choiceBuffers.add(new ChoiceBuffer());
+        }
+        if (index >= choiceCount) {
+            choiceCount = index + 1;
+        }
+        return choiceBuffers.get(index);
+    }
+
+    private static StringBuilder recycle(StringBuilder buffer) {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            return new StringBuilder(INITIAL_CAPACITY);
+        }
+        buffer.setLength(0);
+        return buffer;
+    }
+
+    private static class ChoiceBuffer {
+
+        private ChatRole role;
+        private StringBuilder content = new StringBuilder(INITIAL_CAPACITY);
+        private StringBuilder reasoningContent = new StringBuilder();
+        private StringBuilder refusal = new StringBuilder();
+        private String finishReason;
+        private final List<ToolCallBuffer> toolCallBuffers = new ArrayList<>();
+        private int toolCallCount;
+
+        void append(Choice innerChoice, Consumer<String> contentListener, Consumer<ToolCall> toolCallListener) {
+            var delta = innerChoice.getMessage();
+            if (delta != null) {
+                if (delta.getRole() != null) {
+                    role = delta.getRole();
+                }
+                if (delta.getContent() != null && !delta.getContent().isEmpty()) {
+                    content.append(delta.getContent());
+                    if (contentListener != null) {
+                        contentListener.accept(delta.getContent());
+                    }
+                }
+                if (delta.getReasoningContent() != null) {
+                    reasoningContent.append(delta.getReasoningContent());
+                }
+                if (delta.getRefusal() != null) {
+                    refusal.append(delta.getRefusal());
+                }
+                if (delta.getToolCalls() != null) {
+                    for (var toolCall : delta.getToolCalls()) {
+                        var toolCallIndex = toolCallIndex(toolCall);
+                        var buffer = toolCallBuffer(toolCallIndex);
+                        if (buffer.append(toolCall) && toolCallListener != null) {
+                            toolCallListener.accept(buffer.toToolCall(toolCallIndex));
+                        }
+                    }
+                }
+            }
+            if (innerChoice.getFinishReason() != null) {
+                finishReason = innerChoice.getFinishReason();
+            }
+        }
+
+        Choice toChoice(int index) {
+            var message = new ResponseMessage();
+            message.setRole(role != null ? role : ChatRole.ASSISTANT);
+            if (content.length() > 0) {
+                message.setContent(content.toString());
+            }
+            if (reasoningContent.length() > 0) {
+                message.setReasoningContent(reasoningContent.toString());
+            }
+            if (refusal.length() > 0) {
+                message.setRefusal(refusal.toString());
+            }
+            if (toolCallCount > 0) {
+                List<ToolCall> toolCalls = new ArrayList<>(toolCallCount);
+                for (int i = 0; i < toolCallCount; i++) {
+                    toolCalls.add(toolCallBuffers.get(i).toToolCall(i));
+                }
+                message.setToolCalls(toolCalls);
+            }
+            var choice = new Choice();
+            choice.setIndex(index);
+            choice.setMessage(message);
+            choice.setFinishReason(finishReason);
+            return choice;
+        }
+
+        void reset() {
+            role = null;
+            content = recycle(content);
+            reasoningContent = recycle(reasoningContent);
+            refusal = recycle(refusal);
+            finishReason = null;
+            for (int i = 0; i < toolCallCount; i++) {
+                toolCallBuffers.get(i).reset();
+            }
+            toolCallCount = 0;
+        }
+
+        private int toolCallIndex(ToolCall toolCall) {
+            if (toolCall.getIndex() != null) {
+                return toolCall.getIndex();
+            }
+            return toolCall.getId() != null || toolCallCount == 0 ? toolCallCount : toolCallCount - 1;
+        }
+
+        private ToolCallBuffer toolCallBuffer(int index) {
+            while (toolCallBuffers.size() <= index) {
+                toolCallBuffers.add(new ToolCallBuffer());
+            }
+            if (index >= toolCallCount) {
+                toolCallCount = index + 1;
+            }
+            return toolCallBuffers.get(index);
+        }
+
+    }
+
+    private static class ToolCallBuffer {
+
+        private String id;
+        private ToolType type;
+        private String name;
+        private StringBuilder arguments = new StringBuilder(INITIAL_CAPACITY);
+        private final JsonCompletionScanner argumentsScanner = new JsonCompletionScanner();
+
+        /**
+         * @return true if this delta closed the JSON object of the arguments
+         */
+        boolean append(ToolCall toolCall) {
+            if (toolCall.getId() != null) {
+                id = toolCall.getId();
+            }
+            if (toolCall.getType() != null) {
+                type = toolCall.getType();
+            }
+            var function = toolCall.getFunction();
+            if (function != null) {
+                if (function.getName() != null) {
+                    name = function.getName();
+                }
+                if (function.getArguments() != null) {
+                    arguments.append(function.getArguments());
+                    return argumentsScanner.feed(function.getArguments());
+                }
+            }
+            return false;
+        }
+
+        ToolCall toToolCall(int index) {
+            return new ToolCall(index, id, type != null ? type : ToolType.FUNCTION,
+                    new FunctionCall(name, arguments.toString()));
+        }
+
+        void reset() {
+            id = null;
+            type = null;
+            name = null;
+            arguments = recycle(arguments);
+            argumentsScanner.reset();
+        }
+
+    }
+
+}
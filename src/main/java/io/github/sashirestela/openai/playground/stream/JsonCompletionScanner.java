@@ -0,0 +1,61 @@
+package io.github.sashirestela.openai.playground.stream;
+
+/**
+ * Incremental scanner that tells when a streamed JSON value is syntactically closed. It only tracks
+ * nesting depth and string/escape state, so each fragment is scanned once and nothing is buffered
+ * or parsed. It does not validate the JSON: it answers "has the outermost object or array just
+ * closed", which is enough to know that a tool call's arguments will not grow any further.
+ */
+class JsonCompletionScanner {
+
+    private int depth;
+    private boolean started;
+    private boolean inString;
+    private boolean escaped;
+    private boolean complete;
+
+    /**
+     * Scans the next fragment of the value.
+     *
+     * @return true if the outermost object or array closed within this fragment
+     */
+    boolean feed(CharSequence fragment) {
+        if (complete) {
+            return false;
+        }
+        for (int i = 0; i < fragment.length(); i++) {
+            var c = fragment.charAt(i);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+                started = true;
+            } else if ((c == '}' || c == ']') && started && --depth == 0) {
+                complete = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+
+    void reset() {
+        depth = 0;
+        started = false;
+        inString = false;
+        escaped = false;
+        complete = false;
+    }
+
+}
@@ -0,0 +1,102 @@
+package io.github.sashirestela.openai.playground.stub;
+
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+import io.github.sashirestela.openai.playground.support.LatencyHistogram;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a {@link LoadProfile} against a stream consumer. The call opens one stream, drains it and
+ * returns the number of chunks it read; it runs on its own worker thread since the library's
+ * streams are blocking.
+ */
+public class LoadGenerator {
+
+    private final Callable<Integer> streamCall;
+
+    public LoadGenerator(Callable<Integer> streamCall) {
+        this.streamCall = streamCall;
+    }
+
+    public List<StageReport> run(LoadProfile profile) {
+        List<StageReport> reports = new ArrayList<>();
+        for (var stage : profile.getStages()) {
+            reports.add(runStage(stage));
+        }
+        return reports;
+    }
+
+    private StageReport runStage(LoadProfile.Stage stage) {
+        var report = new StageReport(stage.getConcurrency());
+        var deadline = System.nanoTime() + stage.getDuration().toNanos();
+        var workers = Executors.newFixedThreadPool(stage.getConcurrency(), new DaemonThreadFactory("load-worker"));
+        List<Future<?>> futures = new ArrayList<>();
+        var start = System.nanoTime();
+        for (int i = 0; i < stage.getConcurrency(); i++) {
+            futures.add(workers.submit(() -> {
+                while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                    var streamStart = System.nanoTime();
+                    try {
+                        report.chunks.addAndGet(streamCall.call());
+                        report.streams.incrementAndGet();
+                        report.streamLatency.record(System.nanoTime() - streamStart);
+                    } catch (Exception e) {
+                        report.errors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (var future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                report.errors.incrementAndGet();
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        workers.shutdownNow();
+        return report;
+    }
+
+    @Getter
+    public static class StageReport {
+
+        private final int concurrency;
+        private final AtomicLong streams = new AtomicLong();
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final LatencyHistogram streamLatency = new LatencyHistogram("stream");
+        private long elapsedNanos;
+
+        StageReport(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public double getStreamsPerSecond() {
+            return elapsedNanos == 0 ? 0 : streams.get() * 1e9 / elapsedNanos;
+        }
+
+        public double getChunksPerSecond() {
+            return elapsedNanos == 0 ? 0 : chunks.get() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("concurrency=%d: streams=%d, errors=%d, %.1f streams/s, %.0f chunks/s, %s",
+                    concurrency, streams.get(), errors.get(), getStreamsPerSecond(), getChunksPerSecond(),
+                    streamLatency);
+        }
+
+    }
+
+}
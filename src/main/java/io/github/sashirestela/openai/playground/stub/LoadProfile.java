@@ -0,0 +1,58 @@
+package io.github.sashirestela.openai.playground.stub;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stages of a closed-loop load test: during each stage a fixed number of concurrent streams is kept
+ * in flight, every stream starting as soon as the previous one of its worker finishes.
+ */
+@Getter
+public class LoadProfile {
+
+    private final List<Stage> stages;
+
+    private LoadProfile(List<Stage> stages) {
+        this.stages = List.copyOf(stages);
+    }
+
+    public static LoadProfile of(Stage... stages) {
+        return new LoadProfile(List.of(stages));
+    }
+
+    /**
+     * @return {@code steps} stages of {@code stageDuration} each, with the concurrency growing
+     *         geometrically from {@code fromConcurrency} to {@code toConcurrency}.
+     */
+    public static LoadProfile ramp(int fromConcurrency, int toConcurrency, int steps, Duration stageDuration) {
+        List<Stage> stages = new ArrayList<>();
+        var factor = steps > 1 ? Math.pow((double) toConcurrency / fromConcurrency, 1.0 / (steps - 1)) : 1;
+        for (int step = 0; step < steps; step++) {
+            var concurrency = step == steps - 1 ? toConcurrency
+                    : (int) Math.round(fromConcurrency * Math.pow(factor, step));
+            stages.add(Stage.of(concurrency, stageDuration));
+        }
+        return new LoadProfile(stages);
+    }
+
+    @Getter
+    public static class Stage {
+
+        private final int concurrency;
+        private final Duration duration;
+
+        private Stage(int concurrency, Duration duration) {
+            this.concurrency = concurrency;
+            this.duration = duration;
+        }
+
+        public static Stage of(int concurrency, Duration duration) {
+            return new Stage(concurrency, duration);
+        }
+
+    }
+
+}
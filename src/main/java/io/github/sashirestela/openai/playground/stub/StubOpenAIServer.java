@@ -0,0 +1,725 @@
+package io.github.sashirestela.openai.playground.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+import lombok.Builder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local, embeddable stand-in for the parts of the OpenAI API the demos use, so the streaming code
+ * runs without an API key or network and can be load-tested. It speaks:
+ * <ul>
+ * <li>chat completions, streamed as server-sent events or not, answering with tool calls first
+ * when the request offers tools and {@code toolCalls} are configured;</li>
+ * <li>assistant runs and tool output submissions as thread run events ({@code thread.run.created},
+ * {@code thread.message.delta}, {@code thread.run.requires_action}, ...);</li>
+ * <li>enough of files, vector stores, assistants, threads and messages to set up a run;</li>
+ * <li>batches of chat completions, which report linear progress over {@code batchDuration} and then
+ * complete with an output file holding one non-streamed answer per input line. A batch still running
+ * after {@code batchExpiry} expires, and a cancelled one stops; either way its output file holds
+ * the answers finished so far.</li>
+ * </ul>
+ * Answers are synthesized in chunks of {@code chunkChars} characters (word by word by default),
+ * sent {@code chunkDelay} apart after a {@code firstChunkDelay}, both varied by {@code jitter}.
+ * With {@code recordings} the streamed responses are replayed from recorded sessions instead,
+ * keeping their chunking. A {@code failureRate} answers that share of requests with 429, and the
+ * requests whose method and path, as in {@code "GET /v1/batches/batch_stub1"}, match
+ * {@code failingRequests} always fail with 500. A {@code requestsPerMinute} quota is enforced like
+ * the API does: a bucket of that many requests refilling over a minute, reported in
+ * {@code x-ratelimit-*} headers, with 429 and {@code retry-after-ms} once it is empty.
+ */
+public class StubOpenAIServer implements AutoCloseable {
+
+    private static final String DEFAULT_ANSWER = "This is a streamed answer from the local stub server.";
+    private static final int TOOL_ARGUMENT_CHUNK_CHARS = 8;
+    private static final Pattern THREAD_PATH = Pattern
+            .compile("/v1/threads(?:/([^/]+)(?:/(messages|runs)(?:/([^/]+)/(submit_tool_outputs))?)?)?");
+    private static final Pattern RESOURCE_PATH = Pattern
+            .compile("/v1/(files|vector_stores|assistants)(?:/([^/]+)(/content)?)?");
+    private static final Pattern BATCH_PATH = Pattern.compile("/v1/batches(?:/([^/]+)(/cancel)?)?");
+    private static final Pattern MULTIPART_PART = Pattern
+            .compile("Content-Disposition: form-data; name=\"([^\"]*)\"(?:; filename=\"([^\"]*)\")?[^\\n]*\\r\\n"
+                    + "(?:[^\\r\\n]+\\r\\n)*\\r\\n");
+    private static final long DEFAULT_BATCH_DURATION_MILLIS = 2_000;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String answer;
+    private final List<StubToolCall> toolCalls;
+    private final int chunkChars;
+    private final long chunkDelayMillis;
+    private final long firstChunkDelayMillis;
+    private final double jitter;
+    private final double failureRate;
+    private final Pattern failingRequests;
+    private final double requestsPerMinute;
+    private double requestsAvailable;
+    private long requestsRefilledAt;
+    private final StubRecordings recordings;
+    private final long batchDurationMillis;
+    private final long batchExpiryMillis;
+    private final Map<String, Map<String, Object>> resources;
+    private final Map<String, byte[]> fileContents;
+    private final Map<String, StubBatch> batches;
+    private final AtomicLong ids;
+    private final AtomicLong streamsServed;
+    private final AtomicLong batchesCancelled;
+
+    @Builder
+    public StubOpenAIServer(String answer, List<StubToolCall> toolCalls, Integer chunkChars, Duration chunkDelay,
+            Duration firstChunkDelay, Double jitter, Double failureRate, String failingRequests,
+            StubRecordings recordings, Duration batchDuration, Duration batchExpiry, Integer requestsPerMinute,
+            Integer port) {
+        this.answer = answer != null ? answer : DEFAULT_ANSWER;
+        this.toolCalls = toolCalls != null ? List.copyOf(toolCalls) : List.of();
+        this.chunkChars = chunkChars != null ? chunkChars : 0;
+        this.chunkDelayMillis = chunkDelay != null ? chunkDelay.toMillis() : 0;
+        this.firstChunkDelayMillis = firstChunkDelay != null ? firstChunkDelay.toMillis() : 0;
+        this.jitter = jitter != null ? jitter : 0.0;
+        this.failureRate = failureRate != null ? failureRate : 0.0;
+        this.failingRequests = failingRequests != null ? Pattern.compile(failingRequests) : null;
+        this.requestsPerMinute = requestsPerMinute != null ? requestsPerMinute : 0;
+        this.requestsAvailable = this.requestsPerMinute;
+        this.requestsRefilledAt = System.nanoTime();
+        this.recordings = recordings;
+        this.batchDurationMillis = batchDuration != null ? batchDuration.toMillis() : DEFAULT_BATCH_DURATION_MILLIS;
+        this.batchExpiryMillis = batchExpiry != null ? batchExpiry.toMillis() : 0;
+        this.resources = new ConcurrentHashMap<>();
+        this.fileContents = new ConcurrentHashMap<>();
+        this.batches = new ConcurrentHashMap<>();
+        this.ids = new AtomicLong();
+        this.streamsServed = new AtomicLong();
+        this.batchesCancelled = new AtomicLong();
+        try {
+            this.server = HttpServer.create(new InetSocketAddress("localhost", port != null ? port : 0), 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start the stub server.", e);
+        }
+        this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("stub-openai-server"));
+        server.createContext("/v1/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long getStreamsServed() {
+        return streamsServed.get();
+    }
+
+    public long getBatchesCancelled() {
+        return batchesCancelled.get();
+    }
+
+    /**
+     * The number of files held, uploaded or created as batch output, that were not deleted.
+     */
+    public int getFileCount() {
+        return fileContents.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            var method = exchange.getRequestMethod();
+            var path = exchange.getRequestURI().getPath();
+            var body = exchange.getRequestBody().readAllBytes();
+            if (requestsPerMinute > 0 && !admit(exchange)) {
+                sendError(exchange, 429, "Rate limit reached for requests (stub quota).", "rate_limit_exceeded");
+                return;
+            }
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                exchange.getResponseHeaders().add("retry-after-ms", "200");
+                sendError(exchange, 429, "Rate limit reached for requests (stub).", "rate_limit_exceeded");
+                return;
+            }
+            if (failingRequests != null && failingRequests.matcher(method + " " + path).matches()) {
+                sendError(exchange, 500, "The server had an error processing the request (stub).", null);
+                return;
+            }
+            if (path.equals("/v1/chat/completions") && method.equals("POST")) {
+                chatCompletion(exchange, json(body), body.length);
+                return;
+            }
+            var threadPath = THREAD_PATH.matcher(path);
+            if (threadPath.matches()) {
+                threads(exchange, method, threadPath, body);
+                return;
+            }
+            var resourcePath = RESOURCE_PATH.matcher(path);
+            if (resourcePath.matches() && resourcePath.group(3) != null) {
+                fileContent(exchange, resourcePath.group(2));
+                return;
+            }
+            if (resourcePath.matches()) {
+                resource(exchange, method, resourcePath.group(1), resourcePath.group(2), body);
+                return;
+            }
+            var batchPath = BATCH_PATH.matcher(path);
+            if (batchPath.matches()) {
+                batch(exchange, method, batchPath.group(1), batchPath.group(2) != null, body);
+                return;
+            }
+            sendError(exchange, 404, "Unknown stub endpoint " + method + " " + path, null);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private synchronized boolean admit(HttpExchange exchange) {
+        var now = System.nanoTime();
+        var perMilli = requestsPerMinute / 60_000.0;
+        requestsAvailable = Math.min(requestsPerMinute,
+                requestsAvailable + (now - requestsRefilledAt) / 1_000_000.0 * perMilli);
+        requestsRefilledAt = now;
+        var admitted = requestsAvailable >= 1;
+        if (admitted) {
+            requestsAvailable--;
+        }
+        var headers = exchange.getResponseHeaders();
+        headers.add("x-ratelimit-limit-requests", String.valueOf((long) requestsPerMinute));
+        headers.add("x-ratelimit-remaining-requests", String.valueOf((long) requestsAvailable));
+        headers.add("x-ratelimit-reset-requests",
+                Math.round((requestsPerMinute - requestsAvailable) / perMilli) + "ms");
+        if (!admitted) {
+            headers.add("retry-after-ms", String.valueOf(Math.round((1 - requestsAvailable) / perMilli)));
+        }
+        return admitted;
+    }
+
+    private void chatCompletion(HttpExchange exchange, Map<String, Object> request, int requestBytes)
+            throws IOException {
+        var stream = Boolean.TRUE.equals(request.get("stream"));
+        var offersTools = request.get("tools") instanceof List && !((List<?>) request.get("tools")).isEmpty();
+        var callTools = offersTools && !toolCalls.isEmpty() && !lastMessageIsToolResult(request);
+        var model = String.valueOf(request.getOrDefault("model", "stub"));
+        var promptTokens = requestBytes / 4;
+        if (!stream) {
+            sendJson(exchange, 200, chatResponse(model, callTools, promptTokens));
+            return;
+        }
+        openStream(exchange);
+        try (var output = exchange.getResponseBody()) {
+            if (recordings != null && recordings.has(StubRecordings.CHAT)) {
+                replay(output, recordings.next(StubRecordings.CHAT));
+                return;
+            }
+            var id = newId("chatcmpl-");
+            var created = now();
+            int completionTokens = 0;
+            sendData(output, chatChunk(id, created, model, map("role", "assistant", "content", ""), null));
+            pause(firstChunkDelayMillis);
+            if (callTools) {
+                for (int index = 0; index < toolCalls.size(); index++) {
+                    var toolCall = toolCalls.get(index);
+                    sendData(output, chatChunk(id, created, model, map("tool_calls", List.of(map("index", index,
+                            "id", "call_" + index + "_" + id, "type", "function",
+                            "function", map("name", toolCall.getName(), "arguments", "")))), null));
+                    for (var fragment : split(toolCall.getArguments(), TOOL_ARGUMENT_CHUNK_CHARS)) {
+                        pause(chunkDelayMillis);
+                        sendData(output, chatChunk(id, created, model, map("tool_calls", List.of(map("index", index,
+                                "function", map("arguments", fragment)))), null));
+                        completionTokens++;
+                    }
+                }
+            } else {
+                var first = true;
+                for (var chunk : chunks(answer)) {
+                    if (!first) {
+                        pause(chunkDelayMillis);
+                    }
+                    first = false;
+                    sendData(output, chatChunk(id, created, model, map("content", chunk), null));
+                    completionTokens++;
+                }
+            }
+            sendData(output, chatChunk(id, created, model, map(), callTools ? "tool_calls" : "stop"));
+            if (request.get("stream_options") instanceof Map
+                    && Boolean.TRUE.equals(((Map<?, ?>) request.get("stream_options")).get("include_usage"))) {
+                sendData(output, map("id", id, "object", "chat.completion.chunk", "created", created, "model", model,
+                        "choices", List.of(), "usage", usage(promptTokens, completionTokens)));
+            }
+            output.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private Map<String, Object> chatResponse(String model, boolean callTools, int promptTokens) {
+        Map<String, Object> message = callTools
+                ? map("role", "assistant", "content", null, "tool_calls", toolCallObjects(true))
+                : map("role", "assistant", "content", answer);
+        return map("id", newId("chatcmpl-"), "object", "chat.completion", "created", now(), "model", model,
+                "choices", List.of(map("index", 0, "message", message,
+                        "finish_reason", callTools ? "tool_calls" : "stop")),
+                "usage", usage(promptTokens, chunks(answer).size()));
+    }
+
+    private void threads(HttpExchange exchange, String method, Matcher threadPath, byte[] body) throws IOException {
+        var threadId = threadPath.group(1);
+        var child = threadPath.group(2);
+        if (threadId == null) {
+            if (method.equals("POST")) {
+                sendJson(exchange, 200, store(map("id", newId("thread_"), "object", "thread", "created_at", now(),
+                        "metadata", map(), "tool_resources", map())));
+            } else {
+                sendError(exchange, 405, "Method not allowed.", null);
+            }
+            return;
+        }
+        if (child == null) {
+            lookup(exchange, method, "thread", threadId);
+            return;
+        }
+        if (!resources.containsKey(threadId)) {
+            sendError(exchange, 404, "No thread found with id '" + threadId + "'.", null);
+            return;
+        }
+        var request = json(body);
+        if (child.equals("messages")) {
+            sendJson(exchange, 200, message(newId("msg_"), threadId, null,
+                    String.valueOf(request.getOrDefault("role", "user")), String.valueOf(request.get("content")),
+                    "completed"));
+            return;
+        }
+        var submit = threadPath.group(4) != null;
+        var runId = submit ? threadPath.group(3) : newId("run_");
+        var assistantId = String.valueOf(request.getOrDefault("assistant_id", "asst_stub"));
+        if (!Boolean.TRUE.equals(request.get("stream"))) {
+            sendJson(exchange, 200, run(runId, threadId, assistantId, "completed", null));
+            return;
+        }
+        openStream(exchange);
+        try (var output = exchange.getResponseBody()) {
+            var kind = submit ? StubRecordings.SUBMIT : StubRecordings.RUN;
+            if (recordings != null && recordings.has(kind)) {
+                replay(output, recordings.next(kind));
+                return;
+            }
+            runEvents(output, threadId, runId, assistantId, submit);
+        }
+    }
+
+    private void runEvents(OutputStream output, String threadId, String runId, String assistantId, boolean submit)
+            throws IOException {
+        if (!submit) {
+            sendEvent(output, "thread.run.created", run(runId, threadId, assistantId, "queued", null));
+            sendEvent(output, "thread.run.queued", run(runId, threadId, assistantId, "queued", null));
+        }
+        sendEvent(output, "thread.run.in_progress", run(runId, threadId, assistantId, "in_progress", null));
+        pause(firstChunkDelayMillis);
+        if (!submit && !toolCalls.isEmpty()) {
+            var requiredAction = map("type", "submit_tool_outputs",
+                    "submit_tool_outputs", map("tool_calls", toolCallObjects(false)));
+            sendEvent(output, "thread.run.requires_action",
+                    run(runId, threadId, assistantId, "requires_action", requiredAction));
+        } else {
+            var messageId = newId("msg_");
+            sendEvent(output, "thread.message.created",
+                    message(messageId, threadId, runId, "assistant", null, "in_progress"));
+            sendEvent(output, "thread.message.in_progress",
+                    message(messageId, threadId, runId, "assistant", null, "in_progress"));
+            var first = true;
+            int index = 0;
+            for (var chunk : chunks(answer)) {
+                if (!first) {
+                    pause(chunkDelayMillis);
+                }
+                first = false;
+                sendEvent(output, "thread.message.delta", map("id", messageId, "object", "thread.message.delta",
+                        "delta", map("content", List.of(map("index", 0, "type", "text",
+                                "text", map("value", chunk, "annotations", List.of()))))));
+                index++;
+            }
+            sendEvent(output, "thread.message.completed",
+                    message(messageId, threadId, runId, "assistant", answer, "completed"));
+            var completed = run(runId, threadId, assistantId, "completed", null);
+            completed.put("usage", usage(answer.length() / 4, index));
+            sendEvent(output, "thread.run.completed", completed);
+        }
+        output.write("event: done\ndata: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void resource(HttpExchange exchange, String method, String collection, String id, byte[] body)
+            throws IOException {
+        var object = collection.substring(0, collection.length() - 1);
+        if (id != null) {
+            lookup(exchange, method, object, id);
+            return;
+        }
+        if (!method.equals("POST")) {
+            sendError(exchange, 405, "Method not allowed.", null);
+            return;
+        }
+        switch (collection) {
+            case "files":
+                var parts = multipartParts(exchange.getRequestHeaders().getFirst("Content-Type"), body);
+                var file = parts.getOrDefault("file", new byte[0]);
+                var fileId = newId("file-");
+                fileContents.put(fileId, file);
+                sendJson(exchange, 200, store(map("id", fileId, "object", "file", "bytes", file.length,
+                        "created_at", now(), "filename", multipartFilename(body),
+                        "purpose", new String(parts.getOrDefault("purpose", new byte[0]), StandardCharsets.UTF_8))));
+                break;
+            case "vector_stores":
+                var fileIds = json(body).getOrDefault("file_ids", List.of());
+                var files = fileIds instanceof List ? ((List<?>) fileIds).size() : 0;
+                sendJson(exchange, 200, store(map("id", newId("vs_"), "object", "vector_store",
+                        "created_at", now(), "name", null, "usage_bytes", 0, "status", "completed",
+                        "file_counts", map("in_progress", 0, "completed", files, "failed", 0, "cancelled", 0,
+                                "total", files),
+                        "metadata", map())));
+                break;
+            default:
+                var assistant = map("id", newId("asst_"), "object", "assistant", "created_at", now());
+                json(body).forEach(assistant::putIfAbsent);
+                sendJson(exchange, 200, store(assistant));
+                break;
+        }
+    }
+
+    private void fileContent(HttpExchange exchange, String fileId) throws IOException {
+        var content = fileContents.get(fileId);
+        if (content == null) {
+            sendError(exchange, 404, "No file found with id '" + fileId + "'.", null);
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+        exchange.sendResponseHeaders(200, content.length == 0 ? -1 : content.length);
+        try (var output = exchange.getResponseBody()) {
+            output.write(content);
+        }
+    }
+
+    private void batch(HttpExchange exchange, String method, String batchId, boolean cancel, byte[] body)
+            throws IOException {
+        if (batchId != null) {
+            var batch = batches.get(batchId);
+            if (batch == null) {
+                sendError(exchange, 404, "No batch found with id '" + batchId + "'.", null);
+            } else if (!cancel) {
+                sendJson(exchange, 200, batch.snapshot());
+            } else if (!method.equals("POST")) {
+                sendError(exchange, 405, "Method not allowed.", null);
+            } else {
+                var cancelled = batch.cancel();
+                if (cancelled == null) {
+                    sendError(exchange, 400, "Cannot cancel a batch with status '" + batch.snapshot().get("status")
+                            + "'.", null);
+                } else {
+                    batchesCancelled.incrementAndGet();
+                    sendJson(exchange, 200, cancelled);
+                }
+            }
+            return;
+        }
+        if (!method.equals("POST")) {
+            sendError(exchange, 405, "Method not allowed.", null);
+            return;
+        }
+        var request = json(body);
+        var inputFileId = String.valueOf(request.get("input_file_id"));
+        var input = fileContents.get(inputFileId);
+        if (input == null) {
+            sendError(exchange, 404, "No file found with id '" + inputFileId + "'.", null);
+            return;
+        }
+        List<String> output = new ArrayList<>();
+        for (var line : new String(input, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            var item = json(line.getBytes(StandardCharsets.UTF_8));
+            var chatRequest = item.get("body") instanceof Map ? (Map<?, ?>) item.get("body") : Map.of();
+            var model = chatRequest.get("model") != null ? String.valueOf(chatRequest.get("model")) : "stub";
+            output.add(JsonUtil.objectToJson(map("id", newId("batch_req_"), "custom_id", item.get("custom_id"),
+                    "response", map("status_code", 200, "request_id", newId("req_"),
+                            "body", chatResponse(model, false, line.length() / 4)),
+                    "error", null)));
+        }
+        var batch = new StubBatch(map("id", newId("batch_"), "object", "batch", "endpoint", "/v1/chat/completions",
+                "errors", null, "input_file_id", inputFileId, "completion_window", "24h", "status", "validating",
+                "output_file_id", null, "error_file_id", null, "created_at", now(),
+                "metadata", request.get("metadata")), output);
+        batches.put((String) batch.batch.get("id"), batch);
+        sendJson(exchange, 200, batch.snapshot());
+    }
+
+    private void lookup(HttpExchange exchange, String method, String object, String id) throws IOException {
+        var found = resources.get(id);
+        if (found == null) {
+            sendError(exchange, 404, "No " + object + " found with id '" + id + "'.", null);
+        } else if (method.equals("DELETE")) {
+            resources.remove(id);
+            fileContents.remove(id);
+            sendJson(exchange, 200, map("id", id, "object", object.equals("file") ? "file" : object + ".deleted",
+                    "deleted", true));
+        } else {
+            sendJson(exchange, 200, found);
+        }
+    }
+
+    private Map<String, Object> store(Map<String, Object> resource) {
+        resources.put((String) resource.get("id"), resource);
+        return resource;
+    }
+
+    private List<Map<String, Object>> toolCallObjects(boolean chat) {
+        List<Map<String, Object>> calls = new ArrayList<>();
+        for (int index = 0; index < toolCalls.size(); index++) {
+            var toolCall = toolCalls.get(index);
+            var call = map("id", newId("call_"), "type", "function",
+                    "function", map("name", toolCall.getName(), "arguments", toolCall.getArguments()));
+            if (chat) {
+                call.put("index", index);
+            }
+            calls.add(call);
+        }
+        return calls;
+    }
+
+    private List<String> chunks(String text) {
+        if (chunkChars > 0) {
+            return split(text, chunkChars);
+        }
+        return List.of(text.split("(?<= )"));
+    }
+
+    private static List<String> split(String text, int size) {
+        List<String> pieces = new ArrayList<>();
+        for (int start = 0; start < text.length(); start += size) {
+            pieces.add(text.substring(start, Math.min(text.length(), start + size)));
+        }
+        return pieces;
+    }
+
+    private void openStream(HttpExchange exchange) throws IOException {
+        streamsServed.incrementAndGet();
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+    }
+
+    private void replay(OutputStream output, List<byte[]> events) throws IOException {
+        var first = true;
+        for (var event : events) {
+            pause(first ? firstChunkDelayMillis : chunkDelayMillis);
+            first = false;
+            output.write(event);
+            output.flush();
+        }
+    }
+
+    private void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        var wait = jitter > 0
+                ? Math.max(0, Math.round(millis * (1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1))))
+                : millis;
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String newId(String prefix) {
+        return prefix + "stub" + ids.incrementAndGet();
+    }
+
+    private static boolean lastMessageIsToolResult(Map<String, Object> request) {
+        var messages = request.get("messages");
+        if (!(messages instanceof List) || ((List<?>) messages).isEmpty()) {
+            return false;
+        }
+        var last = ((List<?>) messages).get(((List<?>) messages).size() - 1);
+        return last instanceof Map && "tool".equals(((Map<?, ?>) last).get("role"));
+    }
+
+    private static String multipartFilename(byte[] body) {
+        var head = new String(body, 0, Math.min(body.length, 1024), StandardCharsets.UTF_8);
+        var matcher = Pattern.compile("filename=\"([^\"]*)\"").matcher(head);
+        return matcher.find() ? matcher.group(1) : "upload";
+    }
+
+    private static Map<String, byte[]> multipartParts(String contentType, byte[] body) {
+        Map<String, byte[]> parts = new LinkedHashMap<>();
+        var boundaryAt = contentType != null ? contentType.indexOf("boundary=") : -1;
+        if (boundaryAt < 0) {
+            return parts;
+        }
+        var delimiter = "\r\n--" + contentType.substring(boundaryAt + "boundary=".length()).replace("\"", "");
+        // ISO-8859-1 maps every byte to one char, so string offsets are byte offsets.
+        var text = new String(body, StandardCharsets.ISO_8859_1);
+        var matcher = MULTIPART_PART.matcher(text);
+        while (matcher.find()) {
+            var end = text.indexOf(delimiter, matcher.end());
+            parts.put(matcher.group(1), text.substring(matcher.end(), end < 0 ? text.length() : end)
+                    .getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return parts;
+    }
+
+    private static Map<String, Object> chatChunk(String id, long created, String model, Map<String, Object> delta,
+            String finishReason) {
+        return map("id", id, "object", "chat.completion.chunk", "created", created, "model", model,
+                "choices", List.of(map("index", 0, "delta", delta, "finish_reason", finishReason)));
+    }
+
+    private static Map<String, Object> run(String runId, String threadId, String assistantId, String status,
+            Map<String, Object> requiredAction) {
+        return map("id", runId, "object", "thread.run", "created_at", now(), "assistant_id", assistantId,
+                "thread_id", threadId, "status", status, "required_action", requiredAction, "model", "stub",
+                "tools", List.of(), "metadata", map());
+    }
+
+    private static Map<String, Object> message(String messageId, String threadId, String runId, String role,
+            String text, String status) {
+        List<Object> content = text != null
+                ? List.of(map("type", "text", "text", map("value", text, "annotations", List.of())))
+                : List.of();
+        return map("id", messageId, "object", "thread.message", "created_at", now(), "thread_id", threadId,
+                "run_id", runId, "role", role, "status", status, "content", content, "attachments", List.of(),
+                "metadata", map());
+    }
+
+    private static Map<String, Object> usage(int promptTokens, int completionTokens) {
+        return map("prompt_tokens", promptTokens, "completion_tokens", completionTokens,
+                "total_tokens", promptTokens + completionTokens);
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static Map<String, Object> map(Object... keysAndValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> json(byte[] body) {
+        if (body.length == 0 || body[0] != '{') {
+            return new LinkedHashMap<>();
+        }
+        return JsonUtil.jsonToObject(new String(body, StandardCharsets.UTF_8), LinkedHashMap.class);
+    }
+
+    private static void sendData(OutputStream output, Map<String, Object> data) throws IOException {
+        output.write(("data: " + JsonUtil.objectToJson(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    private static void sendEvent(OutputStream output, String event, Map<String, Object> data) throws IOException {
+        output.write(("event: " + event + "\ndata: " + JsonUtil.objectToJson(data) + "\n\n")
+                .getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        var bytes = JsonUtil.objectToJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (var output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message, String code)
+            throws IOException {
+        sendJson(exchange, status, map("error", map("message", message, "type",
+                status == 429 ? "requests" : "invalid_request_error", "param", null, "code", code)));
+    }
+
+    private class StubBatch {
+
+        private final Map<String, Object> batch;
+        private final List<String> output;
+        private final long startMillis;
+        private int completed;
+        private boolean ended;
+
+        StubBatch(Map<String, Object> batch, List<String> output) {
+            this.batch = batch;
+            this.output = output;
+            this.startMillis = System.currentTimeMillis();
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            if (!ended) {
+                var elapsed = System.currentTimeMillis() - startMillis;
+                var expired = batchExpiryMillis > 0 && elapsed >= batchExpiryMillis;
+                if (expired) {
+                    elapsed = batchExpiryMillis;
+                }
+                var total = output.size();
+                completed = batchDurationMillis > 0 ? (int) Math.min(total, total * elapsed / batchDurationMillis)
+                        : total;
+                if (completed >= total) {
+                    end("completed");
+                } else if (expired) {
+                    end("expired");
+                } else if (completed > 0) {
+                    batch.put("status", "in_progress");
+                }
+            }
+            batch.put("request_counts", map("total", output.size(), "completed", completed, "failed", 0));
+            return new LinkedHashMap<>(batch);
+        }
+
+        /**
+         * @return the cancelled batch, or null if it had already ended
+         */
+        synchronized Map<String, Object> cancel() {
+            snapshot();
+            if (ended) {
+                return null;
+            }
+            end("cancelled");
+            return snapshot();
+        }
+
+        private void end(String status) {
+            ended = true;
+            batch.put("status", status);
+            batch.put(status + "_at", now());
+            if (completed > 0) {
+                var content = String.join("\n", output.subList(0, completed)) + "\n";
+                var outputFileId = newId("file-");
+                fileContents.put(outputFileId, content.getBytes(StandardCharsets.UTF_8));
+                store(map("id", outputFileId, "object", "file", "bytes", content.length(), "created_at", now(),
+                        "filename", "batch_output.jsonl", "purpose", "batch_output"));
+                batch.put("output_file_id", outputFileId);
+            }
+        }
+
+    }
+
+}
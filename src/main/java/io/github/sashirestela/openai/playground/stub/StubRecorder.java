@@ -0,0 +1,132 @@
+package io.github.sashirestela.openai.playground.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+import lombok.Builder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recording proxy in front of the real API. Point {@code SimpleOpenAI.builder().baseUrl(...)} at
+ * {@link #getBaseUrl()} and every request is forwarded upstream unchanged; streamed chat, run and
+ * submit responses are passed through as they arrive and also saved as
+ * {@code <kind>-<sequence>.sse} files that {@link StubRecordings#load(Path)} replays later.
+ */
+public class StubRecorder implements AutoCloseable {
+
+    private static final String DEFAULT_UPSTREAM = "https://api.openai.com";
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of("connection", "content-length", "expect", "host",
+            "upgrade", "transfer-encoding", "keep-alive");
+    private static final int COPY_BUFFER_BYTES = 8 * 1024;
+
+    private final String upstreamBaseUrl;
+    private final Path directory;
+    private final HttpClient httpClient;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, AtomicInteger> sequences;
+
+    @Builder
+    public StubRecorder(String upstreamBaseUrl, Path directory, Integer port) {
+        this.upstreamBaseUrl = upstreamBaseUrl != null ? upstreamBaseUrl : DEFAULT_UPSTREAM;
+        this.directory = directory;
+        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        this.sequences = new ConcurrentHashMap<>();
+        try {
+            Files.createDirectories(directory);
+            for (var kind : new String[] { StubRecordings.CHAT, StubRecordings.RUN, StubRecordings.SUBMIT }) {
+                try (var files = Files.list(directory)) {
+                    var existing = files.filter(file -> file.getFileName().toString().startsWith(kind + "-")).count();
+                    sequences.put(kind, new AtomicInteger((int) existing));
+                }
+            }
+            this.server = HttpServer.create(new InetSocketAddress("localhost", port != null ? port : 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start the recorder on " + directory, e);
+        }
+        this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("stub-recorder"));
+        server.createContext("/", this::forward);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void forward(HttpExchange exchange) throws IOException {
+        try {
+            var path = exchange.getRequestURI().getRawPath();
+            var query = exchange.getRequestURI().getRawQuery();
+            var target = URI.create(upstreamBaseUrl + path + (query != null ? "?" + query : ""));
+            var request = HttpRequest.newBuilder(target)
+                    .method(exchange.getRequestMethod(),
+                            HttpRequest.BodyPublishers.ofByteArray(exchange.getRequestBody().readAllBytes()));
+            exchange.getRequestHeaders().forEach((name, values) -> {
+                if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                    values.forEach(value -> request.header(name, value));
+                }
+            });
+            var response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            response.headers().map().forEach((name, values) -> {
+                if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase()) && !name.startsWith(":")) {
+                    exchange.getResponseHeaders().put(name, values);
+                }
+            });
+            var kind = StubRecordings.kindOf(path);
+            var streamed = response.headers().firstValue("content-type").orElse("").startsWith("text/event-stream");
+            exchange.sendResponseHeaders(response.statusCode(), 0);
+            try (var upstream = response.body(); var output = exchange.getResponseBody()) {
+                if (kind != null && streamed && response.statusCode() == 200) {
+                    var file = directory.resolve(String.format("%s-%04d.sse", kind,
+                            sequences.get(kind).incrementAndGet()));
+                    try (var recording = Files.newOutputStream(file)) {
+                        copy(upstream, output, recording);
+                    }
+                } else {
+                    copy(upstream, output, null);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void copy(InputStream input, OutputStream output, OutputStream recording) throws IOException {
+        var buffer = new byte[COPY_BUFFER_BYTES];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+            output.flush();
+            if (recording != null) {
+                recording.write(buffer, 0, read);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+package io.github.sashirestela.openai.playground.stub;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Recorded server-sent events bodies for the {@link StubOpenAIServer}, grouped by kind:
+ * {@code chat} for chat completions, {@code run} for run creations and {@code submit} for tool
+ * output submissions. Each kind is replayed in recording order and starts over when exhausted, so
+ * the n-th request of a session gets the n-th recorded response. On disk a recording is a file
+ * named {@code <kind>-<sequence>.sse}, as written by {@link StubRecorder}.
+ */
+public class StubRecordings {
+
+    public static final String CHAT = "chat";
+    public static final String RUN = "run";
+    public static final String SUBMIT = "submit";
+
+    private final Map<String, List<List<byte[]>>> sessions;
+    private final Map<String, AtomicInteger> cursors;
+
+    private StubRecordings(Map<String, List<List<byte[]>>> sessions) {
+        this.sessions = sessions;
+        this.cursors = new ConcurrentHashMap<>();
+        sessions.keySet().forEach(kind -> cursors.put(kind, new AtomicInteger()));
+    }
+
+    public static StubRecordings of(String kind, String... recordedSse) {
+        List<List<byte[]>> recordings = new ArrayList<>();
+        for (var sse : recordedSse) {
+            recordings.add(events(sse));
+        }
+        return new StubRecordings(Map.of(kind, recordings));
+    }
+
+    public static StubRecordings load(Path directory) {
+        Map<String, List<List<byte[]>>> sessions = new TreeMap<>();
+        try (var files = Files.list(directory)) {
+            for (var file : files.sorted().collect(Collectors.toList())) {
+                var name = file.getFileName().toString();
+                var dash = name.indexOf('-');
+                if (!name.endsWith(".sse") || dash < 0) {
+                    continue;
+                }
+                var sse = Files.readString(file, StandardCharsets.UTF_8);
+                sessions.computeIfAbsent(name.substring(0, dash), kind -> new ArrayList<>()).add(events(sse));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load the recordings in " + directory, e);
+        }
+        return new StubRecordings(sessions);
+    }
+
+    /**
+     * @return the kind of recording an API path produces, or null if its responses are not
+     *         streamed.
+     */
+    public static String kindOf(String path) {
+        if (path.endsWith("/chat/completions")) {
+            return CHAT;
+        }
+        if (path.endsWith("/submit_tool_outputs")) {
+            return SUBMIT;
+        }
+        if (path.matches(".*/threads/[^/]+/runs") || path.endsWith("/threads/runs")) {
+            return RUN;
+        }
+        return null;
+    }
+
+    public boolean has(String kind) {
+        return sessions.containsKey(kind);
+    }
+
+    /**
+     * @return the events of the next recording of a kind, each one ending with its blank line.
+     */
+    public List<byte[]> next(String kind) {
+        var recordings = sessions.get(kind);
+        return recordings.get(Math.floorMod(cursors.get(kind).getAndIncrement(), recordings.size()));
+    }
+
+    static List<byte[]> events(String recordedSse) {
+        List<byte[]> events = new ArrayList<>();
+        for (var event : recordedSse.replace("\r\n", "\n").split("\n\n+")) {
+            if (!event.isBlank()) {
+                events.add((event.strip() + "\n\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return events;
+    }
+
+}
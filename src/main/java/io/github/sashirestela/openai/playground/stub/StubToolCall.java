@@ -0,0 +1,17 @@
+package io.github.sashirestela.openai.playground.stub;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A function call the {@link StubOpenAIServer} asks for before answering: a chat completion with
+ * tools finishes with these tool calls, and an assistant run requires action for them.
+ */
+@Getter
+@AllArgsConstructor(staticName = "of")
+public class StubToolCall {
+
+    private final String name;
+    private final String arguments;
+
+}
@@ -0,0 +1,81 @@
+package io.github.sashirestela.openai.playground.support;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of a semaphore: callers waiting for a permit get a pending future instead
+ * of parking a thread, and permits are handed over in FIFO order.
+ */
+public class AsyncLimiter {
+
+    private final int maxPermits;
+    private final Deque<CompletableFuture<Void>> waiters;
+    private int available;
+
+    public AsyncLimiter(int maxPermits) {
+        if (maxPermits < 1) {
+            throw new IllegalArgumentException("maxPermits must be at least 1 but was " + maxPermits);
+        }
+        this.maxPermits = maxPermits;
+        this.waiters = new ArrayDeque<>();
+        this.available = maxPermits;
+    }
+
+    public CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+            var waiter = new CompletableFuture<Void>();
+            waiters.add(waiter);
+            return waiter;
+        }
+    }
+
+    public void release() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) {
+                    available = Math.min(available + 1, maxPermits);
+                    return;
+                }
+            }
+            if (next.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<? extends CompletionStage<T>> task) {
+        return acquire().thenCompose(permit -> {
+            CompletionStage<T> stage;
+            try {
+                stage = task.get();
+            } catch (RuntimeException e) {
+                release();
+                return CompletableFuture.failedFuture(e);
+            }
+            return stage.whenComplete((result, error) -> release());
+        });
+    }
+
+    public int getMaxPermits() {
+        return maxPermits;
+    }
+
+    public synchronized int getInFlight() {
+        return maxPermits - available;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+}
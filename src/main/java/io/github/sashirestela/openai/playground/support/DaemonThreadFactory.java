@@ -0,0 +1,26 @@
+package io.github.sashirestela.openai.playground.support;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Names the threads of a pool and marks them as daemon, so helper pools never keep the demos alive.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+    private final AtomicInteger counter;
+
+    public DaemonThreadFactory(String prefix) {
+        this.prefix = prefix;
+        this.counter = new AtomicInteger();
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        var thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+}
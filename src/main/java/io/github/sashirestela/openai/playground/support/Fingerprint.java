@@ -0,0 +1,102 @@
+package io.github.sashirestela.openai.playground.support;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SHA-256 fingerprints of requests, texts and files, used as keys by the caches and registries.
+ */
+public final class Fingerprint {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int FILE_CHUNK_BYTES = 64 * 1024;
+
+    private Fingerprint() {
+    }
+
+    /**
+     * Fingerprint of the JSON form of a request object with all map keys sorted, so two equal
+     * requests always give the same value.
+     */
+    public static String ofObject(Object object) {
+        return ofMap(JsonUtil.objectToMap(object));
+    }
+
+    public static String ofMap(Map<String, ?> fields) {
+        return ofText(canonicalJson(fields));
+    }
+
+    /**
+     * JSON form of the fields with all map keys sorted and no whitespace.
+     */
+    public static String canonicalJson(Map<String, ?> fields) {
+        return JsonUtil.objectToJson(canonical(fields));
+    }
+
+    public static String ofText(String text) {
+        return hex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static String ofFile(Path file) {
+        var digest = sha256();
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var buffer = ByteBuffer.allocate(FILE_CHUNK_BYTES);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot fingerprint the file " + file, e);
+        }
+        return hex(digest.digest());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    public static String hex(byte[] bytes) {
+        var hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    private static Object canonical(Object value) {
+        if (value instanceof Map) {
+            var sorted = new TreeMap<String, Object>();
+            ((Map<?, ?>) value).forEach((key, item) -> sorted.put(String.valueOf(key), canonical(item)));
+            return sorted;
+        }
+        if (value instanceof List) {
+            var list = (List<?>) value;
+            List<Object> items = new ArrayList<>(list.size());
+            for (var item : list) {
+                items.add(canonical(item));
+            }
+            return items;
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,117 @@
+package io.github.sashirestela.openai.playground.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram over nanoseconds with log-linear buckets: every power of two is split
+ * into {@value #SUB_BUCKETS} linear sub-buckets, so a reported percentile is the upper bound of its
+ * bucket and overstates the real value by at most 12.5%. Recording is a couple of atomic updates
+ * and can be done from any thread.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong max;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.sum = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    public void record(long nanos) {
+        var value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        record(unit.toNanos(duration));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public double getMeanNanos() {
+        var samples = count.get();
+        return samples == 0 ? 0 : (double) sum.get() / samples;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the upper bound in nanoseconds of the bucket holding the percentile, or 0 when empty.
+     */
+    public long percentileNanos(double percentile) {
+        var samples = count.get();
+        if (samples == 0) {
+            return 0;
+        }
+        var rank = (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * samples);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(upperBoundOf(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count=%d, mean=%.2fms, p50=%.2fms, p90=%.2fms, p99=%.2fms, max=%.2fms", name,
+                getCount(), getMeanNanos() / 1e6, percentileNanos(50) / 1e6, percentileNanos(90) / 1e6,
+                percentileNanos(99) / 1e6, getMaxNanos() / 1e6);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        var exponent = 63 - Long.numberOfLeadingZeros(value);
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        var exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        var subBucket = bucket % SUB_BUCKETS;
+        var lowerBound = (1L << exponent) + ((long) subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+}
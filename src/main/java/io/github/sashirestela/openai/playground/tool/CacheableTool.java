@@ -0,0 +1,20 @@
+package io.github.sashirestela.openai.playground.tool;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code Functional} whose result depends only on its arguments, so a {@link ToolResultCache}
+ * may reuse it for {@link #ttlSeconds()} seconds.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CacheableTool {
+
+    long ttlSeconds();
+
+}
@@ -0,0 +1,166 @@
+package io.github.sashirestela.openai.playground.tool;
+
+import io.github.sashirestela.openai.common.function.FunctionCall;
+import io.github.sashirestela.openai.common.function.FunctionExecutor;
+import io.github.sashirestela.openai.common.tool.ToolCall;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.support.AsyncLimiter;
+import io.github.sashirestela.openai.playground.support.DaemonThreadFactory;
+import lombok.Builder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Parallel replacement for {@link FunctionExecutor#executeAll(List, BiFunction)}. Tool calls are
+ * fanned out over an executor, at most {@code maxConcurrency} of them run at once, and each one is
+ * bounded by the timeout of its function. Results keep the order of the tool calls, and a failed or
+ * timed out call yields an error text for the model instead of failing the whole batch. Each call
+ * is timed as {@code tool.<function>} in a {@link MetricsRegistry}, and failures and timeouts are
+ * counted as {@code tool.errors} and {@code tool.timeouts}. Functions are run by the
+ * {@code FunctionExecutor} unless another invoker, such as a {@link ToolResultCache}, is given.
+ * The default executor is a cached pool, so a tool that ignores the interrupt of its timeout ties
+ * up a thread but not a permit; it is shut down on {@link #close()}, while a given executor is left
+ * to its owner.
+ */
+public class ParallelToolDispatcher implements AutoCloseable {
+
+    private static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Function<FunctionCall, Object> invoker;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final AsyncLimiter limiter;
+    private final Duration defaultTimeout;
+    private final Map<String, Duration> toolTimeouts;
+    private final MetricsRegistry metrics;
+
+    @Builder
+    public ParallelToolDispatcher(FunctionExecutor functionExecutor, Function<FunctionCall, Object> invoker,
+            Executor executor, Integer maxConcurrency, Duration defaultTimeout, Map<String, Duration> toolTimeouts,
+            MetricsRegistry metrics) {
+        var concurrency = maxConcurrency != null ? maxConcurrency : DEFAULT_MAX_CONCURRENCY;
+        this.invoker = invoker != null ? invoker : functionExecutor::execute;
+        this.ownsExecutor = executor == null;
+        this.executor = executor != null ? executor
+                : Executors.newCachedThreadPool(new DaemonThreadFactory("tool-dispatcher"));
+        this.limiter = new AsyncLimiter(concurrency);
+        this.defaultTimeout = defaultTimeout != null ? defaultTimeout : DEFAULT_TIMEOUT;
+        this.toolTimeouts = toolTimeouts != null ? Map.copyOf(toolTimeouts) : Map.of();
+        this.metrics = metrics != null ? metrics : new MetricsRegistry();
+    }
+
+    public <R> CompletableFuture<List<R>> dispatch(List<ToolCall> toolCalls,
+            BiFunction<String, String, R> resultMapper) {
+        List<CompletableFuture<R>> futures = new ArrayList<>(toolCalls.size());
+        for (var toolCall : toolCalls) {
+            futures.add(submit(toolCall).thenApply(result -> resultMapper.apply(toolCall.getId(), result)));
+        }
+        return inOrder(futures);
+    }
+
+    public <R> List<R> executeAll(List<ToolCall> toolCalls, BiFunction<String, String, R> resultMapper) {
+        return dispatch(toolCalls, resultMapper).join();
+    }
+
+    /**
+     * Starts a single tool call. The future never fails: errors and timeouts complete it with an
+     * error text for the model. The timeout starts once the call holds a permit and runs, so time
+     * spent queued behind {@code maxConcurrency} does not count against it. A timed out call is
+     * interrupted and gives its permit back right away, so a hung tool cannot starve the others.
+     */
+    public CompletableFuture<String> submit(ToolCall toolCall) {
+        var functionName = toolCall.getFunction().getName();
+        var timeout = toolTimeouts.getOrDefault(functionName, defaultTimeout);
+        return limiter.acquire()
+                .thenCompose(permit -> run(toolCall, timeout))
+                .exceptionally(error -> errorOutput(functionName, timeout, error));
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            var pool = (ExecutorService) executor;
+            pool.shutdown();
+            try {
+                if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                    pool.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static <R> CompletableFuture<List<R>> inOrder(List<CompletableFuture<R>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> {
+                    List<R> results = new ArrayList<>(futures.size());
+                    for (var future : futures) {
+                        results.add(future.join());
+                    }
+                    return results;
+                });
+    }
+
+    private CompletableFuture<String> run(ToolCall toolCall, Duration timeout) {
+        var functionName = toolCall.getFunction().getName();
+        var released = new AtomicBoolean();
+        var result = new CompletableFuture<String>();
+        var task = new FutureTask<Void>(() -> {
+            var start = System.nanoTime();
+            result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            try {
+                result.complete(String.valueOf(invoker.apply(toolCall.getFunction())));
+                metrics.recordSince("tool." + functionName, start);
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        }, null);
+        result.whenComplete((output, error) -> {
+            if (error instanceof TimeoutException) {
+                task.cancel(true);
+            }
+            if (released.compareAndSet(false, true)) {
+                limiter.release();
+            }
+        });
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private String errorOutput(String functionName, Duration timeout, Throwable error) {
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        metrics.increment("tool.errors");
+        if (cause instanceof TimeoutException) {
+            metrics.increment("tool.timeouts");
+            return "Error: the function " + functionName + " did not finish within " + timeout.toMillis() + " ms.";
+        }
+        return "Error: the function " + functionName + " failed: " + cause.getMessage();
+    }
+
+}
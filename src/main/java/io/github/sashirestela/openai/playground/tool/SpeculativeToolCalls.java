@@ -0,0 +1,85 @@
+package io.github.sashirestela.openai.playground.tool;
+
+import io.github.sashirestela.openai.common.tool.ToolCall;
+import io.github.sashirestela.openai.playground.stream.ChatStreamAccumulator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Starts tool calls while the response that asks for them is still streaming. Used as the tool call
+ * listener of a {@link ChatStreamAccumulator}, it submits each tool call to the
+ * {@link ParallelToolDispatcher} as soon as its arguments are complete, so slow tools overlap with
+ * the rest of the stream instead of waiting for the finish reason. Once the stream has ended,
+ * {@link #collect} pairs the final tool calls with the results already in flight and runs any call
+ * that was not started or whose arguments changed. Tools start before the model has finished its
+ * answer, so only speculate on tools that are harmless to run for a response that gets cut short.
+ * Hits and misses are counted as {@code tool.speculated} and {@code tool.speculation.misses}. It is
+ * not thread-safe: use one instance per conversation, like the accumulator.
+ */
+public class SpeculativeToolCalls implements Consumer<ToolCall> {
+
+    private final ParallelToolDispatcher dispatcher;
+    private final Map<Integer, Speculation> speculations;
+
+    public SpeculativeToolCalls(ParallelToolDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+        this.speculations = new HashMap<>();
+    }
+
+    @Override
+    public void accept(ToolCall toolCall) {
+        speculations.put(toolCall.getIndex(),
+                new Speculation(toolCall.getFunction().getArguments(), dispatcher.submit(toolCall)));
+    }
+
+    public <R> CompletableFuture<List<R>> collect(List<ToolCall> toolCalls,
+            BiFunction<String, String, R> resultMapper) {
+        var metrics = dispatcher.getMetrics();
+        List<CompletableFuture<R>> futures = new ArrayList<>(toolCalls.size());
+        for (int i = 0; i < toolCalls.size(); i++) {
+            var toolCall = toolCalls.get(i);
+            var speculation = speculations.remove(toolCall.getIndex() != null ? toolCall.getIndex() : i);
+            CompletableFuture<String> result;
+            if (speculation != null && speculation.arguments.equals(toolCall.getFunction().getArguments())) {
+                metrics.increment("tool.speculated");
+                result = speculation.result;
+            } else {
+                metrics.increment("tool.speculation.misses");
+                result = dispatcher.submit(toolCall);
+            }
+            futures.add(result.thenApply(output -> resultMapper.apply(toolCall.getId(), output)));
+        }
+        speculations.clear();
+        return ParallelToolDispatcher.inOrder(futures);
+    }
+
+    public <R> List<R> collectAll(List<ToolCall> toolCalls, BiFunction<String, String, R> resultMapper) {
+        return collect(toolCalls, resultMapper).join();
+    }
+
+    /**
+     * Forgets the calls started for a response that did not end in tool calls.
+     */
+    public void reset() {
+        speculations.clear();
+    }
+
+    private static class Speculation {
+
+        private final String arguments;
+        private final CompletableFuture<String> result;
+
+        Speculation(String arguments, CompletableFuture<String> result) {
+            this.arguments = arguments;
+            this.result = result;
+        }
+
+    }
+
+}
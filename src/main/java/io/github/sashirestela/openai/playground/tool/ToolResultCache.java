@@ -0,0 +1,155 @@
+package io.github.sashirestela.openai.playground.tool;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.common.function.FunctionCall;
+import io.github.sashirestela.openai.common.function.FunctionDef;
+import io.github.sashirestela.openai.common.function.FunctionExecutor;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import io.github.sashirestela.openai.playground.support.Fingerprint;
+import lombok.Builder;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Memoizing invoker for the functions whose functional class is annotated with
+ * {@link CacheableTool}. Results are keyed by function name and the canonical JSON of the arguments
+ * (keys sorted, no whitespace), kept for the TTL of the annotation in an LRU of at most
+ * {@code maxEntries} results, and concurrent calls with the same key share a single execution.
+ * Functions without the annotation and failed calls go straight through and are never cached. Set
+ * it as the invoker of a {@link ParallelToolDispatcher}; lookups are counted as
+ * {@code toolcache.hits}, {@code toolcache.misses}, {@code toolcache.coalesced} and
+ * {@code toolcache.evictions}.
+ */
+public class ToolResultCache implements Function<FunctionCall, Object> {
+
+    private static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private final Function<FunctionCall, Object> invoker;
+    private final Map<String, Long> ttlNanos;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, CompletableFuture<Object>> inFlight;
+    private final MetricsRegistry metrics;
+
+    @Builder
+    public ToolResultCache(FunctionExecutor functionExecutor, List<FunctionDef> functions, Integer maxEntries,
+            MetricsRegistry metrics) {
+        this.invoker = functionExecutor::execute;
+        this.ttlNanos = new HashMap<>();
+        for (var function : functions) {
+            var cacheable = function.getFunctionalClass().getAnnotation(CacheableTool.class);
+            if (cacheable != null) {
+                ttlNanos.put(function.getName(), TimeUnit.SECONDS.toNanos(cacheable.ttlSeconds()));
+            }
+        }
+        this.maxEntries = maxEntries != null ? maxEntries : DEFAULT_MAX_ENTRIES;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true);
+        this.inFlight = new ConcurrentHashMap<>();
+        this.metrics = metrics != null ? metrics : new MetricsRegistry();
+    }
+
+    @Override
+    public Object apply(FunctionCall functionCall) {
+        var ttl = ttlNanos.get(functionCall.getName());
+        if (ttl == null) {
+            return invoker.apply(functionCall);
+        }
+        var key = keyOf(functionCall);
+        var cached = lookup(key);
+        if (cached != null) {
+            metrics.increment("toolcache.hits");
+            return cached.value;
+        }
+        var execution = new CompletableFuture<Object>();
+        var running = inFlight.putIfAbsent(key, execution);
+        if (running != null) {
+            metrics.increment("toolcache.coalesced");
+            return join(running);
+        }
+        try {
+            cached = lookup(key);
+            if (cached != null) {
+                metrics.increment("toolcache.hits");
+                execution.complete(cached.value);
+                return cached.value;
+            }
+            metrics.increment("toolcache.misses");
+            var value = invoker.apply(functionCall);
+            store(key, new Entry(value, System.nanoTime() + ttl));
+            execution.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, execution);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    static String keyOf(FunctionCall functionCall) {
+        var arguments = functionCall.getArguments();
+        Map<String, Object> fields = arguments == null || arguments.isBlank() ? Map.of()
+                : JsonUtil.jsonToObject(arguments, Map.class);
+        return functionCall.getName() + ":" + Fingerprint.canonicalJson(fields);
+    }
+
+    private synchronized Entry lookup(String key) {
+        var entry = entries.get(key);
+        if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void store(String key, Entry entry) {
+        entries.put(key, entry);
+        var eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+            metrics.increment("toolcache.evictions");
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Entry {
+
+        private final Object value;
+        private final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+package io.github.sashirestela.openai.playground.tool;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.common.function.Functional;
+import io.github.sashirestela.openai.common.function.SchemaConverter;
+import io.github.sashirestela.openai.support.JsonSchemaUtil;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link SchemaConverter} that serves the JSON schemas of {@link Functional} classes from the
+ * {@value #RESOURCE} resource written at build time by {@link #main(String[])}, so building the
+ * tools of the first request does not have to load and run the schema generator. A class missing
+ * from the resource is converted by the library's default converter once and then remembered,
+ * which also saves the conversion that {@code FunctionExecutor.getToolFunctions()} otherwise repeats
+ * for every request.
+ */
+public class ToolSchemas implements SchemaConverter {
+
+    public static final String RESOURCE = "tool-schemas.json";
+
+    private final Map<String, JsonNode> schemas;
+
+    private ToolSchemas(Map<String, JsonNode> schemas) {
+        this.schemas = new ConcurrentHashMap<>(schemas);
+    }
+
+    /**
+     * The converter loaded from the build-time resource, or an empty one if there is none.
+     */
+    public static ToolSchemas precomputed() {
+        return Holder.INSTANCE;
+    }
+
+    @Override
+    public JsonNode convert(Class<?> functionalClass) {
+        return schemas.computeIfAbsent(functionalClass.getName(),
+                name -> JsonSchemaUtil.defaultConverter.convert(functionalClass));
+    }
+
+    public int size() {
+        return schemas.size();
+    }
+
+    /**
+     * Writes the schemas of every {@link Functional} class under a compiled classes directory to
+     * {@value #RESOURCE} in that directory. Run by the build after compilation.
+     */
+    public static void main(String[] args) throws IOException {
+        var classesDirectory = Paths.get(args.length > 0 ? args[0] : "target/classes");
+        var schemas = new TreeMap<String, JsonNode>();
+        for (var functionalClass : functionalClasses(classesDirectory).entrySet()) {
+            schemas.put(functionalClass.getKey(), JsonSchemaUtil.defaultConverter.convert(functionalClass.getValue()));
+        }
+        Files.writeString(classesDirectory.resolve(RESOURCE), JsonUtil.objectToJson(schemas));
+        System.out.println("Wrote " + schemas.size() + " tool schemas to " + classesDirectory.resolve(RESOURCE));
+    }
+
+    private static Map<String, Class<?>> functionalClasses(Path classesDirectory) throws IOException {
+        try (var files = Files.walk(classesDirectory)) {
+            return files.map(file -> classesDirectory.relativize(file).toString())
+                    .filter(file -> file.endsWith(".class") && !file.endsWith("-info.class"))
+                    .map(file -> file.substring(0, file.length() - ".class".length()).replace('/', '.')
+                            .replace('\\', '.'))
+                    .map(ToolSchemas::loadClass)
+                    .filter(type -> Functional.class.isAssignableFrom(type) && !type.isInterface()
+                            && !Modifier.isAbstract(type.getModifiers()))
+                    .collect(Collectors.toMap(Class::getName, type -> type, (first, second) -> first, TreeMap::new));
+        }
+    }
+
+    private static Class<?> loadClass(String name) {
+        try {
+            return Class.forName(name, false, ToolSchemas.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return Object.class;
+        }
+    }
+
+    private static Map<String, JsonNode> load() {
+        try (var in = ToolSchemas.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                return Map.of();
+            }
+            var json = JsonUtil.jsonToObject(new String(in.readAllBytes(), StandardCharsets.UTF_8), JsonNode.class);
+            var schemas = new TreeMap<String, JsonNode>();
+            json.fields().forEachRemaining(field -> schemas.put(field.getKey(), field.getValue()));
+            return schemas;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the resource " + RESOURCE, e);
+        }
+    }
+
+    private static class Holder {
+
+        private static final ToolSchemas INSTANCE = new ToolSchemas(load());
+
+    }
+
+}
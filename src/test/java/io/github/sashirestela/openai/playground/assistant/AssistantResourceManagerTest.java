@@ -0,0 +1,119 @@
+package io.github.sashirestela.openai.playground.assistant;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.domain.assistant.AssistantRequest;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssistantResourceManagerTest {
+
+    private static final Duration STALE_AFTER = Duration.ofMillis(100);
+
+    @TempDir
+    Path directory;
+
+    private StubOpenAIServer stubServer;
+    private SimpleOpenAI openAI;
+
+    @BeforeEach
+    void startStub() {
+        stubServer = StubOpenAIServer.builder().build();
+        openAI = SimpleOpenAI.builder().apiKey("stub").baseUrl(stubServer.getBaseUrl()).build();
+    }
+
+    @AfterEach
+    void closeStub() {
+        openAI.shutDown();
+        stubServer.close();
+    }
+
+    @Test
+    void shouldKeepResourcesInUseOutOfTheCollection() throws IOException, InterruptedException {
+        var file = Files.writeString(directory.resolve("notes.txt"), "Some notes to search.");
+        var first = manager();
+        var fileId = first.fileId(file);
+        var vectorStoreId = first.vectorStoreId(List.of(fileId));
+        var assistantId = first.assistantId(assistant(vectorStoreId));
+
+        Thread.sleep(2 * STALE_AFTER.toMillis());
+        first.collectGarbage();
+
+        assertEquals(1, stubServer.getFileCount());
+        assertEquals(3, registry().getEntries().size());
+        first.close();
+
+        var second = manager();
+        assertEquals(fileId, second.fileId(file));
+        Thread.sleep(2 * STALE_AFTER.toMillis());
+        second.collectGarbage();
+        second.close();
+
+        assertEquals(List.of(fileId), ids());
+        assertEquals(1, stubServer.getFileCount());
+        assertTrue(openAI.vectorStores().getOne(vectorStoreId).handle((resource, error) -> error != null).join());
+        assertTrue(openAI.assistants().getOne(assistantId).handle((resource, error) -> error != null).join());
+    }
+
+    @Test
+    void shouldCollectResourcesUnusedSinceTheLastClose() throws IOException, InterruptedException {
+        var file = Files.writeString(directory.resolve("notes.txt"), "Some notes to search.");
+        var first = manager();
+        first.vectorStoreId(List.of(first.fileId(file)));
+        Thread.sleep(2 * STALE_AFTER.toMillis());
+        first.close();
+
+        var second = manager();
+        second.collectGarbage();
+
+        assertEquals(2, ids().size());
+        Thread.sleep(2 * STALE_AFTER.toMillis());
+        second.collectGarbage();
+        second.close();
+
+        assertEquals(List.of(), ids());
+        assertEquals(0, stubServer.getFileCount());
+    }
+
+    private AssistantResourceManager manager() {
+        return AssistantResourceManager.builder()
+                .openAI(openAI)
+                .registryFile(directory.resolve("registry.json"))
+                .threadPoolSize(0)
+                .staleAfter(STALE_AFTER)
+                .build();
+    }
+
+    private AssistantRequest assistant(String vectorStoreId) {
+        return AssistantRequest.builder()
+                .name("Notes Assistant")
+                .model("gpt-4o-mini")
+                .instructions("Answer from the notes " + vectorStoreId + ".")
+                .build();
+    }
+
+    private ResourceRegistry registry() {
+        return new ResourceRegistry(directory.resolve("registry.json"));
+    }
+
+    private List<String> ids() {
+        return registry().getEntries()
+                .stream()
+                .map(ResourceRegistry.Entry::getId)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+}
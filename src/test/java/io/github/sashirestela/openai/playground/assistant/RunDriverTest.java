@@ -0,0 +1,139 @@
+package io.github.sashirestela.openai.playground.assistant;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.domain.assistant.ThreadRequest;
+import io.github.sashirestela.openai.domain.assistant.ThreadRun.RunStatus;
+import io.github.sashirestela.openai.domain.assistant.ThreadRunRequest;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer.StubOpenAIServerBuilder;
+import io.github.sashirestela.openai.playground.stub.StubToolCall;
+import io.github.sashirestela.openai.playground.tool.ParallelToolDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunDriverTest {
+
+    private static final String ANSWER = "It is 18 degrees Celsius in Lima, with a 20% chance of rain.";
+    private static final List<StubToolCall> TOOL_CALLS = List.of(
+            StubToolCall.of("getCurrentTemperature", "{\"location\":\"Lima, Peru\",\"unit\":\"celsius\"}"),
+            StubToolCall.of("getRainProbability", "{\"location\":\"Lima, Peru\"}"));
+
+    private final List<String> toolsRun = Collections.synchronizedList(new ArrayList<>());
+    private final List<RunStatus> statuses = Collections.synchronizedList(new ArrayList<>());
+    private StubOpenAIServer stubServer;
+    private SimpleOpenAI openAI;
+    private ParallelToolDispatcher toolDispatcher;
+    private RunDriver runDriver;
+
+    @AfterEach
+    void closeStub() {
+        toolDispatcher.close();
+        openAI.shutDown();
+        stubServer.close();
+    }
+
+    @Test
+    void shouldSubmitToolOutputsAndResumeTheRun() {
+        start(StubOpenAIServer.builder().toolCalls(TOOL_CALLS));
+        var run = newRun();
+        List<String> deltas = Collections.synchronizedList(new ArrayList<>());
+        var consumed = run.consumeText(deltas::add);
+
+        var finished = run.start().orTimeout(10, TimeUnit.SECONDS).join();
+        consumed.orTimeout(5, TimeUnit.SECONDS).join();
+
+        assertEquals(RunStatus.COMPLETED, finished.getStatus());
+        assertEquals(List.of("getCurrentTemperature", "getRainProbability"), sorted(toolsRun));
+        assertEquals(List.of(RunStatus.QUEUED, RunStatus.REQUIRES_ACTION, RunStatus.COMPLETED), statuses);
+        assertEquals(ANSWER, String.join("", deltas));
+        assertEquals(ANSWER, run.getText().join());
+        var metrics = runDriver.getMetrics();
+        assertEquals(1, metrics.getTimer("run.tools").getCount());
+        assertEquals(1, metrics.getTimer("run.submit.handshake").getCount());
+        assertEquals(1, metrics.getTimer("run.ttft").getCount());
+        assertEquals(1, metrics.getTimer("run.duration").getCount());
+        assertEquals(0, metrics.getCount("run.duration.errors"));
+        assertTrue(metrics.getCount("run.tokens.completion") > 0);
+    }
+
+    @Test
+    void shouldCompleteARunWithoutTools() {
+        start(StubOpenAIServer.builder());
+        var run = newRun();
+
+        var finished = run.start().orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertEquals(RunStatus.COMPLETED, finished.getStatus());
+        assertEquals(ANSWER, run.getText().join());
+        assertEquals(List.of(), toolsRun);
+        assertEquals(0, runDriver.getMetrics().getTimer("run.tools").getCount());
+        assertEquals(run.getCompletion(), run.start(), "a run starts once");
+    }
+
+    @Test
+    void shouldFailTheRunAndItsPublisherWhenTheRunCannotStart() {
+        start(StubOpenAIServer.builder().failingRequests("POST /v1/threads/[^/]+/runs"));
+        var run = newRun();
+        var consumed = run.consumeText(delta -> {
+        });
+
+        assertThrows(CompletionException.class, () -> run.start().orTimeout(10, TimeUnit.SECONDS).join());
+        assertThrows(CompletionException.class, () -> consumed.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(1, runDriver.getMetrics().getCount("run.duration.errors"));
+        assertEquals(List.of(), statuses);
+    }
+
+    @Test
+    void shouldFailTheRunWhenToolOutputsCannotBeSubmitted() {
+        start(StubOpenAIServer.builder()
+                .toolCalls(TOOL_CALLS)
+                .failingRequests("POST /v1/threads/[^/]+/runs/[^/]+/submit_tool_outputs"));
+        var run = newRun();
+        var consumed = run.consumeText(delta -> {
+        });
+
+        assertThrows(CompletionException.class, () -> run.start().orTimeout(10, TimeUnit.SECONDS).join());
+        assertThrows(CompletionException.class, () -> consumed.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(2, toolsRun.size());
+        assertEquals(List.of(RunStatus.QUEUED, RunStatus.REQUIRES_ACTION), statuses);
+        assertEquals(1, runDriver.getMetrics().getCount("run.duration.errors"));
+        assertEquals(1, runDriver.getMetrics().getCount("run.submit.handshake.errors"));
+    }
+
+    private void start(StubOpenAIServerBuilder stub) {
+        stubServer = stub.answer(ANSWER).build();
+        openAI = SimpleOpenAI.builder().apiKey("stub").baseUrl(stubServer.getBaseUrl()).build();
+        toolDispatcher = ParallelToolDispatcher.builder()
+                .invoker(call -> {
+                    toolsRun.add(call.getName());
+                    return "18";
+                })
+                .build();
+        runDriver = RunDriver.builder().openAI(openAI).toolDispatcher(toolDispatcher).build();
+    }
+
+    private RunHandle newRun() {
+        var threadId = openAI.threads().create(ThreadRequest.builder().build()).join().getId();
+        return runDriver.newRun(threadId, ThreadRunRequest.builder().assistantId("asst_stub").build())
+                .onStatus(status -> statuses.add(status.getStatus()));
+    }
+
+    private static List<String> sorted(List<String> names) {
+        synchronized (names) {
+            var copy = new ArrayList<>(names);
+            Collections.sort(copy);
+            return copy;
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package io.github.sashirestela.openai.playground.batch;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChatBatcherTest {
+
+    private StubOpenAIServer stubServer;
+    private SimpleOpenAI openAI;
+    private ChatBatcher batcher;
+
+    @AfterEach
+    void closeStub() {
+        if (openAI != null) {
+            openAI.shutDown();
+        }
+        if (stubServer != null) {
+            stubServer.close();
+        }
+    }
+
+    @Test
+    void shouldRouteEveryOutputLineToItsRequest() {
+        start(StubOpenAIServer.builder().batchDuration(Duration.ofMillis(200)), false);
+
+        var chats = batcher.submitAll(requests(5)).orTimeout(10, TimeUnit.SECONDS).join();
+        batcher.close();
+
+        assertEquals(models(5), models(chats));
+        assertEquals(1, batcher.getMetrics().getCount("batch.batches"));
+        assertEquals(0, batcher.getMetrics().getCount("batch.direct"));
+        assertEquals(0, stubServer.getFileCount(), "the input and output files were not deleted");
+    }
+
+    @Test
+    void shouldKeepTheFilesWhenAsked() {
+        start(StubOpenAIServer.builder().batchDuration(Duration.ZERO), true);
+
+        batcher.submitAll(requests(3)).orTimeout(10, TimeUnit.SECONDS).join();
+        batcher.close();
+
+        assertEquals(2, stubServer.getFileCount());
+    }
+
+    @Test
+    void shouldSendSmallGroupsDirectly() {
+        start(StubOpenAIServer.builder(), false);
+
+        var chats = batcher.submitAll(requests(2)).orTimeout(10, TimeUnit.SECONDS).join();
+        batcher.close();
+
+        assertEquals(models(2), models(chats));
+        assertEquals(0, batcher.getMetrics().getCount("batch.batches"));
+        assertEquals(2, batcher.getMetrics().getCount("batch.direct"));
+    }
+
+    @Test
+    void shouldSendTheUnansweredRequestsOfAnExpiredBatchDirectly() {
+        start(StubOpenAIServer.builder().batchDuration(Duration.ofSeconds(1)).batchExpiry(Duration.ofMillis(500)),
+                false);
+
+        var chats = batcher.submitAll(requests(4)).orTimeout(10, TimeUnit.SECONDS).join();
+        batcher.close();
+
+        assertEquals(models(4), models(chats));
+        assertEquals(1, batcher.getMetrics().getCount("batch.batches"));
+        assertEquals(2, batcher.getMetrics().getCount("batch.direct"));
+        assertEquals(0, stubServer.getFileCount());
+    }
+
+    @Test
+    void shouldSendTheRequestsDirectlyWhenTheBatchCannotBeCreated() {
+        start(StubOpenAIServer.builder().failingRequests("POST /v1/batches"), false);
+
+        var chats = batcher.submitAll(requests(3)).orTimeout(10, TimeUnit.SECONDS).join();
+        batcher.close();
+
+        assertEquals(models(3), models(chats));
+        assertEquals(1, batcher.getMetrics().getCount("batch.fallbacks"));
+        assertEquals(3, batcher.getMetrics().getCount("batch.direct"));
+        assertEquals(0, stubServer.getBatchesCancelled());
+        assertEquals(0, stubServer.getFileCount(), "the uploaded input was not deleted");
+    }
+
+    @Test
+    void shouldCancelABatchThatCannotBeFollowedBeforeSendingItsRequestsDirectly() {
+        start(StubOpenAIServer.builder()
+                .batchDuration(Duration.ofMinutes(1))
+                .failingRequests("GET /v1/batches/[^/]+"), false);
+
+        var chats = batcher.submitAll(requests(3)).orTimeout(10, TimeUnit.SECONDS).join();
+        batcher.close();
+
+        assertEquals(models(3), models(chats));
+        assertEquals(1, stubServer.getBatchesCancelled());
+        assertEquals(1, batcher.getMetrics().getCount("batch.fallbacks"));
+        assertEquals(3, batcher.getMetrics().getCount("batch.direct"));
+        assertEquals(0, stubServer.getFileCount());
+    }
+
+    private void start(StubOpenAIServer.StubOpenAIServerBuilder stub, boolean keepFiles) {
+        stubServer = stub.build();
+        openAI = SimpleOpenAI.builder().apiKey("stub").baseUrl(stubServer.getBaseUrl()).build();
+        batcher = ChatBatcher.builder()
+                .openAI(openAI)
+                .minBatchSize(3)
+                .initialPollInterval(Duration.ofMillis(20))
+                .maxPollInterval(Duration.ofMillis(100))
+                .keepFiles(keepFiles)
+                .build();
+    }
+
+    private static List<ChatRequest> requests(int count) {
+        List<ChatRequest> requests = new ArrayList<>();
+        for (var model : models(count)) {
+            requests.add(ChatRequest.builder().model(model).message(UserMessage.of("Describe " + model)).build());
+        }
+        return requests;
+    }
+
+    private static List<String> models(int count) {
+        List<String> models = new ArrayList<>();
+        for (var i = 0; i < count; i++) {
+            models.add("model-" + i);
+        }
+        return models;
+    }
+
+    private static List<String> models(List<Chat> chats) {
+        return chats.stream().map(Chat::getModel).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,175 @@
+package io.github.sashirestela.openai.playground.cache;
+
+import io.github.sashirestela.openai.OpenAI;
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.common.StreamOptions;
+import io.github.sashirestela.openai.common.Usage;
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class CachingChatCompletionsTest {
+
+    private static final String ANSWER = "Lima is the capital of Peru.";
+
+    private StubOpenAIServer stubServer;
+    private SimpleOpenAI openAI;
+    private AsRequested upstream;
+    private CachingChatCompletions chatService;
+
+    @BeforeEach
+    void startStub() {
+        stubServer = StubOpenAIServer.builder().answer(ANSWER).build();
+        openAI = SimpleOpenAI.builder().apiKey("stub").baseUrl(stubServer.getBaseUrl()).build();
+        upstream = new AsRequested(openAI.chatCompletions());
+        chatService = new CachingChatCompletions(upstream, ChatResponseCache.builder().build());
+    }
+
+    @AfterEach
+    void closeStub() {
+        openAI.shutDown();
+        stubServer.close();
+    }
+
+    @Test
+    void shouldKeyOnTheStreamOptionsButNotOnTheCaller() {
+        var plain = request(null).build();
+
+        assertEquals(ChatCacheKey.of(plain), ChatCacheKey.of(request(null).user("someone").build()));
+        assertEquals(ChatCacheKey.of(plain), ChatCacheKey.of(request(null).stream(true).build()));
+        assertNotEquals(ChatCacheKey.of(plain), ChatCacheKey.of(request(Boolean.TRUE).build()));
+        assertNotEquals(ChatCacheKey.of(plain), ChatCacheKey.of(request(null).temperature(0.5).build()));
+    }
+
+    @Test
+    void shouldReplayTheUsageChunkOnlyToRequestsThatAskedForIt() {
+        var withUsage = stream(request(Boolean.TRUE).build());
+        var withoutUsage = stream(request(Boolean.FALSE).build());
+
+        assertEquals(2, stubServer.getStreamsServed());
+        assertNotNull(usage(withUsage));
+        assertEquals(List.of(), withoutUsage.stream()
+                .map(Chat::getUsage)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+
+        var replayedWithUsage = stream(request(Boolean.TRUE).build());
+        var replayedWithoutUsage = stream(request(Boolean.FALSE).build());
+
+        assertEquals(2, stubServer.getStreamsServed());
+        assertEquals(2, chatService.getCache().getStats().getHits());
+        assertEquals(usage(withUsage).getTotalTokens(), usage(replayedWithUsage).getTotalTokens());
+        assertEquals(withoutUsage.size(), replayedWithoutUsage.size());
+    }
+
+    @Test
+    void shouldShareABlockingCallWithIdenticalRequestsMadeMeanwhile() {
+        var first = chatService.create(request(null).build());
+        var second = chatService.create(request(null).build());
+
+        assertEquals(ANSWER, first.join().firstContent());
+        assertEquals(ANSWER, second.join().firstContent());
+        assertEquals(1, upstream.calls.get());
+        assertEquals(1, chatService.getCache().getStats().getCoalesced());
+
+        assertEquals(ANSWER, chatService.create(request(null).build()).join().firstContent());
+        assertEquals(1, upstream.calls.get());
+        assertEquals(1, chatService.getCache().getStats().getHits());
+    }
+
+    @Test
+    void shouldShareAStreamWithIdenticalRequestsMadeMeanwhile() {
+        var first = chatService.createStream(request(Boolean.TRUE).build());
+        var second = chatService.createStream(request(Boolean.TRUE).build());
+
+        var firstChunks = first.join().collect(Collectors.toList());
+        var secondChunks = second.join().collect(Collectors.toList());
+
+        assertEquals(1, stubServer.getStreamsServed());
+        assertEquals(1, chatService.getCache().getStats().getCoalesced());
+        assertEquals(text(firstChunks), text(secondChunks));
+        assertEquals(ANSWER, text(firstChunks));
+        assertEquals(1, chatService.getCache().getStats().getMisses());
+    }
+
+    @Test
+    void shouldNotCacheAStreamThatWasNotDrained() {
+        try (var abandoned = chatService.createStream(request(Boolean.TRUE).build()).join()) {
+            assertNotNull(abandoned.findFirst().orElse(null));
+        }
+
+        assertEquals(ANSWER, text(stream(request(Boolean.TRUE).build())));
+        assertEquals(2, stubServer.getStreamsServed());
+        assertEquals(0, chatService.getCache().getStats().getHits());
+    }
+
+    private ChatRequest.ChatRequestBuilder request(Boolean includeUsage) {
+        var builder = ChatRequest.builder()
+                .model("gpt-4o-mini")
+                .message(UserMessage.of("What is the capital of Peru?"))
+                .temperature(0.0);
+        return includeUsage != null ? builder.streamOptions(StreamOptions.of(includeUsage)) : builder;
+    }
+
+    private List<Chat> stream(ChatRequest chatRequest) {
+        return chatService.createStream(chatRequest).join().collect(Collectors.toList());
+    }
+
+    private static String text(List<Chat> chunks) {
+        return chunks.stream()
+                .filter(chunk -> !chunk.getChoices().isEmpty())
+                .map(chunk -> chunk.getChoices().get(0).getMessage().getContent())
+                .filter(Objects::nonNull)
+                .collect(Collectors.joining());
+    }
+
+    private static Usage usage(List<Chat> chunks) {
+        return chunks.get(chunks.size() - 1).getUsage();
+    }
+
+    /**
+     * Streams the request as given: the default {@code createStream} always asks for the usage.
+     */
+    private static class AsRequested implements OpenAI.ChatCompletions {
+
+        private final OpenAI.ChatCompletions upstream;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        AsRequested(OpenAI.ChatCompletions upstream) {
+            this.upstream = upstream;
+        }
+
+        @Override
+        public CompletableFuture<Chat> createPrimitive(ChatRequest chatRequest) {
+            calls.incrementAndGet();
+            return upstream.createPrimitive(chatRequest);
+        }
+
+        @Override
+        public CompletableFuture<Stream<Chat>> createStreamPrimitive(ChatRequest chatRequest) {
+            return upstream.createStreamPrimitive(chatRequest);
+        }
+
+        @Override
+        public CompletableFuture<Stream<Chat>> createStream(ChatRequest chatRequest) {
+            return upstream.createStreamPrimitive(chatRequest.withStream(true));
+        }
+
+    }
+
+}
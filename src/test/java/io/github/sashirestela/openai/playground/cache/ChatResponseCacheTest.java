@@ -0,0 +1,120 @@
+package io.github.sashirestela.openai.playground.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatResponseCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedEntryFirst() {
+        var cache = ChatResponseCache.builder().maxBytes(20L).build();
+        cache.put("a", value("aaaaaaaaaa"));
+        cache.put("b", value("bbbbbbbbbb"));
+        cache.get("a");
+
+        cache.put("c", value("cccccccccc"));
+
+        assertEquals("aaaaaaaaaa", text(cache.get("a")));
+        assertNull(cache.get("b"));
+        assertEquals("cccccccccc", text(cache.get("c")));
+        assertEquals(1, cache.getStats().getEvictions());
+    }
+
+    @Test
+    void shouldSpillToDiskAndPromoteBackAMappedEntry() {
+        var cache = diskCache(null);
+        cache.put("a", value("aaaaaaaaaa"));
+        cache.put("b", value("bbbbbbbbbb"));
+        cache.put("c", value("cccccccccc"));
+
+        var promoted = cache.get("a");
+
+        assertEquals("aaaaaaaaaa", text(promoted));
+        assertEquals(1, cache.getStats().getDiskHits());
+        assertTrue(cache.get("a") instanceof MappedByteBuffer, "a promoted entry keeps its mapping");
+        assertEquals("bbbbbbbbbb", text(cache.get("b")));
+        assertEquals(2, cache.getStats().getDiskHits());
+    }
+
+    @Test
+    void shouldPickUpTheEntriesOfAnEarlierRun() {
+        var cache = diskCache(null);
+        cache.put("a", value("aaaaaaaaaa"));
+        cache.put("b", value("bbbbbbbbbb"));
+        cache.put("c", value("cccccccccc"));
+
+        var restarted = diskCache(null);
+
+        assertEquals("aaaaaaaaaa", text(restarted.get("a")));
+        assertNull(restarted.get("c"), "entries still in memory were not spilled");
+    }
+
+    @Test
+    void shouldTrimTheDiskTierOnStart() {
+        var disk = new DiskCacheStore(directory, 100);
+        disk.put("a", ByteBuffer.wrap(value("aaaaaaaaaa")), 1_000L);
+        disk.put("b", ByteBuffer.wrap(value("bbbbbbbbbb")), 2_000L);
+        disk.put("c", ByteBuffer.wrap(value("cccccccccc")), 3_000L);
+
+        var trimmed = new DiskCacheStore(directory, 25);
+
+        assertEquals(2, trimmed.size());
+        assertEquals(20, trimmed.getTotalBytes());
+        assertNull(trimmed.get("a"));
+        assertEquals(2_000L, trimmed.getStoredAt("b"));
+    }
+
+    @Test
+    void shouldExpireEntriesInMemory() throws InterruptedException {
+        var cache = ChatResponseCache.builder().ttl(Duration.ofMillis(100)).build();
+        cache.put("a", value("aaaaaaaaaa"));
+
+        assertEquals("aaaaaaaaaa", text(cache.get("a")));
+        Thread.sleep(150);
+
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void shouldCountTheTimeToLiveFromTheFirstStoreAcrossTiers() throws InterruptedException {
+        var cache = diskCache(Duration.ofMillis(600));
+        cache.put("a", value("aaaaaaaaaa"));
+        Thread.sleep(400);
+        cache.put("b", value("bbbbbbbbbb"));
+        cache.put("c", value("cccccccccc"));
+
+        assertEquals("aaaaaaaaaa", text(cache.get("a")));
+        Thread.sleep(300);
+
+        var restarted = diskCache(Duration.ofMillis(600));
+        assertNull(restarted.get("a"), "spilled after 400 ms, but stored 700 ms ago");
+        assertEquals("bbbbbbbbbb", text(restarted.get("b")));
+        assertNull(cache.get("a"));
+    }
+
+    private ChatResponseCache diskCache(Duration ttl) {
+        return ChatResponseCache.builder().maxBytes(20L).diskDirectory(directory).ttl(ttl).build();
+    }
+
+    private static byte[] value(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        return buffer != null ? StandardCharsets.UTF_8.decode(buffer).toString() : null;
+    }
+
+}
@@ -0,0 +1,122 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.AssistantMessage;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer.StubOpenAIServerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationEngineTest {
+
+    private static final String ANSWER = "It is 18 degrees in Lima.";
+    private static final long FIRST_CHUNK_MILLIS = 100;
+
+    private StubOpenAIServer stubServer;
+    private SimpleOpenAI openAI;
+    private ConversationEngine engine;
+
+    @AfterEach
+    void closeEngine() {
+        engine.close();
+        openAI.shutDown();
+        stubServer.close();
+    }
+
+    @Test
+    void shouldCapTheRequestsInFlightAcrossSessions() throws InterruptedException {
+        start(StubOpenAIServer.builder().firstChunkDelay(Duration.ofMillis(FIRST_CHUNK_MILLIS)), 2);
+        var limiter = engine.getRequestLimiter();
+        var peakInFlight = new AtomicInteger();
+        var peakQueued = new AtomicInteger();
+        var sampling = new AtomicBoolean(true);
+        var sampler = new Thread(() -> {
+            while (sampling.get()) {
+                peakInFlight.accumulateAndGet(limiter.getInFlight(), Math::max);
+                peakQueued.accumulateAndGet(limiter.getQueued(), Math::max);
+                Thread.onSpinWait();
+            }
+        });
+        sampler.start();
+        List<ChatConversationHandler> handlers = new ArrayList<>();
+        var started = System.nanoTime();
+
+        for (var i = 0; i < 6; i++) {
+            var input = new QueueInputSource(2);
+            input.offer("What is the weather like in Lima?");
+            input.offer("And tomorrow?");
+            input.close();
+            var handler = ChatConversationHandler.builder().engine(engine).build();
+            handlers.add(handler);
+            engine.startSession("session-" + i, input, handler);
+        }
+        engine.awaitAll().orTimeout(20, TimeUnit.SECONDS).join();
+        var elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        sampling.set(false);
+        sampler.join();
+
+        assertEquals(12, stubServer.getStreamsServed());
+        assertEquals(2, peakInFlight.get());
+        assertTrue(peakQueued.get() > 0, "the other sessions waited for a permit");
+        assertTrue(elapsedMillis >= 12 / 2 * FIRST_CHUNK_MILLIS, elapsedMillis + " ms for 12 requests, 2 at a time");
+        for (var handler : handlers) {
+            assertEquals(4, handler.getMemory().size());
+            assertEquals(ANSWER, ((AssistantMessage) handler.getMemory().getMessages().get(3)).getContent());
+        }
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void shouldReleaseThePermitOfAFailedRequest() {
+        start(StubOpenAIServer.builder().failingRequests("POST /v1/chat/completions"), 1);
+
+        for (var i = 0; i < 3; i++) {
+            var input = new QueueInputSource(1);
+            input.offer("What is the weather like in Lima?");
+            var session = engine.startSession("session-" + i,
+                    input, ChatConversationHandler.builder().engine(engine).build());
+
+            assertThrows(CompletionException.class,
+                    () -> session.getCompletion().orTimeout(10, TimeUnit.SECONDS).join(),
+                    "session " + i + " got a permit and failed");
+            assertEquals(1, session.getTurns());
+        }
+        assertEquals(0, engine.getRequestLimiter().getInFlight());
+        assertEquals(0, engine.getRequestLimiter().getQueued());
+    }
+
+    @Test
+    void shouldRejectADuplicatedSessionId() {
+        start(StubOpenAIServer.builder(), 1);
+        var input = new QueueInputSource(1);
+        var session = engine.startSession("session-1", input,
+                ChatConversationHandler.builder().engine(engine).build());
+
+        assertThrows(IllegalArgumentException.class, () -> engine.startSession("session-1",
+                new QueueInputSource(1), ChatConversationHandler.builder().engine(engine).build()));
+        assertEquals(session, engine.getSession("session-1"));
+        assertEquals(1, engine.getActiveSessions());
+        input.close();
+        session.getCompletion().orTimeout(5, TimeUnit.SECONDS).join();
+        assertEquals(0, session.getTurns());
+    }
+
+    private void start(StubOpenAIServerBuilder stub, int maxInFlightRequests) {
+        stubServer = stub.answer(ANSWER).build();
+        openAI = SimpleOpenAI.builder().apiKey("stub").baseUrl(stubServer.getBaseUrl()).build();
+        engine = ConversationEngine.builder().openAI(openAI).maxInFlightRequests(maxInFlightRequests).build();
+    }
+
+}
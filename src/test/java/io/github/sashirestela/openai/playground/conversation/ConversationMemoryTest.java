@@ -0,0 +1,174 @@
+package io.github.sashirestela.openai.playground.conversation;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.common.function.FunctionCall;
+import io.github.sashirestela.openai.common.tool.ToolCall;
+import io.github.sashirestela.openai.common.tool.ToolType;
+import io.github.sashirestela.openai.domain.chat.ChatMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.AssistantMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.DeveloperMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.SystemMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.ToolMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.playground.store.ConversationStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationMemoryTest {
+
+    private static final TokenEstimator ESTIMATOR = TokenEstimator.charBased();
+    private static final int MAX_TOKENS = 400;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldEvictWholeTurnsDownToThreeQuartersOfTheBudget() {
+        var memory = ConversationMemory.builder().maxTokens(MAX_TOKENS).tokenEstimator(ESTIMATOR).build();
+        var system = SystemMessage.of("You are a terse assistant.");
+        memory.add(system);
+        var turn = 0;
+        while (memory.getEvictedTurns() == 0) {
+            addTurn(memory, ++turn);
+        }
+
+        assertTrue(memory.getEstimatedTokens() <= MAX_TOKENS * 3 / 4, memory.getEstimatedTokens() + " tokens");
+        assertEquals(estimate(memory.getMessages()), memory.getEstimatedTokens());
+        var messages = memory.getMessages();
+        assertEquals(system, messages.get(0));
+        assertTrue(messages.get(1) instanceof UserMessage, "eviction keeps turns whole");
+        assertEquals(messages.size(), memory.size());
+        assertEquals(turn - memory.getEvictedTurns(), messages.stream().filter(UserMessage.class::isInstance).count());
+        assertEquals(text(turn), ((UserMessage) messages.get(messages.size() - 2)).getContent());
+    }
+
+    @Test
+    void shouldKeepToolResultsWithTheirToolCall() {
+        var memory = ConversationMemory.builder().maxTokens(MAX_TOKENS).tokenEstimator(ESTIMATOR).build();
+        for (var turn = 1; memory.getEvictedTurns() < 3; turn++) {
+            memory.add(UserMessage.of(text(turn)));
+            memory.add(AssistantMessage.of(List.of(toolCall("call_" + turn))));
+            memory.add(ToolMessage.of("18 degrees in Lima during turn " + turn, "call_" + turn));
+            memory.add(AssistantMessage.of("It is 18 degrees in Lima."));
+        }
+
+        var messages = memory.getMessages();
+        assertTrue(messages.get(0) instanceof UserMessage);
+        for (var i = 0; i < messages.size(); i += 4) {
+            var toolCallId = ((AssistantMessage) messages.get(i + 1)).getToolCalls().get(0).getId();
+            assertEquals(toolCallId, ((ToolMessage) messages.get(i + 2)).getToolCallId());
+        }
+    }
+
+    @Test
+    void shouldPinSystemMessagesAndKeepTheLatestTurn() {
+        var memory = ConversationMemory.builder().maxTokens(100).tokenEstimator(ESTIMATOR).build();
+        var system = SystemMessage.of("You are a terse assistant.");
+        var developer = DeveloperMessage.of("Answer in Spanish.");
+        memory.add(system);
+        addTurn(memory, 1);
+        memory.add(developer);
+        var longQuestion = UserMessage.of("Tell me everything about Lima. ".repeat(20));
+
+        memory.add(longQuestion);
+
+        assertEquals(List.of(system, developer, longQuestion), memory.getMessages());
+        assertTrue(memory.getEstimatedTokens() > 100, "the latest turn is kept even over the budget");
+        assertEquals(1, memory.getEvictedTurns());
+    }
+
+    @Test
+    void shouldFoldEvictedTurnsIntoTheSummary() {
+        List<String> previousSummaries = new ArrayList<>();
+        List<List<ChatMessage>> evictions = new ArrayList<>();
+        var memory = ConversationMemory.builder()
+                .maxTokens(MAX_TOKENS)
+                .tokenEstimator(ESTIMATOR)
+                .summarizer((previousSummary, evicted) -> {
+                    previousSummaries.add(previousSummary);
+                    evictions.add(evicted);
+                    return "Summary " + evictions.size();
+                })
+                .build();
+        var system = SystemMessage.of("You are a terse assistant.");
+        memory.add(system);
+        for (var turn = 1; evictions.size() < 2; turn++) {
+            addTurn(memory, turn);
+        }
+
+        assertNull(previousSummaries.get(0));
+        assertEquals("Summary 1", previousSummaries.get(1));
+        assertEquals(text(1), ((UserMessage) evictions.get(0).get(0)).getContent());
+        assertEquals(2 * memory.getEvictedTurns(), evictions.stream().mapToInt(List::size).sum());
+        assertEquals("Summary 2", memory.getSummary());
+        var messages = memory.getMessages();
+        assertEquals(system, messages.get(0));
+        assertTrue(((SystemMessage) messages.get(1)).getContent().endsWith("\nSummary 2"));
+        assertEquals(estimate(messages), memory.getEstimatedTokens());
+    }
+
+    @Test
+    void shouldResumeFromTheSnapshotTakenAfterEviction() {
+        List<ChatMessage> kept;
+        String summary;
+        try (var store = ConversationStore.builder().directory(directory).build()) {
+            var memory = memory(store);
+            memory.add(SystemMessage.of("You are a terse assistant."));
+            for (var turn = 1; memory.getEvictedTurns() == 0; turn++) {
+                addTurn(memory, turn);
+            }
+            kept = memory.getMessages();
+            summary = memory.getSummary();
+        }
+
+        try (var store = ConversationStore.builder().directory(directory).build()) {
+            var resumed = memory(store);
+
+            assertEquals(json(kept), json(resumed.getMessages()));
+            assertEquals(summary, resumed.getSummary());
+            assertEquals(kept.size() - 1, resumed.size(), "the summary is not a message of the conversation");
+        }
+    }
+
+    private ConversationMemory memory(ConversationStore store) {
+        return ConversationMemory.builder()
+                .maxTokens(MAX_TOKENS)
+                .tokenEstimator(ESTIMATOR)
+                .summarizer((previousSummary, evicted) -> "Summary of " + evicted.size() + " messages")
+                .store(store)
+                .sessionId("session-1")
+                .build();
+    }
+
+    private static void addTurn(ConversationMemory memory, int turn) {
+        memory.add(UserMessage.of(text(turn)));
+        memory.add(AssistantMessage.of("It is 18 degrees in Lima, with a 20% chance of rain."));
+    }
+
+    private static String text(int turn) {
+        return "Question " + turn + ": what is the weather like in Lima today?";
+    }
+
+    private static ToolCall toolCall(String id) {
+        return new ToolCall(0, id, ToolType.FUNCTION,
+                new FunctionCall("getCurrentTemperature", "{\"location\":\"Lima, Peru\"}"));
+    }
+
+    private static int estimate(List<ChatMessage> messages) {
+        return messages.stream().mapToInt(ESTIMATOR::estimate).sum();
+    }
+
+    private static List<String> json(List<ChatMessage> messages) {
+        return messages.stream().map(JsonUtil::objectToJson).collect(Collectors.toList());
+    }
+
+}
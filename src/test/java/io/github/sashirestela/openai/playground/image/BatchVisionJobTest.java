@@ -0,0 +1,134 @@
+package io.github.sashirestela.openai.playground.image;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.playground.ratelimit.RateLimitScheduler;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchVisionJobTest {
+
+    private static final String ANSWER = "A small square of solid color.";
+
+    @TempDir
+    Path directory;
+
+    private StubOpenAIServer stubServer;
+    private RateLimitScheduler rateLimits;
+    private SimpleOpenAI openAI;
+
+    @BeforeEach
+    void startStub() {
+        stubServer = StubOpenAIServer.builder().answer(ANSWER).build();
+        rateLimits = RateLimitScheduler.builder().maxConcurrency(2).build();
+        openAI = SimpleOpenAI.builder()
+                .apiKey("stub")
+                .baseUrl(stubServer.getBaseUrl())
+                .httpClient(rateLimits.getHttpClient())
+                .build();
+    }
+
+    @AfterEach
+    void closeStub() {
+        openAI.shutDown();
+        rateLimits.close();
+        stubServer.close();
+    }
+
+    @Test
+    void shouldDescribeEveryImageThroughTheBulkLane() throws IOException {
+        var images = List.of(image("a.png"), image("b.png"), image("c.png"));
+
+        var report = job().run(directory.resolve("images"));
+
+        assertEquals(3, report.getSucceeded());
+        assertEquals(0, report.getFailed());
+        assertTrue(report.getPromptTokens() > 0 && report.getCompletionTokens() > 0, report.toString());
+        assertEquals(3, rateLimits.getMetrics().getTimer("ratelimit.wait.bulk").getCount());
+        assertEquals(0, rateLimits.getMetrics().getTimer("ratelimit.wait.interactive").getCount());
+        var results = results();
+        assertEquals(images, results.stream().map(BatchVisionResult::getImage).sorted().collect(Collectors.toList()));
+        results.forEach(result -> assertEquals(ANSWER, result.getDescription()));
+    }
+
+    @Test
+    void shouldSkipCheckpointedImagesAndRetryFailedOnes() throws IOException {
+        var first = image("a.png");
+        var second = image("b.png");
+        var missing = directory.resolve("images").resolve("c.png");
+        var manifest = Files.writeString(directory.resolve("manifest.txt"),
+                "# images\n" + first + "\n" + second + "\n" + missing + "\n");
+
+        var firstRun = job().run(manifest);
+
+        assertEquals(2, firstRun.getSucceeded());
+        assertEquals(1, firstRun.getFailed());
+        // A crash while the next line was being written leaves half of it behind.
+        Files.writeString(output(), "{\"image\":\"" + second, StandardOpenOption.APPEND);
+        image("c.png");
+
+        var secondRun = job().run(manifest);
+
+        assertEquals(3, secondRun.getTotal());
+        assertEquals(2, secondRun.getSkipped());
+        assertEquals(1, secondRun.getSucceeded());
+        assertEquals(0, secondRun.getFailed());
+        var retried = results().stream()
+                .filter(result -> result.getImage().equals(missing.toString()))
+                .collect(Collectors.toList());
+        assertEquals(2, retried.size());
+        assertNotNull(retried.get(0).getError());
+        assertEquals(ANSWER, retried.get(1).getDescription());
+
+        var thirdRun = job().run(manifest);
+
+        assertEquals(3, thirdRun.getSkipped());
+        assertEquals(0, thirdRun.getSucceeded() + thirdRun.getFailed());
+    }
+
+    private BatchVisionJob job() {
+        return BatchVisionJob.builder()
+                .chatService(openAI.chatCompletions())
+                .rateLimits(rateLimits)
+                .maxConcurrency(2)
+                .output(output())
+                .build();
+    }
+
+    private Path output() {
+        return directory.resolve("results.jsonl");
+    }
+
+    private String image(String name) throws IOException {
+        var file = Files.createDirectories(directory.resolve("images")).resolve(name);
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        return file.toString();
+    }
+
+    private List<BatchVisionResult> results() throws IOException {
+        return Files.readAllLines(output(), StandardCharsets.UTF_8)
+                .stream()
+                .filter(line -> line.endsWith("}"))
+                .map(line -> JsonUtil.jsonToObject(line, BatchVisionResult.class))
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,106 @@
+package io.github.sashirestela.openai.playground.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImagePayloadCacheTest {
+
+    private static final int CHUNK_BYTES = 3 * 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldEncodeLikeBase64AcrossChunks() throws IOException {
+        var cache = ImagePayloadCache.builder().build();
+        var random = new Random(42);
+        for (var size : new int[] { 0, 1, 2, CHUNK_BYTES, 2 * CHUNK_BYTES + 1, 3 * CHUNK_BYTES + 2 }) {
+            var bytes = new byte[size];
+            random.nextBytes(bytes);
+            var file = Files.write(directory.resolve("image-" + size + ".png"), bytes);
+
+            assertEquals("data:image/png;base64," + Base64.getEncoder().encodeToString(bytes), cache.dataUrl(file),
+                    size + " bytes");
+        }
+    }
+
+    @Test
+    void shouldReuseThePayloadOfAnUnchangedFileOrACopy() throws IOException {
+        var cache = ImagePayloadCache.builder().build();
+        var file = image("a.png", 8, 8);
+        var first = cache.dataUrl(file);
+
+        assertSame(first, cache.dataUrl(file));
+        assertEquals(1, cache.getHits());
+        var copy = Files.copy(file, directory.resolve("b.png"));
+        assertSame(first, cache.dataUrl(copy), "a copy shares the entry of its content");
+        assertEquals(first.length(), cache.getTotalChars());
+
+        ImageIO.write(new BufferedImage(9, 9, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        var changed = cache.dataUrl(file);
+
+        assertNotEquals(first, changed, "a changed file is encoded again");
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedPayload() throws IOException {
+        var a = Files.write(directory.resolve("a.png"), new byte[300]);
+        var b = Files.write(directory.resolve("b.png"), new byte[301]);
+        var c = Files.write(directory.resolve("c.png"), new byte[302]);
+        var payloadChars = ImagePayloadCache.builder().build().dataUrl(a).length();
+        var cache = ImagePayloadCache.builder().maxChars(2L * payloadChars + 10).build();
+        cache.dataUrl(a);
+        cache.dataUrl(b);
+        cache.dataUrl(a);
+
+        cache.dataUrl(c);
+        cache.dataUrl(a);
+        cache.dataUrl(b);
+
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    void shouldDownscaleOnlyImagesOverTheMaxDimension() throws IOException {
+        var cache = ImagePayloadCache.builder().maxDimension(100).build();
+        var fitting = image("fitting.png", 100, 40);
+        var oversized = image("oversized.png", 401, 160);
+
+        assertEquals("data:image/png;base64," + Base64.getEncoder().encodeToString(Files.readAllBytes(fitting)),
+                cache.dataUrl(fitting));
+
+        var dataUrl = cache.dataUrl(oversized);
+        var prefix = "data:image/jpeg;base64,";
+        assertTrue(dataUrl.startsWith(prefix), dataUrl.substring(0, 30));
+        var downscaled = ImageIO.read(new ByteArrayInputStream(Base64.getDecoder()
+                .decode(dataUrl.substring(prefix.length()))));
+        assertEquals(100, downscaled.getWidth());
+        assertEquals(40, downscaled.getHeight());
+    }
+
+    private Path image(String name, int width, int height) throws IOException {
+        var file = directory.resolve(name);
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        return file;
+    }
+
+}
@@ -0,0 +1,123 @@
+package io.github.sashirestela.openai.playground.metrics;
+
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.common.StreamOptions;
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer;
+import io.github.sashirestela.openai.playground.stub.StubOpenAIServer.StubOpenAIServerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MeteredChatCompletionsTest {
+
+    private static final String ANSWER = "Machu Picchu is a fifteenth-century Inca citadel in southern Peru.";
+    private static final ChatRequest CHAT_REQUEST = ChatRequest.builder()
+            .model("gpt-4o-mini")
+            .messages(List.of(UserMessage.of("Tell me about Machu Picchu.")))
+            .streamOptions(StreamOptions.of(Boolean.TRUE))
+            .build();
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private StubOpenAIServer stubServer;
+    private SimpleOpenAI openAI;
+    private MeteredChatCompletions chatService;
+
+    @AfterEach
+    void closeStub() {
+        openAI.shutDown();
+        stubServer.close();
+    }
+
+    @Test
+    void shouldTimeBlockingCompletionsAndRecordTheirUsage() {
+        start(StubOpenAIServer.builder());
+
+        var chat = chatService.create(CHAT_REQUEST).orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertEquals(ANSWER, chat.firstContent());
+        assertEquals(1, metrics.getCount("chat.create.calls"));
+        assertEquals(1, metrics.getTimer("chat.create").getCount());
+        assertEquals(0, metrics.getErrorRate("chat.create"));
+        assertEquals(chat.getUsage().getPromptTokens(), (int) metrics.getCount("chat.tokens.prompt"));
+        assertEquals(chat.getUsage().getCompletionTokens(), (int) metrics.getCount("chat.tokens.completion"));
+    }
+
+    @Test
+    void shouldTimeEachPhaseOfAStream() {
+        start(StubOpenAIServer.builder().firstChunkDelay(Duration.ofMillis(200)));
+
+        var chunks = chatService.createStream(CHAT_REQUEST).orTimeout(10, TimeUnit.SECONDS).join()
+                .collect(Collectors.toList());
+
+        var usage = chunks.get(chunks.size() - 1).getUsage();
+        assertEquals(ANSWER, chunks.stream()
+                .filter(chunk -> !chunk.getChoices().isEmpty())
+                .map(Chat::firstContent)
+                .filter(text -> text != null)
+                .collect(Collectors.joining()));
+        assertEquals(1, metrics.getTimer("chat.stream.handshake").getCount());
+        var ttft = metrics.getTimer("chat.stream.ttft");
+        var duration = metrics.getTimer("chat.stream.duration");
+        assertEquals(1, ttft.getCount());
+        assertEquals(1, duration.getCount());
+        assertTrue(ttft.getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(200),
+                "the first chunk without content does not count as the first token");
+        assertTrue(duration.getMaxNanos() >= ttft.getMaxNanos());
+        assertEquals(1, metrics.getCount("chat.stream.duration.calls"));
+        assertEquals(0, metrics.getErrorRate("chat.stream.duration"));
+        assertEquals(usage.getCompletionTokens(), (int) metrics.getCount("chat.tokens.completion"));
+        assertTrue(metrics.getCount("chat.tokens.prompt") > 0);
+    }
+
+    @Test
+    void shouldCountAFailedHandshakeAsAFailedStream() {
+        start(StubOpenAIServer.builder().failingRequests("POST /v1/chat/completions"));
+
+        assertThrows(CompletionException.class,
+                () -> chatService.createStream(CHAT_REQUEST).orTimeout(10, TimeUnit.SECONDS).join());
+
+        assertEquals(1, metrics.getCount("chat.stream.handshake.errors"));
+        assertEquals(1, metrics.getCount("chat.stream.duration.errors"));
+        assertEquals(1, metrics.getErrorRate("chat.stream.duration"));
+        assertEquals(1, metrics.getTimer("chat.stream.duration.failed").getCount());
+        assertEquals(0, metrics.getTimer("chat.stream.duration").getCount());
+    }
+
+    @Test
+    void shouldNotBlameTheStreamForTheFailuresOfItsConsumer() {
+        start(StubOpenAIServer.builder());
+        var consumed = new AtomicInteger();
+        var stream = chatService.createStream(CHAT_REQUEST).orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertThrows(IllegalStateException.class, () -> stream.forEach(chunk -> {
+            if (consumed.incrementAndGet() == 2) {
+                throw new IllegalStateException("consumer failed");
+            }
+        }));
+        stream.close();
+
+        assertEquals(0, metrics.getCount("chat.stream.duration.errors"));
+        assertEquals(0, metrics.getTimer("chat.stream.duration").getCount(), "the stream was not drained");
+        assertEquals(1, metrics.getTimer("chat.stream.ttft").getCount());
+    }
+
+    private void start(StubOpenAIServerBuilder stub) {
+        stubServer = stub.answer(ANSWER).build();
+        openAI = SimpleOpenAI.builder().apiKey("stub").baseUrl(stubServer.getBaseUrl()).build();
+        chatService = new MeteredChatCompletions(openAI.chatCompletions(), metrics);
+    }
+
+}
@@ -0,0 +1,107 @@
+package io.github.sashirestela.openai.playground.metrics;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.common.Usage;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+
+    private static final String PHASE_EVENT = "io.github.sashirestela.openai.playground.Phase";
+    private static final String TOKEN_USAGE_EVENT = "io.github.sashirestela.openai.playground.TokenUsage";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldCountCallsAndErrorsOfTimedPhases() {
+        var metrics = new MetricsRegistry();
+
+        metrics.time("tool", () -> CompletableFuture.completedFuture("18")).join();
+        metrics.timeBlocking("tool", () -> "18");
+        assertThrows(CompletionException.class,
+                () -> metrics.time("tool", () -> CompletableFuture.failedFuture(new IllegalStateException())).join());
+        assertThrows(IllegalStateException.class, () -> metrics.timeBlocking("tool", () -> {
+            throw new IllegalStateException();
+        }));
+
+        assertEquals(4, metrics.getCount("tool.calls"));
+        assertEquals(2, metrics.getCount("tool.errors"));
+        assertEquals(0.5, metrics.getErrorRate("tool"));
+        assertEquals(2, metrics.getTimer("tool").getCount());
+        assertEquals(2, metrics.getTimer("tool.failed").getCount());
+        assertEquals(0, metrics.getErrorRate("unknown"));
+    }
+
+    @Test
+    void shouldAddUpTheTokensOfEveryUsage() {
+        var metrics = new MetricsRegistry();
+
+        metrics.recordUsage("chat", usage(12, 30));
+        metrics.recordUsage("chat", usage(8, 5));
+        metrics.recordUsage("chat", null);
+
+        assertEquals(20, metrics.getCount("chat.tokens.prompt"));
+        assertEquals(35, metrics.getCount("chat.tokens.completion"));
+    }
+
+    @Test
+    void shouldCommitPhasesAndUsagesToARunningFlightRecording() throws IOException {
+        var metrics = new MetricsRegistry();
+        var file = directory.resolve("metrics.jfr");
+        try (var recording = new Recording()) {
+            recording.enable(PHASE_EVENT);
+            recording.enable(TOKEN_USAGE_EVENT);
+            recording.start();
+            metrics.recordNanos("chat.stream.ttft", Duration.ofMillis(150).toNanos());
+            assertThrows(IllegalStateException.class, () -> metrics.timeBlocking("run.tools", () -> {
+                throw new IllegalStateException();
+            }));
+            metrics.recordUsage("run", usage(12, 30));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var events = RecordingFile.readAllEvents(file);
+        var phases = events(events, PHASE_EVENT);
+        assertEquals(2, phases.size());
+        assertEquals("chat.stream.ttft", phases.get(0).getString("phase"));
+        assertEquals(Duration.ofMillis(150), phases.get(0).getDuration("elapsed"));
+        assertEquals(false, phases.get(0).getBoolean("failed"));
+        assertEquals("run.tools.failed", phases.get(1).getString("phase"));
+        assertTrue(phases.get(1).getBoolean("failed"));
+        var usages = events(events, TOKEN_USAGE_EVENT);
+        assertEquals(1, usages.size());
+        assertEquals("run", usages.get(0).getString("flow"));
+        assertEquals(12, usages.get(0).getInt("promptTokens"));
+        assertEquals(30, usages.get(0).getInt("completionTokens"));
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .collect(Collectors.toList());
+    }
+
+    private static Usage usage(int promptTokens, int completionTokens) {
+        return JsonUtil.jsonToObject("{\"prompt_tokens\":" + promptTokens + ",\"completion_tokens\":"
+                + completionTokens + ",\"total_tokens\":" + (promptTokens + completionTokens) + "}", Usage.class);
+    }
+
+}
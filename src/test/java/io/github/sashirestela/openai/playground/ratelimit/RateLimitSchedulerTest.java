@@ -0,0 +1,128 @@
+package io.github.sashirestela.openai.playground.ratelimit;
+
+import io.github.sashirestela.openai.playground.ratelimit.RateLimitScheduler.Lane;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitSchedulerTest {
+
+    private RateLimitScheduler scheduler;
+
+    @AfterEach
+    void closeScheduler() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void shouldRetryTransientFailuresUntilTheCallSucceeds() {
+        scheduler = RateLimitScheduler.builder().initialBackoff(Duration.ofMillis(1)).build();
+        var attempts = new AtomicInteger();
+
+        var result = scheduler.submit(Lane.INTERACTIVE, 10, () -> attempts.incrementAndGet() < 3
+                ? CompletableFuture.failedFuture(new UncheckedIOException(new IOException("connection reset")))
+                : CompletableFuture.completedFuture("answer"));
+
+        assertEquals("answer", result.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(3, attempts.get());
+        assertEquals(2, scheduler.getMetrics().getCount("ratelimit.retries"));
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxRetries() {
+        scheduler = RateLimitScheduler.builder().initialBackoff(Duration.ofMillis(1)).maxRetries(2).build();
+        var attempts = new AtomicInteger();
+
+        var result = scheduler.submit(Lane.BULK, 10, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new UncheckedIOException(new IOException("connection reset")));
+        });
+
+        var error = assertThrows(CompletionException.class, () -> result.orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(UncheckedIOException.class, error.getCause());
+        assertEquals(3, attempts.get());
+        assertEquals(1, scheduler.getMetrics().getCount("ratelimit.giveups"));
+    }
+
+    @Test
+    void shouldNotRetryOtherFailures() {
+        scheduler = RateLimitScheduler.builder().initialBackoff(Duration.ofMillis(1)).build();
+        var attempts = new AtomicInteger();
+
+        var result = scheduler.submit(Lane.INTERACTIVE, 10, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalArgumentException("bad request"));
+        });
+
+        var error = assertThrows(CompletionException.class, () -> result.orTimeout(5, TimeUnit.SECONDS).join());
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void shouldAdmitInteractiveCallsBeforeQueuedBulkCalls() {
+        scheduler = RateLimitScheduler.builder().maxConcurrency(1).build();
+        var blocker = new CompletableFuture<String>();
+        var order = Collections.synchronizedList(new ArrayList<String>());
+        scheduler.submit(Lane.BULK, 0, () -> blocker);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (var i = 0; i < 3; i++) {
+            results.add(scheduler.submit(Lane.BULK, 0, call(order, "bulk")));
+        }
+        results.add(scheduler.submit(Lane.INTERACTIVE, 0, call(order, "interactive")));
+        assertEquals(3, scheduler.getQueued(Lane.BULK));
+        assertEquals(1, scheduler.getQueued(Lane.INTERACTIVE));
+
+        blocker.complete("done");
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).orTimeout(5, TimeUnit.SECONDS).join();
+
+        assertEquals(List.of("interactive", "bulk", "bulk", "bulk"), order);
+    }
+
+    @Test
+    void shouldKeepTheInteractiveReserveFromBulkCalls() {
+        scheduler = RateLimitScheduler.builder().requestsPerMinute(10.0).interactiveReserve(0.5).build();
+        List<CompletableFuture<String>> bulk = new ArrayList<>();
+        for (var i = 0; i < 8; i++) {
+            bulk.add(scheduler.submit(Lane.BULK, 0, () -> CompletableFuture.completedFuture("bulk")));
+        }
+
+        var admittedBulk = bulk.stream().filter(CompletableFuture::isDone).count();
+        assertEquals(5, admittedBulk);
+        assertEquals(3, scheduler.getQueued(Lane.BULK));
+        for (var i = 0; i < 5; i++) {
+            var interactive = scheduler.submit(Lane.INTERACTIVE, 0,
+                    () -> CompletableFuture.completedFuture("interactive"));
+            assertTrue(interactive.isDone(), "interactive call " + i + " was not admitted");
+        }
+        assertFalse(scheduler.submit(Lane.INTERACTIVE, 0, () -> CompletableFuture.completedFuture("over"))
+                .isDone());
+    }
+
+    private static Supplier<CompletableFuture<String>> call(List<String> order, String name) {
+        return () -> {
+            order.add(name);
+            return CompletableFuture.completedFuture(name);
+        };
+    }
+
+}
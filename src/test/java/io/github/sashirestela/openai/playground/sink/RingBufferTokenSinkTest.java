@@ -0,0 +1,198 @@
+package io.github.sashirestela.openai.playground.sink;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTokenSinkTest {
+
+    @Test
+    void shouldPassEveryTokenOfConcurrentProducersInTheirOrder() throws InterruptedException {
+        var producers = 4;
+        var tokensPerProducer = 20_000;
+        var downstream = new CollectingSink();
+        var sink = RingBufferTokenSink.builder()
+                .downstream(downstream)
+                .capacity(8)
+                .maxBatchChars(256)
+                .build();
+        var start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (var producer = 0; producer < producers; producer++) {
+            var name = (char) ('a' + producer);
+            var thread = new Thread(() -> {
+                awaitQuietly(start);
+                for (var i = 0; i < tokensPerProducer; i++) {
+                    sink.emit(name + Integer.toString(i) + ";");
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        sink.close();
+
+        var next = new int[producers];
+        for (var token : downstream.text().split(";")) {
+            var producer = token.charAt(0) - 'a';
+            assertEquals(next[producer]++, Integer.parseInt(token.substring(1)), "out of order for " + token);
+        }
+        for (var producer = 0; producer < producers; producer++) {
+            assertEquals(tokensPerProducer, next[producer]);
+        }
+        assertTrue(downstream.closed.get());
+        assertEquals(0, sink.getPending());
+    }
+
+    @Test
+    void shouldWriteEveryAcceptedTokenOfProducersRacingWithClose() throws InterruptedException {
+        var producers = 4;
+        for (var round = 0; round < 50; round++) {
+            var downstream = new CollectingSink();
+            var sink = RingBufferTokenSink.builder()
+                    .downstream(downstream)
+                    .capacity(8)
+                    .build();
+            var accepted = new int[producers];
+            var start = new CountDownLatch(producers);
+            List<Thread> threads = new ArrayList<>();
+            for (var producer = 0; producer < producers; producer++) {
+                var index = producer;
+                var thread = new Thread(() -> {
+                    start.countDown();
+                    try {
+                        while (true) {
+                            sink.emit((char) ('a' + index) + Integer.toString(accepted[index]) + ";");
+                            accepted[index]++;
+                        }
+                    } catch (IllegalStateException e) {
+                        // Closed: every token accepted so far must reach downstream.
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            start.await();
+            Thread.sleep(1);
+            sink.close();
+            for (var thread : threads) {
+                thread.join();
+            }
+
+            var written = new int[producers];
+            for (var token : downstream.text().split(";")) {
+                var producer = token.charAt(0) - 'a';
+                assertEquals(written[producer]++, Integer.parseInt(token.substring(1)), "out of order for " + token);
+            }
+            for (var producer = 0; producer < producers; producer++) {
+                assertEquals(accepted[producer], written[producer], "round " + round);
+            }
+        }
+    }
+
+    @Test
+    void shouldParkTheWriterWhileIdle() throws InterruptedException {
+        var downstream = new CollectingSink();
+        try (var sink = RingBufferTokenSink.builder().downstream(downstream).build()) {
+            sink.emit("Hello");
+            sink.flush();
+
+            var writer = downstream.writer;
+            var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (writer.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(Thread.State.WAITING, writer.getState());
+
+            sink.emit(", world");
+            sink.flush();
+            assertEquals("Hello, world", downstream.text());
+        }
+    }
+
+    @Test
+    void shouldHandTokensDownstreamBeforeFlushReturns() {
+        var downstream = new CollectingSink();
+        try (var sink = RingBufferTokenSink.builder()
+                .downstream(downstream)
+                .flushInterval(Duration.ofMinutes(1))
+                .build()) {
+            sink.emit("Hello");
+            sink.emit(", world");
+            sink.flush();
+
+            assertEquals("Hello, world", downstream.text());
+            assertEquals(0, sink.getPending());
+        }
+    }
+
+    @Test
+    void shouldKeepBatchesNearMaxBatchChars() {
+        var downstream = new CollectingSink();
+        var sink = RingBufferTokenSink.builder()
+                .downstream(downstream)
+                .maxBatchChars(10)
+                .flushInterval(Duration.ofMinutes(1))
+                .build();
+        for (var i = 0; i < 100; i++) {
+            sink.emit("abc");
+        }
+        sink.close();
+
+        assertEquals("abc".repeat(100), downstream.text());
+        for (var batch : downstream.batches) {
+            assertTrue(batch.length() <= 12, "batch of " + batch.length() + " chars");
+        }
+    }
+
+    @Test
+    void shouldRejectTokensAfterClose() {
+        var sink = RingBufferTokenSink.builder().downstream(new CollectingSink()).build();
+        sink.close();
+
+        assertThrows(IllegalStateException.class, () -> sink.emit("late"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class CollectingSink implements TokenSink {
+
+        private final List<String> batches = new ArrayList<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Thread writer;
+
+        @Override
+        public synchronized void emit(String token) {
+            writer = Thread.currentThread();
+            batches.add(token);
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+
+        synchronized String text() {
+            return String.join("", batches);
+        }
+
+    }
+
+}
@@ -0,0 +1,238 @@
+package io.github.sashirestela.openai.playground.store;
+
+import io.github.sashirestela.openai.domain.chat.ChatMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.AssistantMessage;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationStoreTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+    private static final String CHECKPOINT_FILE = "sessions.idx";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldLoadMessagesAcrossAutomaticSnapshots() {
+        try (var store = open(4)) {
+            var messages = conversation("s1", 10);
+            store.appendAll("s1", messages);
+
+            assertEquals(json(messages), json(store.load("s1")));
+            assertTrue(store.load("unknown").isEmpty());
+        }
+    }
+
+    @Test
+    void shouldReopenFromTheCheckpoint() {
+        var expected = fill(3, 25);
+
+        try (var store = open(8)) {
+            assertEquals(expected.keySet(), store.getSessionIds());
+            expected.forEach((sessionId, messages) -> assertEquals(json(messages), json(store.load(sessionId))));
+            var more = conversation("s0", 5);
+            store.appendAll("s0", more);
+            expected.get("s0").addAll(more);
+        }
+        try (var store = open(8)) {
+            expected.forEach((sessionId, messages) -> assertEquals(json(messages), json(store.load(sessionId))));
+        }
+    }
+
+    @Test
+    void shouldReplayTheWholeLogWithoutACheckpoint() throws IOException {
+        var expected = fill(3, 25);
+        Files.delete(directory.resolve(CHECKPOINT_FILE));
+
+        try (var store = open(8)) {
+            expected.forEach((sessionId, messages) -> assertEquals(json(messages), json(store.load(sessionId))));
+        }
+    }
+
+    @Test
+    void shouldReplayRecordsWrittenAfterAnOlderCheckpoint() throws IOException {
+        var expected = fill(2, 10);
+        var olderCheckpoint = directory.resolve("older.idx");
+        Files.copy(directory.resolve(CHECKPOINT_FILE), olderCheckpoint);
+        try (var store = open(8)) {
+            var more = conversation("s1", 7);
+            store.appendAll("s1", more);
+            expected.get("s1").addAll(more);
+            store.delete("s0");
+            expected.remove("s0");
+        }
+        Files.move(olderCheckpoint, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING);
+
+        try (var store = open(8)) {
+            assertEquals(expected.keySet(), store.getSessionIds());
+            assertEquals(json(expected.get("s1")), json(store.load("s1")));
+        }
+    }
+
+    @Test
+    void shouldDiscardATornRecordAndItsStaleBytes() throws IOException {
+        var messages = conversation("s1", 3);
+        long end;
+        try (var store = open(1000)) {
+            store.appendAll("s1", messages);
+            end = store.getSizeBytes();
+        }
+        Files.delete(directory.resolve(CHECKPOINT_FILE));
+        // A crash after the body of the next record was written but before its length: the bytes
+        // past the end look like well-formed records of s1 once a shorter record is written there.
+        var shorter = UserMessage.of("ok");
+        var shorterBytes = SegmentedLog.HEADER_BYTES + 3 + "s1".length() + ChatMessageCodec.encode(shorter).length;
+        writeAt(lastSegment(), end + shorterBytes, forgedRecords("s1", 4));
+
+        try (var store = open(1000)) {
+            assertEquals(json(messages), json(store.load("s1")));
+            store.append("s1", shorter);
+            messages.add(shorter);
+            // Seals the segment, which is then walked by the record lengths only.
+            var large = UserMessage.of("x".repeat(SEGMENT_BYTES));
+            store.append("s1", large);
+            messages.add(large);
+        }
+        Files.delete(directory.resolve(CHECKPOINT_FILE));
+
+        try (var store = open(1000)) {
+            assertEquals(json(messages), json(store.load("s1")));
+        }
+    }
+
+    @Test
+    void shouldCompactSegmentsPinnedByFewLiveRecords() {
+        Map<String, List<ChatMessage>> expected = new HashMap<>();
+        try (var store = open(1000)) {
+            for (var round = 0; round < 40; round++) {
+                for (var session = 0; session < 10; session++) {
+                    var sessionId = "s" + session;
+                    var message = UserMessage.of("Message " + round + " of " + sessionId + " " + "x".repeat(100));
+                    store.append(sessionId, message);
+                    expected.computeIfAbsent(sessionId, id -> new ArrayList<>()).add(message);
+                }
+            }
+            for (var session = 0; session < 9; session++) {
+                store.delete("s" + session);
+                expected.remove("s" + session);
+            }
+            var segmentsBefore = store.getSegmentCount();
+
+            var dropped = store.compact();
+
+            assertTrue(dropped > 0, "no segment was reclaimed");
+            assertTrue(store.getSegmentCount() < segmentsBefore, "the snapshots outgrew the reclaimed segments");
+            assertEquals(expected.keySet(), store.getSessionIds());
+            assertEquals(json(expected.get("s9")), json(store.load("s9")));
+        }
+        try (var store = open(1000)) {
+            assertEquals(expected.keySet(), store.getSessionIds());
+            assertEquals(json(expected.get("s9")), json(store.load("s9")));
+        }
+    }
+
+    @Test
+    void shouldKeepDeletedSessionsDeleted() {
+        fill(2, 5);
+        try (var store = open(8)) {
+            assertTrue(store.delete("s0"));
+            assertFalse(store.delete("s0"));
+        }
+        try (var store = open(8)) {
+            assertFalse(store.contains("s0"));
+            assertTrue(store.contains("s1"));
+        }
+    }
+
+    @Test
+    void shouldRefuseASecondOpenOfTheSameDirectory() {
+        try (var store = open(8)) {
+            assertThrows(IllegalStateException.class, () -> open(8));
+        }
+        open(8).close();
+    }
+
+    private ConversationStore open(int snapshotEvery) {
+        return ConversationStore.builder()
+                .directory(directory)
+                .segmentBytes(SEGMENT_BYTES)
+                .snapshotEvery(snapshotEvery)
+                .build();
+    }
+
+    private Map<String, List<ChatMessage>> fill(int sessions, int messagesPerSession) {
+        Map<String, List<ChatMessage>> expected = new HashMap<>();
+        try (var store = open(8)) {
+            for (var session = 0; session < sessions; session++) {
+                var sessionId = "s" + session;
+                var messages = conversation(sessionId, messagesPerSession);
+                store.appendAll(sessionId, messages);
+                expected.put(sessionId, messages);
+            }
+        }
+        return expected;
+    }
+
+    private Path lastSegment() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log"))
+                    .sorted()
+                    .reduce((first, second) -> second)
+                    .orElseThrow();
+        }
+    }
+
+    private static List<ChatMessage> conversation(String sessionId, int count) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (var i = 0; i < count; i++) {
+            messages.add(i % 2 == 0 ? UserMessage.of("Question " + i + " of " + sessionId)
+                    : AssistantMessage.of("Answer " + i + " of " + sessionId));
+        }
+        return messages;
+    }
+
+    private static byte[] forgedRecords(String sessionId, int count) {
+        var id = sessionId.getBytes(StandardCharsets.UTF_8);
+        var length = 1 + 2 + id.length + 8;
+        var buffer = ByteBuffer.allocate(count * (SegmentedLog.HEADER_BYTES + length));
+        for (var i = 0; i < count; i++) {
+            buffer.putInt(length).putInt(0).put(ConversationStore.MESSAGE).putShort((short) id.length).put(id)
+                    .put("garbage!".getBytes(StandardCharsets.US_ASCII));
+        }
+        return buffer.array();
+    }
+
+    private static void writeAt(Path file, long position, byte[] bytes) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+
+    private static List<String> json(List<ChatMessage> messages) {
+        return messages.stream()
+                .map(message -> new String(ChatMessageCodec.encode(message), StandardCharsets.UTF_8))
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,179 @@
+package io.github.sashirestela.openai.playground.stream;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.domain.chat.Chat;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.ChatRole;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChatStreamAccumulatorTest {
+
+    @Test
+    void shouldMergeTheContentOfEachChoiceByIndex() {
+        List<String> printed = new ArrayList<>();
+        var accumulator = new ChatStreamAccumulator(printed::add);
+
+        var first = accumulator.accumulate(Stream.of(
+                chunk("{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"\"}},"
+                        + "{\"index\":1,\"delta\":{\"role\":\"assistant\",\"content\":\"\"}}"),
+                chunk("{\"index\":1,\"delta\":{\"content\":\"Hola\"}},{\"index\":0,\"delta\":{\"content\":\"Hello\"}}"),
+                chunk("{\"index\":0,\"delta\":{\"content\":\", world\"}}"),
+                chunk("{\"index\":1,\"delta\":{\"content\":\", mundo\"},\"finish_reason\":\"stop\"}"),
+                chunk("{\"index\":0,\"delta\":{},\"finish_reason\":\"length\"}")));
+
+        assertEquals("Hello, world", first.getMessage().getContent());
+        assertEquals(ChatRole.ASSISTANT, first.getMessage().getRole());
+        assertEquals("length", first.getFinishReason());
+        var second = accumulator.getChoice(1);
+        assertEquals(1, second.getIndex());
+        assertEquals("Hola, mundo", second.getMessage().getContent());
+        assertEquals("stop", second.getFinishReason());
+        assertEquals(2, accumulator.getChoices().size());
+        assertEquals(List.of("Hello", ", world"), printed, "only the first choice is printed");
+    }
+
+    @Test
+    void shouldMergeInterleavedToolCallsByIndex() {
+        var accumulator = new ChatStreamAccumulator();
+
+        var choice = accumulator.accumulate(Stream.of(
+                chunk(toolCall(0, "\"id\":\"call_a\",\"type\":\"function\","
+                        + "\"function\":{\"name\":\"getCurrentTemperature\",\"arguments\":\"\"}")),
+                chunk(toolCall(1, "\"id\":\"call_b\",\"type\":\"function\","
+                        + "\"function\":{\"name\":\"getRainProbability\",\"arguments\":\"{\\\"loc\"}")),
+                chunk(toolCall(0, "\"function\":{\"arguments\":\"{\\\"location\\\":\"}")),
+                chunk(toolCall(1, "\"function\":{\"arguments\":\"ation\\\":\\\"Lima\\\"}\"}")),
+                chunk(toolCall(0, "\"function\":{\"arguments\":\"\\\"Lima\\\",\\\"unit\\\":\\\"celsius\\\"}\"}")),
+                chunk("{\"index\":0,\"delta\":{},\"finish_reason\":\"tool_calls\"}")));
+
+        var toolCalls = choice.getMessage().getToolCalls();
+        assertEquals(2, toolCalls.size());
+        assertEquals("call_a", toolCalls.get(0).getId());
+        assertEquals("getCurrentTemperature", toolCalls.get(0).getFunction().getName());
+        assertEquals("{\"location\":\"Lima\",\"unit\":\"celsius\"}", toolCalls.get(0).getFunction().getArguments());
+        assertEquals("call_b", toolCalls.get(1).getId());
+        assertEquals("getRainProbability", toolCalls.get(1).getFunction().getName());
+        assertEquals("{\"location\":\"Lima\"}", toolCalls.get(1).getFunction().getArguments());
+        assertEquals(1, toolCalls.get(1).getIndex());
+        assertNull(choice.getMessage().getContent());
+        assertEquals("tool_calls", choice.getFinishReason());
+    }
+
+    @Test
+    void shouldKeepTheUsageOfTheFinalChunk() {
+        var accumulator = new ChatStreamAccumulator();
+
+        accumulator.accumulate(Stream.of(
+                chunk("{\"index\":0,\"delta\":{\"content\":\"Hi\"},\"finish_reason\":\"stop\"}"),
+                JsonUtil.jsonToObject("{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"choices\":[],"
+                        + "\"usage\":{\"prompt_tokens\":5,\"completion_tokens\":1,\"total_tokens\":6}}", Chat.class)));
+
+        assertEquals(6, accumulator.getUsage().getTotalTokens());
+        assertEquals("Hi", accumulator.getChoice().getMessage().getContent());
+    }
+
+    @Test
+    void shouldStartEachTurnFromEmptyBuffers() {
+        var accumulator = new ChatStreamAccumulator();
+        accumulator.accumulate(Stream.of(
+                chunk("{\"index\":0,\"delta\":{\"content\":\"First\"}},"
+                        + "{\"index\":1,\"delta\":{\"content\":\"Other\"}}"),
+                chunk(toolCall(0, "\"id\":\"call_a\",\"function\":{\"name\":\"f\",\"arguments\":\"{}\"}"))));
+
+        var choice = accumulator.accumulate(Stream.of(
+                chunk("{\"index\":0,\"delta\":{\"content\":\"Second\"},\"finish_reason\":\"stop\"}")));
+
+        assertEquals("Second", choice.getMessage().getContent());
+        assertNull(choice.getMessage().getToolCalls());
+        assertEquals(1, accumulator.getChoices().size());
+        assertThrows(IndexOutOfBoundsException.class, () -> accumulator.getChoice(1));
+    }
+
+    @Test
+    void shouldAppendToolCallDeltasWithoutIndexToTheLastToolCall() {
+        var accumulator = new ChatStreamAccumulator();
+
+        var choice = accumulator.accumulate(Stream.of(
+                chunk(toolCallWithoutIndex(
+                        "\"id\":\"call_a\",\"function\":{\"name\":\"f\",\"arguments\":\"{\\\"a\"}")),
+                chunk(toolCallWithoutIndex("\"function\":{\"arguments\":\"\\\":1}\"}")),
+                chunk(toolCallWithoutIndex("\"id\":\"call_b\",\"function\":{\"name\":\"g\",\"arguments\":\"{}\"}"))));
+
+        assertEquals(List.of("call_a:{\"a\":1}", "call_b:{}"), choice.getMessage()
+                .getToolCalls()
+                .stream()
+                .map(toolCall -> toolCall.getId() + ":" + toolCall.getFunction().getArguments())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldTellTheListenerAboutEachToolCallAsSoonAsItsArgumentsClose() {
+        List<String> started = new ArrayList<>();
+        var accumulator = new ChatStreamAccumulator(text -> {
+        }, toolCall -> started.add(toolCall.getIndex() + ":" + toolCall.getId() + ":"
+                + toolCall.getFunction().getName() + ":" + toolCall.getFunction().getArguments()));
+        var chunks = List.of(
+                argumentsChunk(0, 0, "call_a", "search", "{\"query\":\"} or {\""),
+                argumentsChunk(0, 1, "call_b", "quote", "{\"text\":\"say \\\"}"),
+                argumentsChunk(0, 0, null, null, ",\"tags\":[\"]\"]"),
+                argumentsChunk(0, 1, null, null, "\\\"\"}"),
+                argumentsChunk(1, 0, "call_c", "search", "{}"),
+                argumentsChunk(0, 0, null, null, "}"));
+
+        accumulator.reset();
+        for (var i = 0; i < chunks.size(); i++) {
+            accumulator.accept(chunks.get(i));
+            if (i == 2) {
+                assertEquals(List.of(), started, "no arguments have closed yet");
+            }
+        }
+
+        assertEquals(List.of(
+                "1:call_b:quote:{\"text\":\"say \\\"}\\\"\"}",
+                "0:call_a:search:{\"query\":\"} or {\",\"tags\":[\"]\"]}"), started,
+                "in the order their arguments closed, for the first choice only");
+    }
+
+    private static Chat chunk(String choices) {
+        return JsonUtil.jsonToObject("{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"choices\":["
+                + choices + "]}", Chat.class);
+    }
+
+    /**
+     * A delta of the first choice with a single tool call made of the given fields.
+     */
+    private static String toolCall(int index, String fields) {
+        return toolCallWithoutIndex("\"index\":" + index + "," + fields);
+    }
+
+    private static Chat argumentsChunk(int choice, int index, String id, String name, String arguments) {
+        var function = new LinkedHashMap<String, Object>();
+        if (name != null) {
+            function.put("name", name);
+        }
+        function.put("arguments", arguments);
+        var toolCall = new LinkedHashMap<String, Object>();
+        toolCall.put("index", index);
+        if (id != null) {
+            toolCall.put("id", id);
+            toolCall.put("type", "function");
+        }
+        toolCall.put("function", function);
+        return chunk(JsonUtil.objectToJson(Map.of("index", choice, "delta", Map.of("tool_calls", List.of(toolCall)))));
+    }
+
+    private static String toolCallWithoutIndex(String fields) {
+        return "{\"index\":0,\"delta\":{\"tool_calls\":[{" + fields + "}]}}";
+    }
+
+}
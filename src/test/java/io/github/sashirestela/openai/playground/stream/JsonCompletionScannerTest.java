@@ -0,0 +1,63 @@
+package io.github.sashirestela.openai.playground.stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonCompletionScannerTest {
+
+    private final JsonCompletionScanner scanner = new JsonCompletionScanner();
+
+    @Test
+    void shouldCloseOnTheFragmentThatEndsTheOutermostObject() {
+        assertFalse(scanner.feed("{\"location\":{\"city\":"));
+        assertFalse(scanner.feed("\"Lima\"}"));
+        assertFalse(scanner.isComplete());
+
+        assertTrue(scanner.feed(",\"unit\":\"celsius\"}"));
+        assertTrue(scanner.isComplete());
+        assertFalse(scanner.feed("}"), "it closes only once");
+    }
+
+    @Test
+    void shouldIgnoreBracesAndBracketsInsideStrings() {
+        assertFalse(scanner.feed("{\"query\":\"} ] { [ }\""));
+        assertFalse(scanner.isComplete());
+
+        assertTrue(scanner.feed("}"));
+    }
+
+    @Test
+    void shouldIgnoreEscapedQuotesSplitAcrossFragments() {
+        assertFalse(scanner.feed("{\"quote\":\"she said \\"));
+        assertFalse(scanner.feed("\"}\\"));
+        assertFalse(scanner.feed("\\\""), "an escaped backslash, then the quote that ends the string");
+
+        assertTrue(scanner.feed("}"));
+    }
+
+    @Test
+    void shouldCloseAnOutermostArray() {
+        assertFalse(scanner.feed("[{\"a\":1},"));
+
+        assertTrue(scanner.feed("{\"b\":[2]}]"));
+    }
+
+    @Test
+    void shouldNotCloseBeforeAnythingWasOpened() {
+        assertFalse(scanner.feed("} ]"));
+
+        assertFalse(scanner.isComplete());
+        assertTrue(scanner.feed("{}"));
+    }
+
+    @Test
+    void shouldStartOverAfterReset() {
+        scanner.feed("{\"text\":\"unterminated");
+        scanner.reset();
+
+        assertTrue(scanner.feed("{}"));
+    }
+
+}
@@ -0,0 +1,127 @@
+package io.github.sashirestela.openai.playground.stub;
+
+import io.github.sashirestela.cleverclient.util.JsonUtil;
+import io.github.sashirestela.openai.SimpleOpenAI;
+import io.github.sashirestela.openai.domain.chat.ChatMessage.UserMessage;
+import io.github.sashirestela.openai.domain.chat.ChatRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StubRecordingsTest {
+
+    private static final ChatRequest CHAT_REQUEST = ChatRequest.builder()
+            .model("gpt-4o-mini")
+            .messages(List.of(UserMessage.of("Tell me about Machu Picchu.")))
+            .build();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReplayARecordedSessionChunkByChunk() throws IOException {
+        List<List<String>> recorded;
+        try (var upstream = StubOpenAIServer.builder()
+                .answer("Machu Picchu is a fifteenth-century Inca citadel in southern Peru.")
+                .chunkChars(7)
+                .build();
+                var recorder = recorder(upstream)) {
+            recorded = List.of(stream(recorder.getBaseUrl()), stream(recorder.getBaseUrl()));
+        }
+        assertEquals(List.of("chat-0001.sse", "chat-0002.sse"), files());
+
+        try (var replayer = StubOpenAIServer.builder()
+                .answer("Not the recorded answer.")
+                .recordings(StubRecordings.load(directory))
+                .build()) {
+            var replayed = List.of(stream(replayer.getBaseUrl()), stream(replayer.getBaseUrl()),
+                    stream(replayer.getBaseUrl()));
+
+            assertEquals(recorded.get(0), replayed.get(0), "the same chunks, ids and usage");
+            assertEquals(recorded.get(1), replayed.get(1));
+            assertEquals(recorded.get(0), replayed.get(2), "the recordings start over when exhausted");
+        }
+        assertTrue(recorded.get(0).size() > 10, "the answer came in chunks of 7 characters");
+    }
+
+    @Test
+    void shouldContinueTheSequenceOfAnExistingRecordingDirectory() throws IOException {
+        Files.writeString(directory.resolve("chat-0001.sse"), "data: [DONE]\n\n");
+        try (var upstream = StubOpenAIServer.builder().answer("Hi.").build();
+                var recorder = recorder(upstream)) {
+            stream(recorder.getBaseUrl());
+        }
+
+        assertEquals(List.of("chat-0001.sse", "chat-0002.sse"), files());
+        var sse = Files.readString(directory.resolve("chat-0002.sse"), StandardCharsets.UTF_8);
+        assertTrue(sse.startsWith("data: {"), sse);
+        assertTrue(sse.strip().endsWith("data: [DONE]"), sse);
+    }
+
+    @Test
+    void shouldSplitRecordingsIntoEvents() {
+        var recordings = StubRecordings.of(StubRecordings.RUN,
+                "event: thread.run.created\r\ndata: {\"id\":\"run_1\"}\r\n\r\n\r\ndata: [DONE]\r\n",
+                "data: [DONE]\n\n");
+
+        var first = recordings.next(StubRecordings.RUN);
+        assertEquals(List.of("event: thread.run.created\ndata: {\"id\":\"run_1\"}\n\n", "data: [DONE]\n\n"),
+                text(first));
+        assertEquals(List.of("data: [DONE]\n\n"), text(recordings.next(StubRecordings.RUN)));
+        assertEquals(text(first), text(recordings.next(StubRecordings.RUN)));
+        assertTrue(recordings.has(StubRecordings.RUN));
+        assertFalse(recordings.has(StubRecordings.CHAT));
+    }
+
+    @Test
+    void shouldTellTheKindOfEachStreamedPath() {
+        assertEquals(StubRecordings.CHAT, StubRecordings.kindOf("/v1/chat/completions"));
+        assertEquals(StubRecordings.RUN, StubRecordings.kindOf("/v1/threads/thread_1/runs"));
+        assertEquals(StubRecordings.RUN, StubRecordings.kindOf("/v1/threads/runs"));
+        assertEquals(StubRecordings.SUBMIT,
+                StubRecordings.kindOf("/v1/threads/thread_1/runs/run_1/submit_tool_outputs"));
+        assertNull(StubRecordings.kindOf("/v1/threads/thread_1/runs/run_1"));
+        assertNull(StubRecordings.kindOf("/v1/files"));
+    }
+
+    private static List<String> stream(String baseUrl) {
+        var openAI = SimpleOpenAI.builder().apiKey("stub").baseUrl(baseUrl).build();
+        try {
+            return openAI.chatCompletions()
+                    .createStream(CHAT_REQUEST)
+                    .orTimeout(10, TimeUnit.SECONDS)
+                    .join()
+                    .map(JsonUtil::objectToJson)
+                    .collect(Collectors.toList());
+        } finally {
+            openAI.shutDown();
+        }
+    }
+
+    private StubRecorder recorder(StubOpenAIServer upstream) {
+        return StubRecorder.builder().upstreamBaseUrl(upstream.getBaseUrl()).directory(directory).build();
+    }
+
+    private List<String> files() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> text(List<byte[]> events) {
+        return events.stream().map(event -> new String(event, StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,90 @@
+package io.github.sashirestela.openai.playground.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLimiterTest {
+
+    @Test
+    void shouldHandPermitsOverInArrivalOrder() {
+        var limiter = new AsyncLimiter(2);
+        List<CompletableFuture<String>> pending = new ArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        List<String> started = new ArrayList<>();
+        for (var i = 0; i < 5; i++) {
+            var task = new CompletableFuture<String>();
+            var name = "task-" + i;
+            pending.add(task);
+            results.add(limiter.submit(() -> {
+                started.add(name);
+                return task;
+            }));
+        }
+
+        assertEquals(List.of("task-0", "task-1"), started);
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(3, limiter.getQueued());
+        pending.get(1).complete("1");
+        pending.get(0).complete("0");
+        assertEquals(List.of("task-0", "task-1", "task-2", "task-3"), started);
+        pending.get(3).complete("3");
+        pending.get(2).complete("2");
+        pending.get(4).complete("4");
+
+        assertEquals(List.of("task-0", "task-1", "task-2", "task-3", "task-4"), started);
+        assertEquals("4", results.get(4).join());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    void shouldReleaseThePermitOfAFailedTask() {
+        var limiter = new AsyncLimiter(1);
+
+        var failed = limiter.submit(() -> CompletableFuture.failedFuture(new IllegalStateException("failed")));
+        var thrown = limiter.<String>submit(() -> {
+            throw new IllegalStateException("thrown");
+        });
+        var next = limiter.submit(() -> CompletableFuture.completedFuture("next"));
+
+        assertThrows(CompletionException.class, failed::join);
+        assertEquals("thrown", assertThrows(CompletionException.class, thrown::join).getCause().getMessage());
+        assertEquals("next", next.join());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void shouldSkipWaitersThatGaveUp() {
+        var limiter = new AsyncLimiter(1);
+        limiter.acquire().join();
+        var abandoned = limiter.acquire();
+        var waiting = limiter.acquire();
+
+        abandoned.cancel(false);
+        limiter.release();
+
+        assertTrue(waiting.isDone(), "the permit goes to the next waiter");
+        assertEquals(1, limiter.getInFlight());
+        limiter.release();
+        assertEquals(0, limiter.getInFlight());
+        limiter.release();
+        assertEquals(0, limiter.getInFlight(), "extra releases never exceed the max permits");
+        assertTrue(limiter.acquire().isDone());
+        assertFalse(limiter.acquire().isDone());
+    }
+
+    @Test
+    void shouldRejectLessThanOnePermit() {
+        assertThrows(IllegalArgumentException.class, () -> new AsyncLimiter(0));
+    }
+
+}
@@ -0,0 +1,154 @@
+package io.github.sashirestela.openai.playground.tool;
+
+import io.github.sashirestela.openai.common.function.FunctionCall;
+import io.github.sashirestela.openai.common.tool.ToolCall;
+import io.github.sashirestela.openai.common.tool.ToolType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelToolDispatcherTest {
+
+    private final CountDownLatch hung = new CountDownLatch(1);
+    private ParallelToolDispatcher dispatcher;
+
+    @AfterEach
+    void releaseHungTools() {
+        hung.countDown();
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    void shouldKeepTheOrderOfTheToolCalls() {
+        dispatcher = ParallelToolDispatcher.builder()
+                .invoker(call -> {
+                    sleep(call.getName().equals("first") ? 100 : 0);
+                    return call.getName() + call.getArguments();
+                })
+                .build();
+
+        var results = dispatcher.executeAll(List.of(toolCall("1", "first"), toolCall("2", "second")),
+                (id, result) -> id + "=" + result);
+
+        assertEquals(List.of("1=first{}", "2=second{}"), results);
+    }
+
+    @Test
+    void shouldGiveThePermitOfATimedOutToolToALaterCall() {
+        var interrupted = new CountDownLatch(1);
+        dispatcher = ParallelToolDispatcher.builder()
+                .invoker(call -> {
+                    if (call.getName().equals("slow")) {
+                        awaitIgnoringInterrupts(hung, interrupted);
+                    }
+                    return "done";
+                })
+                .maxConcurrency(1)
+                .toolTimeouts(Map.of("slow", Duration.ofMillis(100)))
+                .build();
+
+        var slow = dispatcher.submit(toolCall("1", "slow"));
+        var fast = dispatcher.submit(toolCall("2", "fast"));
+
+        assertEquals("Error: the function slow did not finish within 100 ms.",
+                slow.orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals("done", fast.orTimeout(5, TimeUnit.SECONDS).join());
+        assertTrue(await(interrupted), "the timed out tool was not interrupted");
+        assertEquals(1, dispatcher.getMetrics().getCount("tool.timeouts"));
+    }
+
+    @Test
+    void shouldNotStartTheTimeoutWhileQueuedForAPermit() {
+        dispatcher = ParallelToolDispatcher.builder()
+                .invoker(call -> {
+                    sleep(150);
+                    return "done";
+                })
+                .maxConcurrency(1)
+                .defaultTimeout(Duration.ofMillis(1000))
+                .build();
+
+        var results = dispatcher.executeAll(List.of(toolCall("1", "a"), toolCall("2", "b"), toolCall("3", "c"),
+                toolCall("4", "d"), toolCall("5", "e"), toolCall("6", "f"), toolCall("7", "g")),
+                (id, result) -> result);
+
+        assertEquals(List.of("done", "done", "done", "done", "done", "done", "done"), results);
+    }
+
+    @Test
+    void shouldTurnFailuresIntoErrorOutput() {
+        dispatcher = ParallelToolDispatcher.builder()
+                .invoker(call -> {
+                    throw new IllegalStateException("no data");
+                })
+                .build();
+
+        assertEquals("Error: the function broken failed: no data",
+                dispatcher.submit(toolCall("1", "broken")).orTimeout(5, TimeUnit.SECONDS).join());
+        assertEquals(1, dispatcher.getMetrics().getCount("tool.errors"));
+    }
+
+    @Test
+    void shouldShutDownOnlyItsOwnExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            var shared = ParallelToolDispatcher.builder().invoker(call -> "done").executor(executor).build();
+            assertEquals("done", shared.submit(toolCall("1", "any")).orTimeout(5, TimeUnit.SECONDS).join());
+            shared.close();
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        dispatcher = ParallelToolDispatcher.builder().invoker(call -> "done").build();
+        dispatcher.close();
+        var rejected = dispatcher.submit(toolCall("1", "any")).orTimeout(5, TimeUnit.SECONDS).join();
+        assertTrue(rejected.startsWith("Error: the function any failed"), rejected);
+    }
+
+    private static ToolCall toolCall(String id, String name) {
+        return new ToolCall(0, id, ToolType.FUNCTION, new FunctionCall(name, "{}"));
+    }
+
+    private static void awaitIgnoringInterrupts(CountDownLatch latch, CountDownLatch interrupted) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package io.github.sashirestela.openai.playground.tool;
+
+import io.github.sashirestela.openai.common.function.FunctionCall;
+import io.github.sashirestela.openai.common.tool.ToolCall;
+import io.github.sashirestela.openai.common.tool.ToolType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpeculativeToolCallsTest {
+
+    private final Map<String, AtomicInteger> executions = new ConcurrentHashMap<>();
+    private final ParallelToolDispatcher dispatcher = ParallelToolDispatcher.builder()
+            .invoker(call -> {
+                executions.computeIfAbsent(call.getName() + call.getArguments(), key -> new AtomicInteger())
+                        .incrementAndGet();
+                return call.getName() + call.getArguments();
+            })
+            .build();
+    private final SpeculativeToolCalls speculativeTools = new SpeculativeToolCalls(dispatcher);
+
+    @AfterEach
+    void closeDispatcher() {
+        dispatcher.close();
+    }
+
+    @Test
+    void shouldReuseTheResultsOfToolCallsStartedWhileStreaming() {
+        speculativeTools.accept(toolCall(1, "call_b", "rain", "{\"city\":\"Lima\"}"));
+        speculativeTools.accept(toolCall(0, "call_a", "temperature", "{\"city\":\"Lima\"}"));
+
+        var results = speculativeTools.collectAll(List.of(
+                toolCall(0, "call_a", "temperature", "{\"city\":\"Lima\"}"),
+                toolCall(1, "call_b", "rain", "{\"city\":\"Lima\"}")),
+                (id, result) -> id + "=" + result);
+
+        assertEquals(List.of("call_a=temperature{\"city\":\"Lima\"}", "call_b=rain{\"city\":\"Lima\"}"), results);
+        assertEquals(1, executions.get("temperature{\"city\":\"Lima\"}").get());
+        assertEquals(1, executions.get("rain{\"city\":\"Lima\"}").get());
+        assertEquals(2, dispatcher.getMetrics().getCount("tool.speculated"));
+    }
+
+    @Test
+    void shouldRunAgainTheCallsThatChangedOrWereNotStarted() {
+        speculativeTools.accept(toolCall(0, "call_a", "temperature", "{\"city\":\"Lima\"}"));
+
+        var results = speculativeTools.collectAll(List.of(
+                toolCall(0, "call_a", "temperature", "{\"city\":\"Lima\",\"unit\":\"celsius\"}"),
+                toolCall(1, "call_b", "rain", "{\"city\":\"Lima\"}")),
+                (id, result) -> result);
+
+        assertEquals(List.of("temperature{\"city\":\"Lima\",\"unit\":\"celsius\"}", "rain{\"city\":\"Lima\"}"),
+                results);
+        assertEquals(2, dispatcher.getMetrics().getCount("tool.speculation.misses"));
+        assertEquals(0, dispatcher.getMetrics().getCount("tool.speculated"));
+    }
+
+    @Test
+    void shouldForgetSpeculationsOnReset() {
+        speculativeTools.accept(toolCall(0, "call_a", "temperature", "{\"city\":\"Lima\"}"));
+        speculativeTools.reset();
+
+        speculativeTools.collectAll(List.of(toolCall(0, "call_a", "temperature", "{\"city\":\"Lima\"}")),
+                (id, result) -> result);
+
+        assertEquals(2, executions.get("temperature{\"city\":\"Lima\"}").get());
+        assertEquals(1, dispatcher.getMetrics().getCount("tool.speculation.misses"));
+    }
+
+    private static ToolCall toolCall(int index, String id, String name, String arguments) {
+        return new ToolCall(index, id, ToolType.FUNCTION, new FunctionCall(name, arguments));
+    }
+
+}
@@ -0,0 +1,205 @@
+package io.github.sashirestela.openai.playground.tool;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.github.sashirestela.openai.common.function.FunctionCall;
+import io.github.sashirestela.openai.common.function.FunctionDef;
+import io.github.sashirestela.openai.common.function.FunctionExecutor;
+import io.github.sashirestela.openai.common.function.Functional;
+import io.github.sashirestela.openai.playground.metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ToolResultCacheTest {
+
+    private static final Map<String, AtomicInteger> executions = new ConcurrentHashMap<>();
+    private static CountDownLatch release = new CountDownLatch(0);
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private ExecutorService callers;
+
+    @BeforeEach
+    void resetExecutions() {
+        executions.clear();
+        release = new CountDownLatch(0);
+        callers = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void stopCallers() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void shouldRunConcurrentIdenticalCallsOnce() throws Exception {
+        release = new CountDownLatch(1);
+        var cache = cache(null);
+        List<Future<Object>> results = new ArrayList<>();
+        results.add(callers.submit(() -> cache.apply(call("lookup", "{\"city\":\"Lima\",\"country\":\"Peru\"}"))));
+        var reordered = call("lookup", "{ \"country\": \"Peru\", \"city\": \"Lima\" }");
+        for (int i = 0; i < 3; i++) {
+            results.add(callers.submit(() -> cache.apply(reordered)));
+        }
+
+        awaitCount("toolcache.coalesced", 3);
+        release.countDown();
+
+        for (var result : results) {
+            assertEquals("lookup:Lima", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executions.get("Lima").get());
+        assertEquals(1, metrics.getCount("toolcache.misses"));
+    }
+
+    @Test
+    void shouldRunTheToolAgainOnceTheResultExpired() throws InterruptedException {
+        var cache = cache(null);
+
+        assertEquals("expiring:Lima", cache.apply(call("expiring", "{\"city\":\"Lima\"}")));
+        assertEquals("expiring:Lima", cache.apply(call("expiring", "{\"city\":\"Lima\"}")));
+        assertEquals(1, executions.get("Lima").get());
+        Thread.sleep(1_100);
+
+        assertEquals("expiring:Lima", cache.apply(call("expiring", "{\"city\":\"Lima\"}")));
+        assertEquals(2, executions.get("Lima").get());
+        assertEquals(1, metrics.getCount("toolcache.hits"));
+        assertEquals(2, metrics.getCount("toolcache.misses"));
+    }
+
+    @Test
+    void shouldEvictTheLeastRecentlyUsedResult() {
+        var cache = cache(2);
+        cache.apply(lookup("Lima"));
+        cache.apply(lookup("Cusco"));
+        cache.apply(lookup("Lima"));
+
+        cache.apply(lookup("Arequipa"));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, metrics.getCount("toolcache.evictions"));
+        cache.apply(lookup("Lima"));
+        assertEquals(1, executions.get("Lima").get());
+        cache.apply(lookup("Cusco"));
+        assertEquals(2, executions.get("Cusco").get());
+        cache.apply(lookup("Arequipa"));
+        assertEquals(2, executions.get("Arequipa").get(), "Arequipa was the eldest when Cusco came back");
+    }
+
+    @Test
+    void shouldNotCacheUnannotatedToolsOrFailures() {
+        var cache = cache(null);
+
+        cache.apply(call("uncached", "{\"city\":\"Lima\"}"));
+        cache.apply(call("uncached", "{\"city\":\"Lima\"}"));
+        assertThrows(RuntimeException.class, () -> cache.apply(lookup("nowhere")));
+        assertThrows(RuntimeException.class, () -> cache.apply(lookup("nowhere")));
+
+        assertEquals(2, executions.get("Lima").get());
+        assertEquals(2, executions.get("nowhere").get());
+        assertEquals(0, cache.size());
+    }
+
+    private ToolResultCache cache(Integer maxEntries) {
+        List<FunctionDef> functions = List.of(
+                function("lookup", Lookup.class),
+                function("expiring", Expiring.class),
+                function("uncached", Uncached.class));
+        return ToolResultCache.builder()
+                .functionExecutor(new FunctionExecutor(functions))
+                .functions(functions)
+                .maxEntries(maxEntries)
+                .metrics(metrics)
+                .build();
+    }
+
+    private void awaitCount(String counter, long count) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (metrics.getCount(counter) < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(metrics.getCount(counter) >= count, counter + " never reached " + count);
+    }
+
+    private static FunctionDef function(String name, Class<? extends Functional> functionalClass) {
+        return FunctionDef.builder().name(name).description(name).functionalClass(functionalClass).build();
+    }
+
+    private static FunctionCall lookup(String city) {
+        return call("lookup", "{\"city\":\"" + city + "\",\"country\":\"Peru\"}");
+    }
+
+    private static FunctionCall call(String name, String arguments) {
+        return new FunctionCall(name, arguments);
+    }
+
+    private static String execute(String name, String city) {
+        executions.computeIfAbsent(city, key -> new AtomicInteger()).incrementAndGet();
+        if (city.equals("nowhere")) {
+            throw new IllegalArgumentException("Unknown city: " + city);
+        }
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return name + ":" + city;
+    }
+
+    @CacheableTool(ttlSeconds = 600)
+    public static class Lookup implements Functional {
+
+        @JsonProperty(required = true)
+        public String city;
+
+        @JsonProperty
+        public String country;
+
+        @Override
+        public Object execute() {
+            return ToolResultCacheTest.execute("lookup", city);
+        }
+
+    }
+
+    @CacheableTool(ttlSeconds = 1)
+    public static class Expiring implements Functional {
+
+        @JsonProperty(required = true)
+        public String city;
+
+        @Override
+        public Object execute() {
+            return ToolResultCacheTest.execute("expiring", city);
+        }
+
+    }
+
+    public static class Uncached implements Functional {
+
+        @JsonProperty(required = true)
+        public String city;
+
+        @Override
+        public Object execute() {
+            return ToolResultCacheTest.execute("uncached", city);
+        }
+
+    }
+
+}